@@ -0,0 +1,77 @@
+package org.workspace7.msa.calculator.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.workspace7.msa.calculator.BatchCalculator;
+import org.workspace7.msa.calculator.Calculator;
+import org.workspace7.msa.calculator.CalculatorMetrics;
+import org.workspace7.msa.calculator.OperationResponseWriter;
+import org.workspace7.msa.calculator.SimpleCalculatorController;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the bytes allocated per <code>/api/add</code> request by the controller with the way it used to build
+ * its response: the environment copied to read HOSTNAME, boxed path variables, <code>String.format</code> and the
+ * String encoded by the message converter. Compare their <code>gc.alloc.rate.norm</code>, see {@link BenchmarkRunner}.
+ * The INFO log line of the old path is left out, so the baseline is if anything flattering.
+ *
+ * @author kameshs
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddEndpointBenchmark {
+
+    @Param({"42"})
+    public String num1;
+
+    @Param({"-1234567"})
+    public String num2;
+
+    private SimpleCalculatorController controller;
+    private DiscardingHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        Calculator calculator = new Calculator();
+        CalculatorMetrics metrics = new CalculatorMetrics(new SimpleMeterRegistry());
+        controller = new SimpleCalculatorController(calculator, new BatchCalculator(calculator, metrics, 256, 10000),
+            new ObjectMapper(), "wrap", new OperationResponseWriter(), metrics);
+        response = new DiscardingHttpServletResponse();
+    }
+
+    @Benchmark
+    public long add() throws IOException {
+        controller.add(num1, num2, null, response);
+        return response.getWritten();
+    }
+
+    @Benchmark
+    public long legacyAdd() throws IOException {
+        Integer n1 = Integer.valueOf(num1);
+        Integer n2 = Integer.valueOf(num2);
+        String hostname = System.getenv().getOrDefault("HOSTNAME", "Unknown");
+        int result = (n1 + n2);
+        String body = String.format("Service Host :%s \n %d + %d = %d", hostname, n1, n2, result);
+        byte[] bytes = body.getBytes(StandardCharsets.ISO_8859_1);
+        response.getOutputStream().write(bytes, 0, bytes.length);
+        return response.getWritten();
+    }
+}
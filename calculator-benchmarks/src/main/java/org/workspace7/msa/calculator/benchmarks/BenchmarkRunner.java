@@ -0,0 +1,36 @@
+package org.workspace7.msa.calculator.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The entry point of <code>benchmarks.jar</code>. Without arguments it runs all benchmarks with the allocation
+ * profiler and writes the results as JSON to <code>target/jmh-result.json</code>, which can be kept per build to
+ * track regressions. With arguments it is the plain JMH command line, e.g.
+ * <pre>
+ * java -jar target/benchmarks.jar ControllerBenchmark.mul -p size=100000 -prof gc -rf json
+ * </pre>
+ *
+ * @author kameshs
+ */
+public class BenchmarkRunner {
+
+    static final String RESULT_FILE = "target/jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        Options options = new OptionsBuilder()
+            .include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark")
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result(RESULT_FILE)
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,136 @@
+package org.workspace7.msa.calculator.benchmarks;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.workspace7.msa.calculator.client.stub.StubCalculatorServer;
+import org.workspace7.msa.calculator.client.util.HttpClientPool;
+import org.workspace7.msa.calculator.client.util.HttpClientPoolConfig;
+import org.workspace7.msa.calculator.client.util.RestHttpClientUtil;
+import org.workspace7.msa.calculator.client.util.RestHttpClientWithoutKeepAlive;
+import org.workspace7.msa.calculator.client.util.VertxRestClientUtil;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of one <code>GET /api/add/{num1}/{num2}</code> round trip through each of the REST clients, against a
+ * {@link StubCalculatorServer} running in the same JVM
+ * <ul>
+ * <li>{@link RestHttpClientUtil} on its own connection pool</li>
+ * <li>{@link RestHttpClientWithoutKeepAlive} in its default mode, a new connection per request</li>
+ * <li>{@link RestHttpClientWithoutKeepAlive} in persistent connection mode</li>
+ * <li>{@link VertxRestClientUtil} with its default options, the stub imported with the static service importer
+ * instead of from Kubernetes</li>
+ * <li>{@link VertxRestClientUtil} with the h2c transport, the requests multiplexed over one HTTP/2 connection</li>
+ * </ul>
+ * The client calls are blocking or waited for, so the score is the latency of a request and the allocation rate
+ * includes both the client and the stub server.
+ *
+ * @author kameshs
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientBenchmark {
+
+    private static final String SERVICE_NAME = "simple-calculator-spring";
+    private static final String PATH = "/api/add/42/-1234567";
+
+    private Vertx vertx;
+    private StubCalculatorServer server;
+    private String url;
+    private HttpClientPool httpClientPool;
+    private RestHttpClientUtil restHttpClientUtil;
+    private RestHttpClientWithoutKeepAlive withoutKeepAlive;
+    private RestHttpClientWithoutKeepAlive persistent;
+    private VertxRestClientUtil vertxRestClientUtil;
+    private VertxRestClientUtil vertxRestClientUtilH2c;
+
+    @Setup
+    public void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        server = StubCalculatorServer.deploy(vertx, new JsonObject()).toCompletableFuture().get(10, TimeUnit.SECONDS);
+        url = server.getBaseUrl() + PATH;
+
+        httpClientPool = new HttpClientPool(HttpClientPoolConfig.DEFAULT);
+        restHttpClientUtil = new RestHttpClientUtil(httpClientPool);
+        withoutKeepAlive = new RestHttpClientWithoutKeepAlive(false);
+        persistent = new RestHttpClientWithoutKeepAlive(true);
+
+        vertxRestClientUtil = createVertxRestClientUtil(new JsonObject());
+        // the stub server accepts h2c by upgrade
+        vertxRestClientUtilH2c = createVertxRestClientUtil(new JsonObject()
+            .put("transport", "h2c")
+            .put("h2cUpgrade", true));
+    }
+
+    /**
+     * @return - a client with the stub server imported as its only service, once it is ready
+     */
+    private VertxRestClientUtil createVertxRestClientUtil(JsonObject config) throws Exception {
+        VertxRestClientUtil client = new VertxRestClientUtil(vertx, config.put("discovery", server.discoveryConfig()));
+        client.readiness().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        return client;
+    }
+
+    @TearDown
+    public void tearDown() {
+        persistent.close();
+        withoutKeepAlive.close();
+        httpClientPool.shutdown();
+        server.close();
+        vertx.close();
+    }
+
+    @Benchmark
+    public String restHttpClientUtil() throws Exception {
+        return restHttpClientUtil.executeGetRequest(url, Collections.emptyMap());
+    }
+
+    @Benchmark
+    public String restHttpClientWithoutKeepAlive() throws Exception {
+        return withoutKeepAlive.executeGetRequest(url, Collections.emptyMap());
+    }
+
+    @Benchmark
+    public String restHttpClientWithoutKeepAlivePersistent() throws Exception {
+        return persistent.executeGetRequest(url, Collections.emptyMap());
+    }
+
+    @Benchmark
+    public String vertxRestClientUtil() throws Exception {
+        return executeGET(vertxRestClientUtil);
+    }
+
+    @Benchmark
+    public String vertxRestClientUtilH2c() throws Exception {
+        return executeGET(vertxRestClientUtilH2c);
+    }
+
+    private static String executeGET(VertxRestClientUtil client) throws Exception {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        client.executeGET(SERVICE_NAME, PATH, Collections.emptyMap(), result -> {
+            if (result.succeeded()) {
+                response.complete(result.result());
+            } else {
+                response.completeExceptionally(result.cause());
+            }
+        });
+        return response.get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,130 @@
+package org.workspace7.msa.calculator.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.workspace7.msa.calculator.BatchCalculator;
+import org.workspace7.msa.calculator.BatchOperation;
+import org.workspace7.msa.calculator.Calculator;
+import org.workspace7.msa.calculator.CalculatorMetrics;
+import org.workspace7.msa.calculator.OperationResponseWriter;
+import org.workspace7.msa.calculator.SimpleCalculatorController;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link SimpleCalculatorController} operations called directly, without HTTP or Spring dispatch, so the cost
+ * of the operations themselves and of parsing their request bodies can be followed. The <code>size</code> parameter
+ * is the length of the numbers array of mul and div and the number of operations of batch, <code>accept</code> the
+ * negotiated response format. Batch has no text form and answers JSON to <code>text/plain</code>.
+ *
+ * @author kameshs
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    @Param({"text/plain", "application/json", "application/cbor"})
+    public String accept;
+
+    private SimpleCalculatorController controller;
+    private DiscardingHttpServletResponse response;
+    private byte[] mulBody;
+    private byte[] divBody;
+    private List<BatchOperation> batch;
+
+    @Setup
+    public void setUp() {
+        Calculator calculator = new Calculator();
+        CalculatorMetrics metrics = new CalculatorMetrics(new SimpleMeterRegistry());
+        controller = new SimpleCalculatorController(calculator, new BatchCalculator(calculator, metrics, 256, 1000000),
+            new ObjectMapper(), "wrap", new OperationResponseWriter(), metrics);
+        response = new DiscardingHttpServletResponse();
+        mulBody = numbersJson(size, 3);
+        divBody = numbersJson(size, 1.5);
+        batch = new ArrayList<>(size);
+        String[] operations = {"add", "sub", "mul", "div"};
+        for (int i = 0; i < size; i++) {
+            batch.add(new BatchOperation(operations[i % operations.length], Arrays.<Number>asList(i + 1, 7)));
+        }
+    }
+
+    @Benchmark
+    public long whoami() throws IOException {
+        controller.whoami(accept, response);
+        return response.getWritten();
+    }
+
+    @Benchmark
+    public long add() throws IOException {
+        controller.add("42", "-1234567", accept, response);
+        return response.getWritten();
+    }
+
+    @Benchmark
+    public long sub() throws IOException {
+        controller.sub("42", "-1234567", accept, response);
+        return response.getWritten();
+    }
+
+    @Benchmark
+    public long mul() throws IOException {
+        controller.mul(new ByteArrayInputStream(mulBody), null, null, accept, response);
+        return response.getWritten();
+    }
+
+    @Benchmark
+    public long mulBigInteger() throws IOException {
+        controller.mul(new ByteArrayInputStream(mulBody), "bigint", null, accept, response);
+        return response.getWritten();
+    }
+
+    @Benchmark
+    public long mulParallel() throws IOException {
+        controller.mul(new ByteArrayInputStream(mulBody), "parallel", null, accept, response);
+        return response.getWritten();
+    }
+
+    @Benchmark
+    public long div() throws IOException {
+        controller.div(new ByteArrayInputStream(divBody), accept, response);
+        return response.getWritten();
+    }
+
+    @Benchmark
+    public long batch() throws IOException {
+        controller.batch(batch, accept, response);
+        return response.getWritten();
+    }
+
+    private static byte[] numbersJson(int size, Number number) {
+        StringBuilder json = new StringBuilder("{\"numbers\": [");
+        for (int i = 0; i < size; i++) {
+            json.append(i == 0 ? "" : ", ").append(number);
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,71 @@
+package org.workspace7.msa.calculator.benchmarks;
+
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * A response whose body is thrown away, so that benchmarks measure what the endpoint allocates and not what the
+ * response implementation does. Only the methods the endpoints use are overridden.
+ *
+ * @author kameshs
+ */
+public class DiscardingHttpServletResponse extends HttpServletResponseWrapper {
+
+    private final ServletOutputStream outputStream = new ServletOutputStream() {
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+        @Override
+        public void write(int b) {
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            written += len;
+        }
+    };
+
+    private long written;
+
+    public DiscardingHttpServletResponse() {
+        super(new MockHttpServletResponse());
+    }
+
+    @Override
+    public void setContentType(String type) {
+    }
+
+    @Override
+    public void setContentLength(int len) {
+    }
+
+    @Override
+    public void setStatus(int sc) {
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * @return - the number of bytes written so far, for the benchmarks to consume
+     */
+    public long getWritten() {
+        return written;
+    }
+}
@@ -0,0 +1,143 @@
+package org.workspace7.msa.calculator.benchmarks;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.workspace7.msa.calculator.ReactiveConfiguration;
+import org.workspace7.msa.calculator.SimpleCalculatorApplication;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The throughput of simple-calculator-spring in its servlet and {@link ReactiveConfiguration reactive} modes, with
+ * 10000 concurrent connections each sending one <code>GET /api/add/{num1}/{num2}</code> per invocation. The score is
+ * in requests per second. The live threads and the used heap of the JVM after each invocation, and the failed
+ * requests, are reported by the {@link Footprint} counters along with the score, in the JSON results as well. The
+ * client is the same in both modes, so their difference is the server's. <code>-prof gc</code> adds the bytes
+ * allocated per request.
+ * <p>
+ * The service and the client share the JVM, so each connection takes two file descriptors, raise the limit with
+ * <code>ulimit -n 32768</code> first.
+ *
+ * @author kameshs
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class ServerModeBenchmark {
+
+    private static final int CONNECTIONS = 10000;
+    private static final String PATH = "/api/add/42/-1234567";
+
+    @Param({"servlet", "reactive"})
+    private String mode;
+
+    private ConfigurableApplicationContext context;
+    private Vertx vertx;
+    private HttpClient httpClient;
+    private int port;
+
+    @Setup
+    public void setUp() throws Exception {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(SimpleCalculatorApplication.class)
+            .properties("server.port=0");
+        if ("reactive".equals(mode)) {
+            application.profiles("reactive");
+        }
+        context = application.run();
+        port = ((EmbeddedWebApplicationContext) context).getEmbeddedServletContainer().getPort();
+
+        vertx = Vertx.vertx();
+        httpClient = vertx.createHttpClient(new HttpClientOptions()
+            .setKeepAlive(true)
+            .setMaxPoolSize(CONNECTIONS)
+            .setMaxWaitQueueSize(-1));
+        // opens all the connections
+        sendAll();
+    }
+
+    @TearDown
+    public void tearDown() {
+        httpClient.close();
+        vertx.close();
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONNECTIONS)
+    public void add(Footprint footprint) throws Exception {
+        footprint.errors += sendAll();
+        Runtime runtime = Runtime.getRuntime();
+        footprint.threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        footprint.heapMegabytes = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+    }
+
+    /**
+     * Sends one request per connection and waits for all the responses
+     *
+     * @return - the number of requests that failed or were not answered with a 200
+     */
+    private int sendAll() throws InterruptedException {
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch responses = new CountDownLatch(CONNECTIONS);
+        for (int i = 0; i < CONNECTIONS; i++) {
+            httpClient.get(port, "localhost", PATH, response -> {
+                if (response.statusCode() != 200) {
+                    errors.incrementAndGet();
+                }
+                response.bodyHandler(body -> responses.countDown());
+            }).exceptionHandler(e -> {
+                errors.incrementAndGet();
+                responses.countDown();
+            }).end();
+        }
+        if (!responses.await(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException(responses.getCount() + " requests unanswered after 60 seconds");
+        }
+        return errors.get();
+    }
+
+    /**
+     * The footprint of the JVM, reported as secondary results of the iterations: the live threads and the used heap
+     * in MB after the last invocation, and the failed requests of the iteration
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+
+        public long threads;
+        public long heapMegabytes;
+        public long errors;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            threads = 0;
+            heapMegabytes = 0;
+            errors = 0;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.workspace7.msa.calculator.commons;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+/**
+ * An {@link AsyncAppender} that, once the queue is filled above its discarding threshold, drops the DEBUG and TRACE
+ * events only, where the stock appender also drops INFO. Configured with <code>neverBlock</code> the logging thread
+ * is never blocked, the INFO and higher events are then dropped only when the queue is full.
+ *
+ * @author kameshs
+ */
+public class DebugDiscardingAsyncAppender extends AsyncAppender {
+
+    @Override
+    protected boolean isDiscardable(ILoggingEvent event) {
+        return event.getLevel().toInt() <= Level.DEBUG_INT;
+    }
+}
@@ -0,0 +1,170 @@
+package org.workspace7.msa.calculator.commons;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Reports the virtual threads that blocked while pinned to their carrier thread, usually inside a synchronized
+ * section, from the <code>jdk.VirtualThreadPinned</code> events of a JFR recording stream. Every pinning longer than
+ * the threshold is counted per site, the first frame outside the JDK, and timed as
+ * <code>calculator.virtual.threads.pinned</code> tagged with its <code>site</code> when the monitor has a
+ * {@link MeterRegistry}. The first pinning of each site is logged with its stack trace. The JFR streaming API needs
+ * Java 14 and the event Java 21, the modules are built for Java 8 so both are used reflectively, and the monitor does
+ * nothing on older runtimes.
+ *
+ * @author kameshs
+ */
+public class PinnedThreadMonitor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+
+    public static final String PINNED = "calculator.virtual.threads.pinned";
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final MeterRegistry registry;
+    private final long thresholdMillis;
+    private final LongAdder pinned = new LongAdder();
+    private final LongAdder pinnedNanos = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> sites = new ConcurrentHashMap<>();
+    private volatile AutoCloseable recordingStream;
+
+    /**
+     * A monitor that only counts the pinnings, see {@link #stats()}
+     *
+     * @param thresholdMillis - the shortest pinning that is reported
+     */
+    public PinnedThreadMonitor(long thresholdMillis) {
+        this(null, thresholdMillis);
+    }
+
+    /**
+     * @param registry        - the registry the pinnings are timed in, null to only count them
+     * @param thresholdMillis - the shortest pinning that is reported
+     */
+    public PinnedThreadMonitor(MeterRegistry registry, long thresholdMillis) {
+        this.registry = registry;
+        this.thresholdMillis = thresholdMillis;
+    }
+
+    /**
+     * @return - true when the pinned events are recorded, false when the runtime has no virtual threads
+     */
+    public synchronized boolean start() {
+        if (recordingStream != null) {
+            return true;
+        }
+        if (!VirtualThreads.isSupported()) {
+            LOGGER.info("No virtual threads on Java {}, pinned threads are not monitored",
+                    System.getProperty("java.version"));
+            return false;
+        }
+        try {
+            Class<?> streamType = Class.forName("jdk.jfr.consumer.RecordingStream");
+            Object stream = streamType.getConstructor().newInstance();
+            Object settings = streamType.getMethod("enable", String.class).invoke(stream, PINNED_EVENT);
+            Class.forName("jdk.jfr.EventSettings").getMethod("withThreshold", Duration.class)
+                    .invoke(settings, Duration.ofMillis(thresholdMillis));
+            Consumer<Object> handler = this::onPinned;
+            streamType.getMethod("onEvent", String.class, Consumer.class).invoke(stream, PINNED_EVENT, handler);
+            streamType.getMethod("startAsync").invoke(stream);
+            recordingStream = (AutoCloseable) stream;
+            LOGGER.info("Monitoring virtual threads pinned for more than {} ms", thresholdMillis);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.warn("Unable to record {} events, pinned threads are not monitored", PINNED_EVENT, e);
+            return false;
+        }
+    }
+
+    public synchronized void close() {
+        if (recordingStream != null) {
+            try {
+                recordingStream.close();
+            } catch (Exception e) {
+                LOGGER.debug("Error closing the JFR recording stream", e);
+            }
+            recordingStream = null;
+        }
+    }
+
+    /**
+     * @return - "monitored", "thresholdMs", the number of pinnings as "pinned", their total time as "pinnedMs" and
+     * their count per site as "sites"
+     */
+    public Map<String, Object> stats() {
+        Map<String, Long> perSite = new LinkedHashMap<>();
+        sites.forEach((site, count) -> perSite.put(site, count.sum()));
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("monitored", recordingStream != null);
+        stats.put("thresholdMs", thresholdMillis);
+        stats.put("pinned", pinned.sum());
+        stats.put("pinnedMs", TimeUnit.NANOSECONDS.toMillis(pinnedNanos.sum()));
+        stats.put("sites", perSite);
+        return stats;
+    }
+
+    private void onPinned(Object event) {
+        try {
+            Duration duration = (Duration) invoke(event, "getDuration");
+            String site = site(invoke(event, "getStackTrace"));
+            pinned.increment();
+            pinnedNanos.add(duration.toNanos());
+            LongAdder count = sites.computeIfAbsent(site, key -> new LongAdder());
+            count.increment();
+            if (registry != null) {
+                Timer.builder(PINNED)
+                        .description("Virtual threads blocked while pinned to their carrier thread")
+                        .tag("site", site)
+                        .register(registry)
+                        .record(duration.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            // the events are delivered on the single thread of the recording stream
+            if (count.sum() == 1) {
+                LOGGER.warn("Virtual thread pinned for {} ms at {}\n{}", duration.toMillis(), site, event);
+            } else if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Virtual thread pinned for {} ms at {}", duration.toMillis(), site);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.debug("Unable to read {} event", PINNED_EVENT, e);
+        }
+    }
+
+    /**
+     * @return - the first frame outside the JDK, the one that holds the monitor or calls the code that does
+     */
+    private static String site(Object stackTrace) throws ReflectiveOperationException {
+        if (stackTrace == null) {
+            return "unknown";
+        }
+        String first = "unknown";
+        for (Object frame : (List<?>) invoke(stackTrace, "getFrames")) {
+            Object method = invoke(frame, "getMethod");
+            String type = (String) invoke(invoke(method, "getType"), "getName");
+            String site = type + "." + invoke(method, "getName") + ":" + invoke(frame, "getLineNumber");
+            if ("unknown".equals(first)) {
+                first = site;
+            }
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return site;
+            }
+        }
+        return first;
+    }
+
+    private static Object invoke(Object target, String name) throws ReflectiveOperationException {
+        return target.getClass().getMethod(name).invoke(target);
+    }
+}
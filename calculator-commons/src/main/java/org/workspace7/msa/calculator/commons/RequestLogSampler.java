@@ -0,0 +1,91 @@
+package org.workspace7.msa.calculator.commons;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A logback {@link TurboFilter} that samples and rate limits the per request log lines, the ones logged with the
+ * {@link #REQUEST} marker, so that their cost does not grow with the throughput. Of the enabled events, one in
+ * <code>sampleRate</code> is logged and no more than <code>maxPerSecond</code> per second. Events without the marker,
+ * and the <code>isXxxEnabled</code> guards, are left to the other filters and the logger levels.
+ * <pre>
+ * &lt;turboFilter class="org.workspace7.msa.calculator.commons.RequestLogSampler"&gt;
+ *     &lt;sampleRate&gt;100&lt;/sampleRate&gt;
+ *     &lt;maxPerSecond&gt;20&lt;/maxPerSecond&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ * The filter runs before the message is formatted, so a dropped event costs two atomic increments.
+ *
+ * @author kameshs
+ */
+public class RequestLogSampler extends TurboFilter {
+
+    public static final Marker REQUEST = MarkerFactory.getMarker("REQUEST");
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private int sampleRate = 1;
+    private int maxPerSecond = Integer.MAX_VALUE;
+
+    private final AtomicLong seen = new AtomicLong();
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger loggedInWindow = new AtomicInteger();
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+                              Throwable t) {
+        if (!isStarted() || format == null || marker == null || !marker.contains(REQUEST)
+                || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        if (seen.getAndIncrement() % sampleRate != 0) {
+            return FilterReply.DENY;
+        }
+        return acquire() ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    /**
+     * @return - true when the event fits in the budget of the current one second window
+     */
+    private boolean acquire() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= SECOND && windowStart.compareAndSet(start, now)) {
+            loggedInWindow.set(0);
+        }
+        return loggedInWindow.incrementAndGet() <= maxPerSecond;
+    }
+
+    @Override
+    public void start() {
+        if (sampleRate < 1 || maxPerSecond < 1) {
+            addError("sampleRate and maxPerSecond must be at least 1");
+            return;
+        }
+        super.start();
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public int getMaxPerSecond() {
+        return maxPerSecond;
+    }
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+}
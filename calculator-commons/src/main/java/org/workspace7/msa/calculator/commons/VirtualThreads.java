@@ -0,0 +1,77 @@
+package org.workspace7.msa.calculator.commons;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factories for the blocking calls, of platform threads or of virtual threads. Virtual threads need Java 21,
+ * the module is built for Java 8 so they are created reflectively, and on older runtimes the factories fall back to
+ * platform threads with a warning. A blocking call on a virtual thread releases its carrier thread while it waits, so
+ * many more calls can be in flight than there are platform threads, unless the call blocks inside a synchronized
+ * section, which pins the carrier. {@link PinnedThreadMonitor} reports those.
+ *
+ * @author kameshs
+ */
+public final class VirtualThreads {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static final Method OF_VIRTUAL = ofVirtual();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return - true when the runtime has virtual threads
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * @param name    - the prefix of the thread names, followed by a counter
+     * @param virtual - true for virtual threads, when the runtime has them
+     * @return - a factory of daemon threads
+     */
+    public static ThreadFactory threadFactory(String name, boolean virtual) {
+        if (virtual) {
+            if (isSupported()) {
+                return virtualThreadFactory(name);
+            }
+            LOGGER.warn("Virtual threads need Java 21, {} runs on platform threads on Java {}", name,
+                    System.getProperty("java.version"));
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * <code>Thread.ofVirtual().name(name + "-", 1).factory()</code>, virtual threads are always daemons
+     */
+    private static ThreadFactory virtualThreadFactory(String name) {
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create virtual threads", e);
+        }
+    }
+
+    private static Method ofVirtual() {
+        try {
+            return Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.workspace7.msa.calculator.commons;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Marker;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the sampling and the rate limit of {@link RequestLogSampler}, and that it leaves the other events alone
+ *
+ * @author kameshs
+ */
+public class RequestLogSamplerTest {
+
+    private LoggerContext loggerContext;
+    private Logger logger;
+
+    @Before
+    public void createLogger() {
+        loggerContext = new LoggerContext();
+        logger = loggerContext.getLogger("calculator");
+        logger.setLevel(Level.INFO);
+    }
+
+    @Test
+    public void logsOneInSampleRateRequestEvents() {
+        RequestLogSampler sampler = sampler(10, Integer.MAX_VALUE);
+
+        assertEquals(10, logged(sampler, RequestLogSampler.REQUEST, Level.INFO, 100));
+    }
+
+    @Test
+    public void logsNoMoreThanMaxPerSecondRequestEvents() {
+        RequestLogSampler sampler = sampler(1, 3);
+
+        assertEquals(3, logged(sampler, RequestLogSampler.REQUEST, Level.INFO, 10));
+    }
+
+    @Test
+    public void leavesTheOtherEventsToTheLoggerLevels() {
+        RequestLogSampler sampler = sampler(10, 1);
+
+        assertEquals(100, logged(sampler, null, Level.INFO, 100));
+        assertEquals(100, logged(sampler, RequestLogSampler.REQUEST, Level.DEBUG, 100));
+        // the disabled events were not counted
+        assertEquals(1, logged(sampler, RequestLogSampler.REQUEST, Level.INFO, 10));
+    }
+
+    @Test
+    public void doesNotStartWithoutAValidConfiguration() {
+        RequestLogSampler sampler = sampler(0, 1);
+
+        assertEquals(100, logged(sampler, RequestLogSampler.REQUEST, Level.INFO, 100));
+    }
+
+    private RequestLogSampler sampler(int sampleRate, int maxPerSecond) {
+        RequestLogSampler sampler = new RequestLogSampler();
+        sampler.setContext(loggerContext);
+        sampler.setSampleRate(sampleRate);
+        sampler.setMaxPerSecond(maxPerSecond);
+        sampler.start();
+        return sampler;
+    }
+
+    /**
+     * @return - the number of the events that the sampler leaves to the other filters
+     */
+    private int logged(RequestLogSampler sampler, Marker marker, Level level, int events) {
+        int logged = 0;
+        for (int i = 0; i < events; i++) {
+            if (sampler.decide(marker, logger, level, "request {}", new Object[]{i}, null) == FilterReply.NEUTRAL) {
+                logged++;
+            }
+        }
+        return logged;
+    }
+}
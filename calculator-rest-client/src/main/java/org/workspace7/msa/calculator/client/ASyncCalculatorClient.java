@@ -1,38 +1,122 @@
 package org.workspace7.msa.calculator.client;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
-import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.workspace7.msa.calculator.client.util.EventLoopLagMonitor;
+import org.workspace7.msa.calculator.client.util.ResponseCacheHandler;
+import org.workspace7.msa.calculator.client.util.ServiceResponse;
+import org.workspace7.msa.calculator.client.util.StreamingProxyHandler;
 import org.workspace7.msa.calculator.client.util.VertxRestClientUtil;
+import org.workspace7.msa.calculator.commons.RequestLogSampler;
 
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
+import static io.vertx.core.http.HttpHeaders.ACCEPT;
 import static io.vertx.core.http.HttpHeaders.CONTENT_TYPE;
 
 /**
+ * A proxy verticle that forwards <code>/api/*</code> to the simple-calculator-spring service. The "proxy" object of
+ * the verticle config selects how,
+ * <ul>
+ * <li>"mode" : "streaming" - the default, request and response bodies are piped through the
+ * {@link StreamingProxyHandler} for all methods</li>
+ * <li>"mode" : "buffered" - bodies are read fully and sent via the {@link VertxRestClientUtil} execute methods</li>
+ * </ul>
+ * In both modes the Accept header is forwarded and the response body is passed through as the service encoded it,
+ * whatever its format or status.
+ * The "client" object is passed to the {@link VertxRestClientUtil}, by default it warms up the simple-calculator-spring
+ * service. <code>/ready</code> answers 200 once the client is ready to serve and 503 before.
+ * <p>
+ * <code>/stats</code> includes the client metrics of the backend requests. With "metrics" : {"enabled" : true} they
+ * are also exposed in the Prometheus format on the "path" of the "metrics" object, <code>/metrics</code> by default.
+ * <p>
+ * With "cache" : {"enabled" : true} add, sub, mul and div are answered from a {@link ResponseCacheHandler} configured
+ * by the "cache" object. It is off by default, a cached body names the pod that first computed it and would hide the
+ * load balancing.
+ *
  * @author kameshs
  */
 public class ASyncCalculatorClient extends AbstractVerticle {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(VertxRestClientUtil.class);
-    final VertxRestClientUtil vertxRestClientUtil = new VertxRestClientUtil();
+    private static final String SERVICE_NAME = "simple-calculator-spring";
+    private static final long PROXY_TIMEOUT = 10000L;
+    private static final String VARY = "Vary";
+    private static final CharSequence[] FORWARDED_HEADERS = {ACCEPT, "X-Calculator-Precision"};
+
+    VertxRestClientUtil vertxRestClientUtil;
+
+    private EventLoopLagMonitor eventLoopLagMonitor;
+
+    private PrometheusMeterRegistry prometheusRegistry;
+
+    private ResponseCacheHandler responseCache;
 
     @Override
     public void start(Future future) throws Exception {
 
+        JsonObject clientConfig = config().getJsonObject("client", new JsonObject()).copy();
+        if (!clientConfig.containsKey("warmup")) {
+            clientConfig.put("warmup", new JsonObject().put("services", new JsonArray().add(SERVICE_NAME)));
+        }
+        JsonObject metricsConfig = config().getJsonObject("metrics", new JsonObject());
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        if (metricsConfig.getBoolean("enabled", false)) {
+            prometheusRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+            meterRegistry = prometheusRegistry;
+        }
+        vertxRestClientUtil = new VertxRestClientUtil(vertx, clientConfig, meterRegistry);
+
+        eventLoopLagMonitor = new EventLoopLagMonitor(vertx,
+            config().getJsonObject("eventLoopMonitor", new JsonObject()));
+        eventLoopLagMonitor.start();
+
+        JsonObject proxyConfig = config().getJsonObject("proxy", new JsonObject());
+        String proxyMode = proxyConfig.getString("mode", "streaming");
+
         // Create a router object.
         Router router = Router.router(vertx);
 
-        router.route("/api/*").handler(this::handleProxyRequest);
-        router.route("/api/*").handler(BodyHandler.create());
+        router.get("/stats").handler(this::handleStats);
+        router.get("/ready").handler(this::handleReady);
+        if (prometheusRegistry != null) {
+            router.get(metricsConfig.getString("path", "/metrics")).handler(this::handleMetrics);
+        }
+        JsonObject cacheConfig = config().getJsonObject("cache", new JsonObject());
+        if (cacheConfig.getBoolean("enabled", false)) {
+            responseCache = new ResponseCacheHandler(vertxRestClientUtil, SERVICE_NAME, cacheConfig, meterRegistry);
+        }
+        if ("buffered".equals(proxyMode)) {
+            router.route("/api/*").handler(BodyHandler.create());
+            if (responseCache != null) {
+                router.route("/api/*").handler(responseCache);
+            }
+            router.route("/api/*").handler(this::handleProxyRequest);
+        } else {
+            if (responseCache != null) {
+                router.route("/api/*").handler(responseCache);
+            }
+            router.route("/api/*").handler(new StreamingProxyHandler(vertxRestClientUtil, SERVICE_NAME,
+                proxyConfig.getLong("timeout", PROXY_TIMEOUT)));
+        }
+        LOGGER.info("Proxying /api/* to {} in {} mode", SERVICE_NAME, proxyMode);
 
         vertx.createHttpServer()
             .requestHandler(router::accept)
@@ -41,6 +125,36 @@ public class ASyncCalculatorClient extends AbstractVerticle {
 
     }
 
+    @Override
+    public void stop() throws Exception {
+        eventLoopLagMonitor.stop();
+    }
+
+    private void handleStats(RoutingContext routingContext) {
+        routingContext.response()
+            .putHeader(CONTENT_TYPE, "application/json; charset=utf-8")
+            .end(new JsonObject()
+                .put("eventLoop", eventLoopLagMonitor.stats())
+                .put("client", vertxRestClientUtil.getMetrics().snapshot())
+                .put("guards", vertxRestClientUtil.guardStats())
+                .put("cache", responseCache != null ? responseCache.stats() : null)
+                .encodePrettily());
+    }
+
+    private void handleMetrics(RoutingContext routingContext) {
+        routingContext.response()
+            .putHeader(CONTENT_TYPE, "text/plain; version=0.0.4; charset=utf-8")
+            .end(prometheusRegistry.scrape());
+    }
+
+    private void handleReady(RoutingContext routingContext) {
+        boolean ready = vertxRestClientUtil.isServiceable();
+        routingContext.response()
+            .setStatusCode(ready ? 200 : 503)
+            .putHeader(CONTENT_TYPE, "application/json; charset=utf-8")
+            .end(new JsonObject().put("ready", ready).encodePrettily());
+    }
+
     private void handleProxyRequest(RoutingContext routingContext) {
 
 
@@ -48,38 +162,65 @@ public class ASyncCalculatorClient extends AbstractVerticle {
         HttpServerResponse response = routingContext.response();
         HttpMethod httpMethod = routingContext.request().method();
 
-        LOGGER.info("Handling Request with method {} for path {} ", request.method(), request.path());
+        LOGGER.debug(RequestLogSampler.REQUEST, "Handling Request with method {} for path {} ", request.method(),
+            request.path());
 
-        switch (httpMethod) {
-            case GET:
-            default: {
-                LOGGER.info("Handling GET Request...");
-                vertxRestClientUtil.executeGET("simple-calculator-spring", request.path(),
-                    Collections.emptyMap(), res -> {
-                        response
-                            .putHeader(CONTENT_TYPE, "application/json; charset=utf-8")
-                            .end(Json.encode(res.result()));
-                    });
-                break;
+        Handler<AsyncResult<ServiceResponse>> responseHandler = res -> {
+            if (res.succeeded()) {
+                // the body is passed through as the service encoded it, in the format it negotiated
+                ServiceResponse serviceResponse = res.result();
+                response.setStatusCode(serviceResponse.getStatusCode());
+                copyHeader(serviceResponse, response, CONTENT_TYPE);
+                copyHeader(serviceResponse, response, VARY);
+                response.end(serviceResponse.getBody());
+            } else {
+                response.setStatusCode(502)
+                    .putHeader(CONTENT_TYPE, "application/json; charset=utf-8")
+                    .end(String.valueOf(res.cause().getMessage()));
             }
-            case DELETE: {
-                vertxRestClientUtil.executeDELETE("simple-calculator-spring", request.path(),
-                    Collections.emptyMap(), res -> {
-                        response
-                            .putHeader(CONTENT_TYPE, "application/json; charset=utf-8")
-                            .end(Json.encode(res.result()));
-                    });
+        };
+
+        switch (httpMethod) {
+            case POST:
+            case PUT: {
+                vertxRestClientUtil.executeForResponse(httpMethod, SERVICE_NAME, request.uri(),
+                    routingContext.getBodyAsString(), requestHeaders(routingContext, true), responseHandler);
                 break;
             }
-            case POST: {
-                //TODO
+            default: {
+                LOGGER.debug(RequestLogSampler.REQUEST, "Handling {} Request...", httpMethod);
+                vertxRestClientUtil.executeForResponse(httpMethod, SERVICE_NAME, request.uri(), null,
+                    requestHeaders(routingContext, false), responseHandler);
                 break;
             }
-            case PUT: {
-                //TODO
-                break;
+        }
+    }
+
+    /**
+     * The headers the service negotiates its response with, and the mandatory headers for requests that carry a body
+     */
+    private Map<String, String> requestHeaders(RoutingContext routingContext, boolean withBody) {
+        Map<String, String> headers = new HashMap<>();
+        HttpServerRequest request = routingContext.request();
+        for (CharSequence name : FORWARDED_HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                headers.put(name.toString(), value);
             }
         }
+        if (withBody) {
+            headers.put("Content-Length", String.valueOf(routingContext.getBody().length()));
+            String contentType = request.getHeader(CONTENT_TYPE);
+            headers.put("Content-Type", contentType != null ? contentType : "application/json; charset=utf8");
+        }
+        return headers;
+    }
+
+    private static void copyHeader(ServiceResponse from, HttpServerResponse to, CharSequence name) {
+        String value = from.getHeaders().get(name);
+        if (value != null) {
+            to.putHeader(name, value);
+        }
     }
 
     //    public static void main(String[] args) {
@@ -1,25 +1,42 @@
 package org.workspace7.msa.calculator.client;
 
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.http.HttpServerResponse;
-import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.workspace7.msa.calculator.client.util.BoundedWorkerPool;
+import org.workspace7.msa.calculator.client.util.EventLoopLagMonitor;
 import org.workspace7.msa.calculator.client.util.RestHttpClientWithoutKeepAlive;
+import org.workspace7.msa.calculator.client.util.ServiceResponse;
 import org.workspace7.msa.calculator.client.util.VertxRestClientUtil;
+import org.workspace7.msa.calculator.commons.PinnedThreadMonitor;
+import org.workspace7.msa.calculator.commons.RequestLogSampler;
 
-import java.io.IOException;
 import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
+import static io.vertx.core.http.HttpHeaders.ACCEPT;
 import static io.vertx.core.http.HttpHeaders.CONTENT_TYPE;
 
 /**
+ * A proxy verticle that calls the backend using the blocking {@link RestHttpClientWithoutKeepAlive}, the blocking
+ * calls are offloaded to a {@link BoundedWorkerPool} configured via the "sync" object of the verticle config so that
+ * the event loop is never blocked. The event loop lag and worker pool usage are available on <code>/stats</code>.
+ * When the pool runs on virtual threads, "sync": {"threads": "virtual"}, the virtual threads pinned by the blocking
+ * calls are reported on <code>/stats</code> too, see {@link PinnedThreadMonitor}. The Accept header is forwarded and
+ * the response body is passed through as the service encoded it. The "serviceUrl" of the verticle config,
+ * <code>http://simple-calculator-spring</code> by default, points the proxy at another backend, e.g. a
+ * {@link org.workspace7.msa.calculator.client.stub.StubCalculatorServer}.
+ *
  * @author kameshs
  */
 public class SyncCalculatorClient extends AbstractVerticle {
@@ -28,12 +45,29 @@ public class SyncCalculatorClient extends AbstractVerticle {
     private static final String SERVICE_URL = "http://simple-calculator-spring";
     RestHttpClientWithoutKeepAlive restHttpClientUtil = new RestHttpClientWithoutKeepAlive();
 
+    private BoundedWorkerPool workerPool;
+    private EventLoopLagMonitor eventLoopLagMonitor;
+    private PinnedThreadMonitor pinnedThreadMonitor;
+    private String serviceUrl;
+
     @Override
     public void start(Future future) throws Exception {
 
+        serviceUrl = config().getString("serviceUrl", SERVICE_URL);
+        workerPool = new BoundedWorkerPool("sync-proxy-worker", config().getJsonObject("sync", new JsonObject()));
+        eventLoopLagMonitor = new EventLoopLagMonitor(vertx,
+            config().getJsonObject("eventLoopMonitor", new JsonObject()));
+        eventLoopLagMonitor.start();
+        pinnedThreadMonitor = new PinnedThreadMonitor(
+            config().getJsonObject("pinnedThreads", new JsonObject()).getLong("threshold", 20L));
+        if (workerPool.isVirtual()) {
+            pinnedThreadMonitor.start();
+        }
+
         // Create a router object.
         Router router = Router.router(vertx);
 
+        router.get("/stats").handler(this::handleStats);
         router.route("/api/*").handler(this::handleProxyRequest);
         router.route("/api/*").handler(BodyHandler.create());
 
@@ -44,6 +78,24 @@ public class SyncCalculatorClient extends AbstractVerticle {
 
     }
 
+    @Override
+    public void stop() throws Exception {
+        eventLoopLagMonitor.stop();
+        pinnedThreadMonitor.close();
+        workerPool.close();
+    }
+
+    private void handleStats(RoutingContext routingContext) {
+        routingContext.response()
+            .putHeader(CONTENT_TYPE, "application/json; charset=utf-8")
+            .end(new JsonObject()
+                .put("eventLoop", eventLoopLagMonitor.stats())
+                .put("workerPool", workerPool.stats())
+                .put("pinnedThreads", new JsonObject(pinnedThreadMonitor.stats()))
+                .put("connections", restHttpClientUtil.getReuseStats().toString())
+                .encodePrettily());
+    }
+
     private void handleProxyRequest(RoutingContext routingContext) {
 
 
@@ -51,21 +103,38 @@ public class SyncCalculatorClient extends AbstractVerticle {
         HttpServerResponse response = routingContext.response();
         HttpMethod httpMethod = routingContext.request().method();
 
-        LOGGER.info("Handling Request with method {} for path {} ", request.method(), request.path());
+        LOGGER.debug(RequestLogSampler.REQUEST, "Handling Request with method {} for path {} ", request.method(),
+            request.path());
 
         switch (httpMethod) {
             case GET:
             default: {
-                LOGGER.info("Sync Handling GET Request...");
-                try {
-                    String respBody = restHttpClientUtil.executeGetRequest(SERVICE_URL + request.path(),
-                        Collections.emptyMap());
-                    response
-                        .putHeader(CONTENT_TYPE, "application/json; charset=utf-8")
-                        .end(Json.encode(respBody));
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+                LOGGER.debug(RequestLogSampler.REQUEST, "Sync Handling GET Request...");
+                String url = serviceUrl + request.path();
+                Context context = vertx.getOrCreateContext();
+                Map<String, String> headers = request.getHeader(ACCEPT) != null
+                    ? Collections.singletonMap(ACCEPT.toString(), request.getHeader(ACCEPT)) : Collections.emptyMap();
+                workerPool.execute(context, () -> restHttpClientUtil.executeGetForResponse(url, headers),
+                    res -> {
+                        if (res.succeeded()) {
+                            // the body is passed through as the service encoded it, in the format it negotiated
+                            ServiceResponse serviceResponse = res.result();
+                            response.setStatusCode(serviceResponse.getStatusCode());
+                            String contentType = serviceResponse.getHeaders().get(CONTENT_TYPE);
+                            if (contentType != null) {
+                                response.putHeader(CONTENT_TYPE, contentType);
+                            }
+                            response.end(serviceResponse.getBody());
+                            return;
+                        }
+                        response.putHeader(CONTENT_TYPE, "application/json; charset=utf-8");
+                        if (res.cause() instanceof RejectedExecutionException) {
+                            response.setStatusCode(503).end(errorMessage(503, res.cause().getMessage()));
+                        } else {
+                            LOGGER.error("Error calling {}", url, res.cause());
+                            response.setStatusCode(502).end(errorMessage(502, res.cause().getMessage()));
+                        }
+                    });
                 break;
             }
             case DELETE: {
@@ -82,4 +151,11 @@ public class SyncCalculatorClient extends AbstractVerticle {
             }
         }
     }
+
+    private String errorMessage(int statusCode, String statusMessage) {
+        return new JsonObject()
+            .put("statusCode", statusCode)
+            .put("statusMessage", statusMessage)
+            .encodePrettily();
+    }
 }
@@ -0,0 +1,40 @@
+package org.workspace7.msa.calculator.client.discovery;
+
+import io.vertx.servicediscovery.kubernetes.KubernetesServiceImporter;
+import io.vertx.servicediscovery.spi.ServiceImporter;
+
+/**
+ * Resolves the {@link ServiceImporter} that fills the service discovery of
+ * {@link org.workspace7.msa.calculator.client.util.VertxRestClientUtil}
+ *
+ * @author kameshs
+ */
+public final class ServiceImporters {
+
+    private ServiceImporters() {
+    }
+
+    /**
+     * Resolves the importer configured by name
+     *
+     * @param name - one of "kubernetes", "static" or "none", or the class name of a {@link ServiceImporter} with a
+     *             public no argument constructor
+     * @return - a new importer instance, null for "none" when the application publishes the records itself
+     */
+    public static ServiceImporter fromName(String name) {
+        switch (name) {
+            case "kubernetes":
+                return new KubernetesServiceImporter();
+            case "static":
+                return new StaticServiceImporter();
+            case "none":
+                return null;
+            default:
+                try {
+                    return Class.forName(name).asSubclass(ServiceImporter.class).newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new IllegalArgumentException("Unknown service importer " + name, e);
+                }
+        }
+    }
+}
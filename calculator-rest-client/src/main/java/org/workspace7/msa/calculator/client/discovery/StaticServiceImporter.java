@@ -0,0 +1,114 @@
+package org.workspace7.msa.calculator.client.discovery;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.spi.ServiceImporter;
+import io.vertx.servicediscovery.spi.ServicePublisher;
+import io.vertx.servicediscovery.types.HttpEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes a fixed list of {@link HttpEndpoint} records, the stand in of the Kubernetes service importer when the
+ * services run outside of a cluster, e.g. a local calculator service or a {@link
+ * org.workspace7.msa.calculator.client.stub.StubCalculatorServer}. Every endpoint of a service gets a record of its
+ * own, so requests are load balanced across them as across the pods of a service. The services are configured with
+ * a "services" object, of the endpoints of each service by name,
+ * <pre>
+ * { "services": { "simple-calculator-spring": ["localhost:8081", "http://localhost:8082/"] } }
+ * </pre>
+ * An endpoint is a <code>host:port</code> or an http or https url, the path of the url is the root of the endpoint.
+ *
+ * @author kameshs
+ */
+public class StaticServiceImporter implements ServiceImporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StaticServiceImporter.class);
+
+    private final List<Record> published = new ArrayList<>();
+
+    private ServicePublisher publisher;
+
+    @Override
+    public void start(Vertx vertx, ServicePublisher publisher, JsonObject configuration, Future<Void> future) {
+        this.publisher = publisher;
+        List<Record> records;
+        try {
+            records = records(configuration.getJsonObject("services", new JsonObject()));
+        } catch (IllegalArgumentException | ClassCastException e) {
+            future.fail(e);
+            return;
+        }
+        if (records.isEmpty()) {
+            LOGGER.warn("No static services configured");
+        }
+        List<Future> publications = records.stream().map(record -> {
+            Future<Record> publication = Future.future();
+            publisher.publish(record, publication.completer());
+            return publication;
+        }).collect(Collectors.toList());
+        CompositeFuture.all(publications).setHandler(result -> {
+            publications.stream()
+                .filter(Future::succeeded)
+                .forEach(publication -> published.add((Record) publication.result()));
+            if (result.succeeded()) {
+                LOGGER.info("Published {} static service endpoints", published.size());
+                future.complete();
+            } else {
+                future.fail(result.cause());
+            }
+        });
+    }
+
+    @Override
+    public void close(Handler<Void> closeHandler) {
+        List<Future> removals = published.stream().map(record -> {
+            Future<Void> removal = Future.future();
+            publisher.unpublish(record.getRegistration(), removal.completer());
+            return removal;
+        }).collect(Collectors.toList());
+        published.clear();
+        CompositeFuture.join(removals).setHandler(result -> closeHandler.handle(null));
+    }
+
+    /**
+     * @param services - the endpoints of each service, a string or an array of strings
+     * @return - one record per endpoint
+     */
+    static List<Record> records(JsonObject services) {
+        List<Record> records = new ArrayList<>();
+        for (String name : services.fieldNames()) {
+            Object endpoints = services.getValue(name);
+            if (endpoints instanceof String) {
+                records.add(record(name, (String) endpoints));
+            } else {
+                for (Object endpoint : (JsonArray) endpoints) {
+                    records.add(record(name, (String) endpoint));
+                }
+            }
+        }
+        return records;
+    }
+
+    private static Record record(String name, String endpoint) {
+        URI uri = URI.create(endpoint.contains("://") ? endpoint : "http://" + endpoint);
+        if (uri.getHost() == null) {
+            throw new IllegalArgumentException("Invalid endpoint " + endpoint + " of service " + name);
+        }
+        boolean ssl = "https".equals(uri.getScheme());
+        int port = uri.getPort() != -1 ? uri.getPort() : ssl ? 443 : 80;
+        String root = uri.getPath() == null || uri.getPath().isEmpty() ? "/" : uri.getPath();
+        return HttpEndpoint.createRecord(name, ssl, uri.getHost(), port, root,
+            new JsonObject().put("importer", "static"));
+    }
+}
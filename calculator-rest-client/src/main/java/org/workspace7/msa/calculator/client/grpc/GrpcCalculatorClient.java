@@ -0,0 +1,297 @@
+package org.workspace7.msa.calculator.client.grpc;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+import org.workspace7.msa.calculator.grpc.BatchOperation;
+import org.workspace7.msa.calculator.grpc.BatchResult;
+import org.workspace7.msa.calculator.grpc.BinaryOperation;
+import org.workspace7.msa.calculator.grpc.CalculatorGrpc;
+import org.workspace7.msa.calculator.grpc.DivRequest;
+import org.workspace7.msa.calculator.grpc.DivResult;
+import org.workspace7.msa.calculator.grpc.IntResult;
+import org.workspace7.msa.calculator.grpc.MulRequest;
+import org.workspace7.msa.calculator.grpc.Precision;
+import org.workspace7.msa.calculator.grpc.ProductResult;
+import org.workspace7.msa.calculator.grpc.WhoAmIRequest;
+import org.workspace7.msa.calculator.grpc.WhoAmIResponse;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The typed client of the gRPC calculator API of simple-calculator-spring, see <code>calculator.proto</code>, which
+ * is compiled from the simple-calculator-springboot sources so that both ends share one contract. The
+ * results are the protobuf messages, so nothing is parsed back from text. The mul and div numbers, and the batch
+ * operations, are streamed in chunks as fast as the server reads them, so an array need not be held in memory.
+ * Every call completes a {@link CompletableFuture}, failed with the {@link io.grpc.StatusRuntimeException} of the
+ * server, e.g. OUT_OF_RANGE when a product overflows a long with the long precision.
+ *
+ * @author kameshs
+ */
+public class GrpcCalculatorClient implements AutoCloseable {
+
+    /**
+     * calculator.grpc.port of the service
+     */
+    public static final int DEFAULT_PORT = 9090;
+
+    /**
+     * the numbers sent per message
+     */
+    static final int CHUNK_SIZE = 1024;
+
+    private final ManagedChannel channel;
+    private final CalculatorGrpc.CalculatorStub stub;
+    private final long deadlineMillis;
+
+    /**
+     * @param host - the host of the service, e.g. simple-calculator-spring
+     * @param port - the gRPC port of the service
+     */
+    public GrpcCalculatorClient(String host, int port) {
+        this(ManagedChannelBuilder.forAddress(host, port).usePlaintext().build(), 30000L);
+    }
+
+    /**
+     * @param channel        - the channel to the service, closed with the client
+     * @param deadlineMillis - the time a call may take
+     */
+    public GrpcCalculatorClient(ManagedChannel channel, long deadlineMillis) {
+        this.channel = channel;
+        this.stub = CalculatorGrpc.newStub(channel);
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    public CompletableFuture<String> whoAmI() {
+        CompletableFuture<WhoAmIResponse> response = new CompletableFuture<>();
+        stub().whoAmI(WhoAmIRequest.getDefaultInstance(), completing(response));
+        return response.thenApply(WhoAmIResponse::getHost);
+    }
+
+    public CompletableFuture<IntResult> add(int num1, int num2) {
+        CompletableFuture<IntResult> result = new CompletableFuture<>();
+        stub().add(BinaryOperation.newBuilder().setNum1(num1).setNum2(num2).build(), completing(result));
+        return result;
+    }
+
+    public CompletableFuture<IntResult> sub(int num1, int num2) {
+        CompletableFuture<IntResult> result = new CompletableFuture<>();
+        stub().sub(BinaryOperation.newBuilder().setNum1(num1).setNum2(num2).build(), completing(result));
+        return result;
+    }
+
+    /**
+     * @param precision - how the service multiplies, {@link Precision#DEFAULT} for its default
+     * @param numbers   - the numbers to multiply, streamed as they are iterated
+     * @return - the product, see {@link #product(ProductResult)}
+     */
+    public CompletableFuture<ProductResult> mul(Precision precision, PrimitiveIterator.OfLong numbers) {
+        CompletableFuture<ProductResult> result = new CompletableFuture<>();
+        // at least one message, that carries the precision
+        Iterator<MulRequest> chunks = new Chunks<MulRequest>(numbers) {
+            @Override
+            MulRequest next(boolean first) {
+                MulRequest.Builder chunk = MulRequest.newBuilder();
+                if (first) {
+                    chunk.setPrecision(precision);
+                }
+                for (int i = 0; i < CHUNK_SIZE && numbers.hasNext(); i++) {
+                    chunk.addNumbers(numbers.nextLong());
+                }
+                return chunk.build();
+            }
+        };
+        stream(chunks, completing(result), stub()::mul);
+        return result;
+    }
+
+    /**
+     * @param numbers - the numbers to divide, streamed as they are iterated
+     * @return - the answer, 0 on a division by zero
+     */
+    public CompletableFuture<DivResult> div(PrimitiveIterator.OfDouble numbers) {
+        CompletableFuture<DivResult> result = new CompletableFuture<>();
+        Iterator<DivRequest> chunks = new Chunks<DivRequest>(numbers) {
+            @Override
+            DivRequest next(boolean first) {
+                DivRequest.Builder chunk = DivRequest.newBuilder();
+                for (int i = 0; i < CHUNK_SIZE && numbers.hasNext(); i++) {
+                    chunk.addNumbers(numbers.nextDouble());
+                }
+                return chunk.build();
+            }
+        };
+        stream(chunks, completing(result), stub()::div);
+        return result;
+    }
+
+    /**
+     * Streams the operations and collects their results
+     *
+     * @param operations - the operations, streamed as they are iterated
+     * @return - one result per operation, in the same order, the failed operations with their error
+     */
+    public CompletableFuture<List<BatchResult>> batch(Iterator<BatchOperation> operations) {
+        CompletableFuture<List<BatchResult>> results = new CompletableFuture<>();
+        List<BatchResult> collected = new ArrayList<>();
+        stream(operations, new StreamObserver<BatchResult>() {
+            @Override
+            public void onNext(BatchResult result) {
+                collected.add(result);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                results.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                results.complete(collected);
+            }
+        }, stub()::batch);
+        return results;
+    }
+
+    /**
+     * The batch stream as is, each result is handed to the observer as soon as the service evaluated its operation
+     *
+     * @param results - the observer of the results
+     * @return - the observer to send the operations to, completed after the last one
+     */
+    public StreamObserver<BatchOperation> batch(StreamObserver<BatchResult> results) {
+        return stub().batch(results);
+    }
+
+    /**
+     * @return - the product, whether the service sent it as a long or as a BigInteger
+     */
+    public static BigInteger product(ProductResult result) {
+        switch (result.getProductCase()) {
+            case BIG_PRODUCT:
+                return new BigInteger(result.getBigProduct().toByteArray());
+            case LONG_PRODUCT:
+                return BigInteger.valueOf(result.getLongProduct());
+            default:
+                return BigInteger.ONE;
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        channel.shutdown();
+        if (!channel.awaitTermination(5, TimeUnit.SECONDS)) {
+            channel.shutdownNow();
+        }
+    }
+
+    private CalculatorGrpc.CalculatorStub stub() {
+        return stub.withDeadlineAfter(deadlineMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends the requests whenever the call is ready for more, so a slow server holds back the iteration instead of
+     * the requests piling up in memory
+     */
+    private static <Q, R> void stream(Iterator<Q> requests, StreamObserver<R> responses,
+                                      Function<StreamObserver<R>, StreamObserver<Q>> call) {
+        call.apply(new ClientResponseObserver<Q, R>() {
+            private boolean completed;
+
+            @Override
+            public void beforeStart(ClientCallStreamObserver<Q> requestStream) {
+                requestStream.setOnReadyHandler(() -> {
+                    if (completed) {
+                        return;
+                    }
+                    try {
+                        while (requestStream.isReady() && requests.hasNext()) {
+                            requestStream.onNext(requests.next());
+                        }
+                        if (!requests.hasNext()) {
+                            completed = true;
+                            requestStream.onCompleted();
+                        }
+                    } catch (RuntimeException e) {
+                        completed = true;
+                        requestStream.onError(e);
+                    }
+                });
+            }
+
+            @Override
+            public void onNext(R response) {
+                responses.onNext(response);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                responses.onError(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                responses.onCompleted();
+            }
+        });
+    }
+
+    private static <T> StreamObserver<T> completing(CompletableFuture<T> future) {
+        return new StreamObserver<T>() {
+            @Override
+            public void onNext(T value) {
+                future.complete(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                future.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                future.completeExceptionally(new IllegalStateException("Call completed without a response"));
+            }
+        };
+    }
+
+    /**
+     * The messages of a stream of numbers, at least one
+     */
+    private abstract static class Chunks<T> implements Iterator<T> {
+
+        private final Iterator<?> numbers;
+        private boolean first = true;
+
+        Chunks(Iterator<?> numbers) {
+            this.numbers = numbers;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return first || numbers.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T chunk = next(first);
+            first = false;
+            return chunk;
+        }
+
+        abstract T next(boolean first);
+    }
+}
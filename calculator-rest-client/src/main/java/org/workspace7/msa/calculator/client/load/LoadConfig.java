@@ -0,0 +1,225 @@
+package org.workspace7.msa.calculator.client.load;
+
+/**
+ * Immutable settings of a {@link LoadGenerator} run. Instances are created via {@link #custom()} or read from system
+ * properties prefixed with <code>calculator.load.</code> via {@link #fromSystemProperties()}.
+ *
+ * @author kameshs
+ */
+public class LoadConfig {
+
+    static final String PROPERTY_PREFIX = "calculator.load.";
+
+    /**
+     * How requests are issued
+     */
+    public enum Mode {
+        /**
+         * requests are started at a constant rate whatever the response times, latencies are measured from the
+         * intended start so that queueing behind slow responses is not hidden
+         */
+        OPEN,
+        /**
+         * a fixed number of workers each send their next request as soon as the previous one completed
+         */
+        CLOSED
+    }
+
+    private final String baseUrl;
+    private final Mode mode;
+    private final int rate;
+    private final int concurrency;
+    private final long duration;
+    private final long warmup;
+    private final OperationMix mix;
+    private final int numbers;
+    private final int targetRate;
+    private final boolean virtualThreads;
+
+    private LoadConfig(Builder builder) {
+        this.baseUrl = builder.baseUrl;
+        this.mode = builder.mode;
+        this.rate = builder.rate;
+        this.concurrency = builder.concurrency;
+        this.duration = builder.duration;
+        this.warmup = builder.warmup;
+        this.mix = OperationMix.parse(builder.mix);
+        this.numbers = builder.numbers;
+        this.targetRate = builder.targetRate;
+        this.virtualThreads = builder.virtualThreads;
+    }
+
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    /**
+     * Builds the configuration from system properties, falling back to the defaults for anything that is not set
+     * e.g. <code>-Dcalculator.load.mode=open -Dcalculator.load.rate=500</code>
+     *
+     * @return - {@link LoadConfig}
+     */
+    public static LoadConfig fromSystemProperties() {
+        Builder defaults = custom();
+        return custom()
+            .setBaseUrl(System.getProperty(PROPERTY_PREFIX + "baseUrl", defaults.baseUrl))
+            .setMode(Mode.valueOf(System.getProperty(PROPERTY_PREFIX + "mode", defaults.mode.name()).toUpperCase()))
+            .setRate(Integer.getInteger(PROPERTY_PREFIX + "rate", defaults.rate))
+            .setConcurrency(Integer.getInteger(PROPERTY_PREFIX + "concurrency", defaults.concurrency))
+            .setDuration(Long.getLong(PROPERTY_PREFIX + "duration", defaults.duration))
+            .setWarmup(Long.getLong(PROPERTY_PREFIX + "warmup", defaults.warmup))
+            .setMix(System.getProperty(PROPERTY_PREFIX + "mix", defaults.mix))
+            .setNumbers(Integer.getInteger(PROPERTY_PREFIX + "numbers", defaults.numbers))
+            .setTargetRate(Integer.getInteger(PROPERTY_PREFIX + "targetRate", defaults.targetRate))
+            .setVirtualThreads(Boolean.parseBoolean(System.getProperty(PROPERTY_PREFIX + "virtualThreads",
+                String.valueOf(defaults.virtualThreads))))
+            .build();
+    }
+
+    /**
+     * @return - the url of the calculator service, without the /api path
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return - the requests started per second in {@link Mode#OPEN} mode
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    /**
+     * @return - the number of workers, and of connections, sending the requests
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @return - the measured time in seconds, after the warm up
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return - the time in seconds the load runs before it is measured
+     */
+    public long getWarmup() {
+        return warmup;
+    }
+
+    public OperationMix getMix() {
+        return mix;
+    }
+
+    /**
+     * @return - the size of the numbers array of mul and div, of the operations of batch
+     */
+    public int getNumbers() {
+        return numbers;
+    }
+
+    /**
+     * @return - the request rate the report sizes the pods for, 0 for none
+     */
+    public int getTargetRate() {
+        return targetRate;
+    }
+
+    /**
+     * @return - true when the workers are virtual threads, so that the concurrency is not bounded by platform
+     * threads
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @Override
+    public String toString() {
+        return "[baseUrl=" + baseUrl + ", mode=" + mode + ", rate=" + rate + ", concurrency=" + concurrency
+            + ", duration=" + duration + ", warmup=" + warmup + ", mix=" + mix + ", numbers=" + numbers
+            + ", targetRate=" + targetRate + ", virtualThreads=" + virtualThreads + "]";
+    }
+
+    public static class Builder {
+
+        private String baseUrl = "http://simple-calculator-spring";
+        private Mode mode = Mode.CLOSED;
+        private int rate = 100;
+        private int concurrency = 50;
+        private long duration = 60L;
+        private long warmup = 10L;
+        private String mix = "whoami=1,add=3,sub=3,mul=2,div=1";
+        private int numbers = 10;
+        private int targetRate = 0;
+        private boolean virtualThreads = false;
+
+        Builder() {
+        }
+
+        public Builder setBaseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        public Builder setMode(Mode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public Builder setRate(int rate) {
+            this.rate = rate;
+            return this;
+        }
+
+        public Builder setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        public Builder setDuration(long duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        public Builder setWarmup(long warmup) {
+            this.warmup = warmup;
+            return this;
+        }
+
+        public Builder setMix(String mix) {
+            this.mix = mix;
+            return this;
+        }
+
+        public Builder setNumbers(int numbers) {
+            this.numbers = numbers;
+            return this;
+        }
+
+        public Builder setTargetRate(int targetRate) {
+            this.targetRate = targetRate;
+            return this;
+        }
+
+        public Builder setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        public LoadConfig build() {
+            if (rate <= 0 || concurrency <= 0 || duration <= 0 || warmup < 0 || numbers < 0) {
+                throw new IllegalArgumentException("rate, concurrency and duration must be positive, "
+                    + "warmup and numbers not negative");
+            }
+            return new LoadConfig(this);
+        }
+    }
+}
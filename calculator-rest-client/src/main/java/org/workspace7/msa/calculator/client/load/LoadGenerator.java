@@ -0,0 +1,242 @@
+package org.workspace7.msa.calculator.client.load;
+
+import io.vertx.core.json.JsonObject;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workspace7.msa.calculator.client.util.HttpClientPool;
+import org.workspace7.msa.calculator.client.util.HttpClientPoolConfig;
+import org.workspace7.msa.calculator.commons.PinnedThreadMonitor;
+import org.workspace7.msa.calculator.commons.VirtualThreads;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Sends a mix of calculator requests, see {@link LoadConfig}, and records their latencies in HdrHistograms.
+ * <ul>
+ * <li>in {@link LoadConfig.Mode#OPEN} mode requests are scheduled at a constant rate and handed to a pool of
+ * workers, the latency of a request is measured from its scheduled start, so the time it waited for a worker or a
+ * connection because the service fell behind is included, and the coordinated omission of a closed loop avoided</li>
+ * <li>in {@link LoadConfig.Mode#CLOSED} mode each worker sends its next request as soon as the previous one
+ * completed, which measures the throughput the service sustains at that concurrency</li>
+ * </ul>
+ * Requests started during the warm up are sent but not recorded. The pod that served each response is read from the
+ * response body, so the {@link LoadReport} can break the throughput down per pod. With
+ * {@link LoadConfig#isVirtualThreads()} the workers are virtual threads and the pinned ones are logged by a
+ * {@link PinnedThreadMonitor}.
+ *
+ * @author kameshs
+ */
+public class LoadGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final Pattern HOST_PATTERN = Pattern.compile("Host\\s*:\\s*(\\S+)|\"host\"\\s*:\\s*\"([^\"]+)\"");
+
+    /**
+     * how long requests still queued or in flight at the end of the run are waited for
+     */
+    private static final long DRAIN_TIMEOUT_SECONDS = 30L;
+
+    private final LoadConfig config;
+    private final HttpClientPool httpClientPool;
+    private final HttpHost target;
+    private final CloseableHttpClient httpClient;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final ConcurrentMap<String, LongAdder> hosts = new ConcurrentHashMap<>();
+    private volatile long measureStart;
+
+    public LoadGenerator(LoadConfig config) {
+        this.config = config;
+        this.httpClientPool = new HttpClientPool(HttpClientPoolConfig.custom()
+            .setMaxTotal(config.getConcurrency())
+            .setMaxPerRoute(config.getConcurrency())
+            .build());
+        this.target = URIUtils.extractHost(URI.create(config.getBaseUrl()));
+        this.httpClient = httpClientPool.getClient(target);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    /**
+     * Runs the load for the warm up and the duration of the configuration, then closes the connections
+     *
+     * @return - the report of the measured part of the run
+     * @throws InterruptedException - when interrupted while waiting for the run to complete
+     */
+    public LoadReport run() throws InterruptedException {
+        long start = System.nanoTime();
+        measureStart = start + SECONDS.toNanos(config.getWarmup());
+        long end = measureStart + SECONDS.toNanos(config.getDuration());
+        LOGGER.info("Starting {} loop load on {}, measuring after {} s", config.getMode(), config.getBaseUrl(),
+            config.getWarmup());
+        PinnedThreadMonitor pinnedThreadMonitor = new PinnedThreadMonitor(20L);
+        if (config.isVirtualThreads()) {
+            pinnedThreadMonitor.start();
+        }
+        try {
+            if (config.getMode() == LoadConfig.Mode.OPEN) {
+                runOpenLoop(start, end);
+            } else {
+                runClosedLoop(end);
+            }
+        } finally {
+            httpClientPool.shutdown();
+            pinnedThreadMonitor.close();
+        }
+        if (config.isVirtualThreads()) {
+            LOGGER.info("Pinned virtual threads {}", new JsonObject(pinnedThreadMonitor.stats()).encode());
+        }
+
+        Map<Operation, LoadReport.OperationResult> results = new EnumMap<>(Operation.class);
+        stats.forEach((operation, operationStats) -> results.put(operation,
+            new LoadReport.OperationResult(operationStats.latencies(), operationStats.failures())));
+        Map<String, Long> pods = new TreeMap<>();
+        hosts.forEach((host, count) -> pods.put(host, count.sum()));
+        return new LoadReport(config, results, pods);
+    }
+
+    private void runOpenLoop(long start, long end) throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(config.getConcurrency(), config.getConcurrency(),
+            0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long i = 0; ; i++) {
+            // computed from the start on each step, so rounding does not drift the rate
+            long intendedStart = start + i * SECONDS.toNanos(1) / config.getRate();
+            if (intendedStart >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            executor.execute(new ScheduledRequest(config.getMix().next(random), intendedStart));
+        }
+        drain(executor);
+    }
+
+    private void runClosedLoop(long end) throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(config.getConcurrency(), config.getConcurrency(),
+            0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory());
+        for (int i = 0; i < config.getConcurrency(); i++) {
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+                    send(config.getMix().next(random), System.nanoTime());
+                }
+            });
+        }
+        executor.shutdown();
+        long remaining = end - System.nanoTime();
+        if (!executor.awaitTermination(NANOSECONDS.toSeconds(Math.max(0L, remaining)) + DRAIN_TIMEOUT_SECONDS,
+            SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for the scheduled requests to complete, the ones that could not even be sent in time are recorded as
+     * failures with the time they waited
+     */
+    private void drain(ExecutorService executor) throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(DRAIN_TIMEOUT_SECONDS, SECONDS)) {
+            List<Runnable> unsent = executor.shutdownNow();
+            LOGGER.warn("{} scheduled requests were not sent before the end of the run", unsent.size());
+            unsent.forEach(request -> ((ScheduledRequest) request).abandon());
+        }
+    }
+
+    /**
+     * Sends one request and records its outcome
+     *
+     * @param operation     - the operation to call
+     * @param intendedStart - the {@link System#nanoTime()} the request should have started at
+     */
+    private void send(Operation operation, long intendedStart) {
+        HttpUriRequest request = operation.createRequest(config.getBaseUrl(), config.getNumbers(),
+            ThreadLocalRandom.current());
+        boolean succeeded = false;
+        String host = null;
+        try (CloseableHttpResponse response = httpClient.execute(target, request)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            succeeded = statusCode >= 200 && statusCode < 300;
+            HttpEntity entity = response.getEntity();
+            if (entity != null) {
+                host = servedBy(EntityUtils.toString(entity));
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Request {} failed", request.getRequestLine(), e);
+        }
+        record(operation, intendedStart, succeeded, host);
+    }
+
+    private void record(Operation operation, long intendedStart, boolean succeeded, String host) {
+        if (intendedStart < measureStart) {
+            return;
+        }
+        stats.get(operation).record(NANOSECONDS.toMicros(System.nanoTime() - intendedStart), succeeded);
+        if (host != null) {
+            hosts.computeIfAbsent(host, key -> new LongAdder()).increment();
+        }
+    }
+
+    private static String servedBy(String body) {
+        Matcher matcher = HOST_PATTERN.matcher(body);
+        if (!matcher.find()) {
+            return null;
+        }
+        return matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+    }
+
+    private ThreadFactory threadFactory() {
+        return VirtualThreads.threadFactory("load-generator", config.isVirtualThreads());
+    }
+
+    private class ScheduledRequest implements Runnable {
+
+        private final Operation operation;
+        private final long intendedStart;
+
+        ScheduledRequest(Operation operation, long intendedStart) {
+            this.operation = operation;
+            this.intendedStart = intendedStart;
+        }
+
+        @Override
+        public void run() {
+            send(operation, intendedStart);
+        }
+
+        void abandon() {
+            record(operation, intendedStart, false, null);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.workspace7.msa.calculator.client.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+
+/**
+ * The summary of a {@link LoadGenerator} run: the latency distribution and failures per operation, the throughput
+ * and how it was spread over the pods. From the throughput per pod and the concurrency it took, the report estimates
+ * the pods needed for the target rate of the {@link LoadConfig}. That estimate is only as good as the run: the pods
+ * must have been saturated, i.e. a closed loop run at a concurrency past which the throughput stops growing, or an
+ * open loop run whose rate was not sustained.
+ *
+ * @author kameshs
+ */
+public class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LoadConfig config;
+    private final Map<Operation, OperationResult> results;
+    private final Map<String, Long> pods;
+    private final Histogram total;
+    private final long failures;
+
+    LoadReport(LoadConfig config, Map<Operation, OperationResult> results, Map<String, Long> pods) {
+        this.config = config;
+        this.results = results;
+        this.pods = pods;
+        this.total = new Histogram(3);
+        long failures = 0;
+        for (OperationResult result : results.values()) {
+            total.add(result.latencies);
+            failures += result.failures;
+        }
+        this.failures = failures;
+    }
+
+    /**
+     * @return - the latencies of all operations, in microseconds
+     */
+    public Histogram getLatencies() {
+        return total;
+    }
+
+    public long getRequests() {
+        return total.getTotalCount();
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return - the requests completed per second over the measured duration
+     */
+    public double getThroughput() {
+        return (double) total.getTotalCount() / config.getDuration();
+    }
+
+    /**
+     * @return - the pods that served the requests, with the number of requests each served
+     */
+    public Map<String, Long> getPods() {
+        return pods;
+    }
+
+    /**
+     * @return - the throughput divided by the number of pods that served it, or the throughput when the pods could
+     * not be told apart
+     */
+    public double getThroughputPerPod() {
+        return getThroughput() / Math.max(1, pods.size());
+    }
+
+    /**
+     * @return - the mean number of requests in flight over the run, by Little's law
+     */
+    public double getMeanConcurrency() {
+        return getThroughput() * total.getMean() / 1_000_000d;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%nLoad report: %s loop, %s, %d s measured after %d s warm up, mix %s%n",
+            config.getMode().name().toLowerCase(),
+            config.getMode() == LoadConfig.Mode.OPEN
+                ? config.getRate() + " req/s on " + config.getConcurrency() + " workers"
+                : config.getConcurrency() + " workers",
+            config.getDuration(), config.getWarmup(), config.getMix()));
+        report.append(String.format("%-8s %10s %8s %10s %10s %10s %10s %10s %10s%n", "op", "requests", "failed",
+            "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        results.forEach((operation, result) -> {
+            if (result.latencies.getTotalCount() > 0) {
+                appendRow(report, operation.name().toLowerCase(), result.latencies, result.failures);
+            }
+        });
+        appendRow(report, "total", total, failures);
+
+        report.append(String.format("Throughput: %.1f req/s, %.2f%% failed%n", getThroughput(),
+            total.getTotalCount() == 0 ? 0d : 100d * failures / total.getTotalCount()));
+        if (config.getMode() == LoadConfig.Mode.OPEN && getThroughput() < 0.95 * config.getRate()) {
+            report.append(String.format("The offered rate of %d req/s was not sustained, the service is saturated%n",
+                config.getRate()));
+        }
+        report.append(String.format("Mean requests in flight: %.1f%n", getMeanConcurrency()));
+        pods.forEach((pod, count) -> report.append(String.format("  pod %s served %d requests (%.1f%%)%n", pod,
+            count, 100d * count / Math.max(1L, total.getTotalCount()))));
+        report.append(String.format("Throughput per pod: %.1f req/s over %d pod(s)%n", getThroughputPerPod(),
+            Math.max(1, pods.size())));
+        if (config.getTargetRate() > 0 && getThroughputPerPod() > 0) {
+            report.append(String.format("Pods needed for %d req/s at this throughput per pod: %d%n",
+                config.getTargetRate(), (long) Math.ceil(config.getTargetRate() / getThroughputPerPod())));
+        }
+        return report.toString();
+    }
+
+    private static void appendRow(StringBuilder report, String name, Histogram latencies, long failures) {
+        report.append(String.format("%-8s %10d %8d %10.2f", name, latencies.getTotalCount(), failures,
+            latencies.getMean() / 1000d));
+        for (double percentile : PERCENTILES) {
+            report.append(String.format(" %10.2f", latencies.getValueAtPercentile(percentile) / 1000d));
+        }
+        report.append(String.format(" %10.2f%n", latencies.getMaxValue() / 1000d));
+    }
+
+    /**
+     * The latencies, in microseconds, and the failures of one operation
+     */
+    static class OperationResult {
+
+        private final Histogram latencies;
+        private final long failures;
+
+        OperationResult(Histogram latencies, long failures) {
+            this.latencies = latencies;
+            this.failures = failures;
+        }
+    }
+}
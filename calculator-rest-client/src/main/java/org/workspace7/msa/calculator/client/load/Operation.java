@@ -0,0 +1,98 @@
+package org.workspace7.msa.calculator.client.load;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+
+import java.util.Random;
+
+/**
+ * The calculator endpoints the {@link LoadGenerator} can call, each builds its request with random operands
+ *
+ * @author kameshs
+ */
+public enum Operation {
+
+    WHOAMI {
+        @Override
+        HttpUriRequest createRequest(String baseUrl, int numbers, Random random) {
+            return new HttpGet(baseUrl + "/api/whoami");
+        }
+    },
+    ADD {
+        @Override
+        HttpUriRequest createRequest(String baseUrl, int numbers, Random random) {
+            return new HttpGet(baseUrl + "/api/add/" + operand(random) + "/" + operand(random));
+        }
+    },
+    SUB {
+        @Override
+        HttpUriRequest createRequest(String baseUrl, int numbers, Random random) {
+            return new HttpGet(baseUrl + "/api/sub/" + operand(random) + "/" + operand(random));
+        }
+    },
+    MUL {
+        @Override
+        HttpUriRequest createRequest(String baseUrl, int numbers, Random random) {
+            return post(baseUrl + "/api/mul", numbersJson(numbers, random));
+        }
+    },
+    DIV {
+        @Override
+        HttpUriRequest createRequest(String baseUrl, int numbers, Random random) {
+            return post(baseUrl + "/api/div", numbersJson(numbers, random));
+        }
+    },
+    BATCH {
+        @Override
+        HttpUriRequest createRequest(String baseUrl, int numbers, Random random) {
+            StringBuilder json = new StringBuilder("[");
+            for (int i = 0; i < numbers; i++) {
+                json.append(i == 0 ? "" : ",")
+                    .append("{\"op\":\"").append(i % 2 == 0 ? "add" : "sub").append("\",\"operands\":[")
+                    .append(operand(random)).append(',').append(operand(random)).append("]}");
+            }
+            return post(baseUrl + "/api/batch", json.append(']').toString());
+        }
+    };
+
+    /**
+     * @param baseUrl - the url of the calculator service, without the /api path
+     * @param numbers - the number of numbers of mul and div, of operations of batch
+     * @param random  - the source of the operands
+     * @return - the request
+     */
+    abstract HttpUriRequest createRequest(String baseUrl, int numbers, Random random);
+
+    /**
+     * @param name - the name of the operation, case insensitive
+     * @return - the operation
+     * @throws IllegalArgumentException - when there is no such operation
+     */
+    public static Operation fromName(String name) {
+        return valueOf(name.trim().toUpperCase());
+    }
+
+    private static int operand(Random random) {
+        return random.nextInt(2001) - 1000;
+    }
+
+    /**
+     * Non zero single digit numbers, so the product and quotient stay meaningful
+     */
+    private static String numbersJson(int numbers, Random random) {
+        StringBuilder json = new StringBuilder("{\"numbers\":[");
+        for (int i = 0; i < numbers; i++) {
+            json.append(i == 0 ? "" : ",").append(1 + random.nextInt(9));
+        }
+        return json.append("]}").toString();
+    }
+
+    private static HttpPost post(String url, String json) {
+        HttpPost post = new HttpPost(url);
+        post.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+        return post;
+    }
+}
@@ -0,0 +1,79 @@
+package org.workspace7.msa.calculator.client.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A weighted choice of {@link Operation}s, parsed from a list such as <code>whoami=1,add=4,sub=4,mul=1</code>.
+ * Operations that are not listed are never chosen.
+ *
+ * @author kameshs
+ */
+public class OperationMix {
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+
+    private OperationMix(Map<Operation, Integer> weights) {
+        operations = weights.keySet().toArray(new Operation[weights.size()]);
+        cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        totalWeight = total;
+    }
+
+    /**
+     * @param mix - comma separated <code>operation=weight</code> pairs, a missing weight counts as 1
+     * @return - the mix
+     * @throws IllegalArgumentException - when an operation is unknown, a weight is negative or all weights are 0
+     */
+    public static OperationMix parse(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            String[] pair = entry.split("=", 2);
+            int weight = pair.length == 2 ? Integer.parseInt(pair[1].trim()) : 1;
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in operation mix " + mix);
+            }
+            if (weight > 0) {
+                weights.merge(Operation.fromName(pair[0]), weight, Integer::sum);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("No operation in operation mix " + mix);
+        }
+        return new OperationMix(weights);
+    }
+
+    /**
+     * @param random - the source of the choice
+     * @return - an operation, chosen with a probability proportional to its weight
+     */
+    public Operation next(Random random) {
+        int value = random.nextInt(totalWeight);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder mix = new StringBuilder();
+        for (int i = 0; i < operations.length; i++) {
+            mix.append(i == 0 ? "" : ",").append(operations[i].name().toLowerCase()).append('=')
+                .append(cumulativeWeights[i] - (i == 0 ? 0 : cumulativeWeights[i - 1]));
+        }
+        return mix.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package org.workspace7.msa.calculator.client.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The latencies, in microseconds, and the failures recorded for one {@link Operation}. Recording is thread safe and
+ * wait free.
+ *
+ * @author kameshs
+ */
+class OperationStats {
+
+    private final Recorder latencies = new Recorder(3);
+    private final LongAdder failures = new LongAdder();
+
+    void record(long latencyMicros, boolean succeeded) {
+        latencies.recordValue(Math.max(0L, latencyMicros));
+        if (!succeeded) {
+            failures.increment();
+        }
+    }
+
+    /**
+     * @return - the latencies recorded since the previous call
+     */
+    Histogram latencies() {
+        return latencies.getIntervalHistogram();
+    }
+
+    long failures() {
+        return failures.sum();
+    }
+}
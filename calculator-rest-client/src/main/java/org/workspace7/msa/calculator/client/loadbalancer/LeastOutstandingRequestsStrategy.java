@@ -0,0 +1,27 @@
+package org.workspace7.msa.calculator.client.loadbalancer;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks the endpoint with the fewest requests in flight, ties are broken starting from a random position so that idle
+ * endpoints share the load
+ *
+ * @author kameshs
+ */
+public class LeastOutstandingRequestsStrategy implements LoadBalancingStrategy {
+
+    @Override
+    public ServiceEndpoint select(List<ServiceEndpoint> endpoints) {
+        int size = endpoints.size();
+        int offset = ThreadLocalRandom.current().nextInt(size);
+        ServiceEndpoint selected = null;
+        for (int i = 0; i < size; i++) {
+            ServiceEndpoint endpoint = endpoints.get((offset + i) % size);
+            if (selected == null || endpoint.getOutstandingRequests() < selected.getOutstandingRequests()) {
+                selected = endpoint;
+            }
+        }
+        return selected;
+    }
+}
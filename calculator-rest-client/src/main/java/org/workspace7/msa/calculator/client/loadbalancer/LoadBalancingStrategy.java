@@ -0,0 +1,36 @@
+package org.workspace7.msa.calculator.client.loadbalancer;
+
+import java.util.List;
+
+/**
+ * Picks the {@link ServiceEndpoint} that will serve the next request of a service
+ *
+ * @author kameshs
+ */
+public interface LoadBalancingStrategy {
+
+    /**
+     * @param endpoints - the currently available endpoints of the service, never empty
+     * @return - the endpoint to use
+     */
+    ServiceEndpoint select(List<ServiceEndpoint> endpoints);
+
+    /**
+     * Resolves the strategy configured by name
+     *
+     * @param name - one of "round-robin", "least-outstanding" or "power-of-two"
+     * @return - a new strategy instance
+     */
+    static LoadBalancingStrategy fromName(String name) {
+        switch (name) {
+            case "round-robin":
+                return new RoundRobinStrategy();
+            case "least-outstanding":
+                return new LeastOutstandingRequestsStrategy();
+            case "power-of-two":
+                return new PowerOfTwoChoicesStrategy();
+            default:
+                throw new IllegalArgumentException("Unknown load balancing strategy " + name);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.workspace7.msa.calculator.client.loadbalancer;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples two random endpoints and picks the one with the lower expected cost, the moving average latency weighted
+ * by the requests already in flight. Endpoints without latency samples yet are costed by their outstanding requests
+ * only, so new pods are tried straight away.
+ *
+ * @author kameshs
+ */
+public class PowerOfTwoChoicesStrategy implements LoadBalancingStrategy {
+
+    @Override
+    public ServiceEndpoint select(List<ServiceEndpoint> endpoints) {
+        int size = endpoints.size();
+        if (size == 1) {
+            return endpoints.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceEndpoint a = endpoints.get(first);
+        ServiceEndpoint b = endpoints.get(second);
+        return cost(a) <= cost(b) ? a : b;
+    }
+
+    private static double cost(ServiceEndpoint endpoint) {
+        int load = endpoint.getOutstandingRequests() + 1;
+        double latency = endpoint.getLatencyEwma();
+        return latency == 0 ? load : latency * load;
+    }
+}
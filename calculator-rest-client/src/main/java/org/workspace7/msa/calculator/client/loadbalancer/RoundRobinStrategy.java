@@ -0,0 +1,19 @@
+package org.workspace7.msa.calculator.client.loadbalancer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cycles through the endpoints in order
+ *
+ * @author kameshs
+ */
+public class RoundRobinStrategy implements LoadBalancingStrategy {
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public ServiceEndpoint select(List<ServiceEndpoint> endpoints) {
+        return endpoints.get(Math.floorMod(next.getAndIncrement(), endpoints.size()));
+    }
+}
@@ -0,0 +1,83 @@
+package org.workspace7.msa.calculator.client.loadbalancer;
+
+import io.vertx.core.http.HttpClient;
+import io.vertx.servicediscovery.Record;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One discovered instance of a service, holding the {@link HttpClient} bound to the location of its {@link Record}
+ * together with the live load figures used by the {@link LoadBalancingStrategy}s: the number of outstanding requests
+ * and an exponentially weighted moving average of the response latency.
+ *
+ * @author kameshs
+ */
+public class ServiceEndpoint {
+
+    /**
+     * weight of the latest sample in the latency average
+     */
+    private static final double LATENCY_DECAY = 0.2;
+
+    private final Record record;
+    private final HttpClient httpClient;
+    private final AtomicInteger outstandingRequests = new AtomicInteger();
+    private volatile double latencyEwmaNanos;
+
+    public ServiceEndpoint(Record record, HttpClient httpClient) {
+        this.record = record;
+        this.httpClient = httpClient;
+    }
+
+    public Record getRecord() {
+        return record;
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Must be called when a request is sent to this endpoint, and matched by exactly one call to
+     * {@link #requestEnded(long)}
+     *
+     * @return - the start time of the request in nanoseconds
+     */
+    public long requestStarted() {
+        outstandingRequests.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * @param startNanos - the value returned by {@link #requestStarted()}
+     */
+    public void requestEnded(long startNanos) {
+        outstandingRequests.decrementAndGet();
+        double sample = System.nanoTime() - startNanos;
+        double current = latencyEwmaNanos;
+        latencyEwmaNanos = current == 0 ? sample : current + LATENCY_DECAY * (sample - current);
+    }
+
+    public int getOutstandingRequests() {
+        return outstandingRequests.get();
+    }
+
+    /**
+     * @return - the moving average of the latency in nanoseconds, 0 until the first request completed
+     */
+    public double getLatencyEwma() {
+        return latencyEwmaNanos;
+    }
+
+    public void close() {
+        httpClient.close();
+    }
+
+    @Override
+    public String toString() {
+        return record.getName() + "[" + record.getRegistration() + "] " + record.getLocation()
+            + " outstanding=" + outstandingRequests.get()
+            + " latencyMs=" + TimeUnit.NANOSECONDS.toMillis((long) latencyEwmaNanos);
+    }
+}
@@ -0,0 +1,131 @@
+package org.workspace7.msa.calculator.client.loadbalancer;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceDiscovery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * All the discovered {@link ServiceEndpoint}s of one service, requests are spread across them by the configured
+ * {@link LoadBalancingStrategy}. The group is kept in line with the service registry by {@link #refresh}, which
+ * opens clients for new records and closes the clients of records that went away.
+ * <p>
+ * The group holds one endpoint per record, so it only balances when the importer publishes a record per pod. The
+ * Kubernetes importer publishes one record per Service, the cluster IP, and the group then holds a single endpoint
+ * whatever the strategy, the pods behind it are picked by kube-proxy per connection. The static importer publishes
+ * one record per configured endpoint, see
+ * {@link org.workspace7.msa.calculator.client.discovery.StaticServiceImporter}.
+ *
+ * @author kameshs
+ */
+public class ServiceEndpointGroup {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceEndpointGroup.class);
+
+    private final String serviceName;
+    private final LoadBalancingStrategy strategy;
+    private final Function<Record, HttpClient> clientFactory;
+    private volatile List<ServiceEndpoint> endpoints = Collections.emptyList();
+
+    /**
+     * @param serviceName   - the name of the service
+     * @param strategy      - the strategy used to pick an endpoint for each request
+     * @param clientFactory - creates the {@link HttpClient} for the location of a record
+     */
+    public ServiceEndpointGroup(String serviceName, LoadBalancingStrategy strategy,
+                                Function<Record, HttpClient> clientFactory) {
+        this.serviceName = serviceName;
+        this.strategy = strategy;
+        this.clientFactory = clientFactory;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     * @return - the endpoint for the next request, or null if the service has no available endpoint
+     */
+    public ServiceEndpoint select() {
+        List<ServiceEndpoint> current = endpoints;
+        return current.isEmpty() ? null : strategy.select(current);
+    }
+
+    /**
+     * @param excluded - the endpoint not to pick, e.g. the one already serving the request
+     * @return - another endpoint for the request, or null if the service has no other available endpoint
+     */
+    public ServiceEndpoint selectOther(ServiceEndpoint excluded) {
+        List<ServiceEndpoint> others = endpoints.stream()
+            .filter(endpoint -> endpoint != excluded)
+            .collect(Collectors.toList());
+        return others.isEmpty() ? null : strategy.select(others);
+    }
+
+    public List<ServiceEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Looks up the records of the service that are currently UP and reconciles the endpoints with them
+     *
+     * @param serviceDiscovery - the service discovery to query
+     * @param refreshHandler   - notified once the endpoints are updated
+     */
+    public void refresh(ServiceDiscovery serviceDiscovery, Handler<AsyncResult<ServiceEndpointGroup>> refreshHandler) {
+        serviceDiscovery.getRecords(new JsonObject().put("name", serviceName), result -> {
+            if (result.succeeded()) {
+                update(result.result());
+                refreshHandler.handle(Future.succeededFuture(this));
+            } else {
+                LOGGER.error("Error looking up records of service {}", serviceName, result.cause());
+                refreshHandler.handle(Future.failedFuture(result.cause()));
+            }
+        });
+    }
+
+    /**
+     * Closes the clients of all the endpoints
+     */
+    public synchronized void close() {
+        endpoints.forEach(ServiceEndpoint::close);
+        endpoints = Collections.emptyList();
+    }
+
+    private synchronized void update(List<Record> records) {
+        Map<String, ServiceEndpoint> previous = new HashMap<>();
+        endpoints.forEach(endpoint -> previous.put(endpoint.getRecord().getRegistration(), endpoint));
+
+        List<ServiceEndpoint> updated = new ArrayList<>(records.size());
+        for (Record record : records) {
+            ServiceEndpoint endpoint = previous.remove(record.getRegistration());
+            if (endpoint != null && !endpoint.getRecord().getLocation().equals(record.getLocation())) {
+                endpoint.close();
+                endpoint = null;
+            }
+            if (endpoint == null) {
+                endpoint = new ServiceEndpoint(record, clientFactory.apply(record));
+                LOGGER.info("Added endpoint {}", endpoint);
+            }
+            updated.add(endpoint);
+        }
+        previous.values().forEach(endpoint -> {
+            LOGGER.info("Removed endpoint {}", endpoint);
+            endpoint.close();
+        });
+        endpoints = Collections.unmodifiableList(updated);
+    }
+}
@@ -0,0 +1,47 @@
+package org.workspace7.msa.calculator.client.resilience;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the number of concurrent calls to a service, calls beyond "maxConcurrentCalls", defaulting to 100, are
+ * rejected at once instead of queuing behind a degraded backend.
+ *
+ * @author kameshs
+ */
+public class Bulkhead {
+
+    private final int maxConcurrentCalls;
+    private final AtomicInteger concurrentCalls = new AtomicInteger();
+
+    public Bulkhead(JsonObject config) {
+        this.maxConcurrentCalls = config.getInteger("maxConcurrentCalls", 100);
+    }
+
+    /**
+     * @return - true when the call may proceed, it must then be matched by exactly one call to {@link #release()}
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = concurrentCalls.get();
+            if (current >= maxConcurrentCalls) {
+                return false;
+            }
+        } while (!concurrentCalls.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    public void release() {
+        concurrentCalls.decrementAndGet();
+    }
+
+    public int getConcurrentCalls() {
+        return concurrentCalls.get();
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+}
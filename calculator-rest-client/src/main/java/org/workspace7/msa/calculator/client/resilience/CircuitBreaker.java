@@ -0,0 +1,169 @@
+package org.workspace7.msa.calculator.client.resilience;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A circuit breaker over a sliding window of the last calls to a service. The circuit opens when, over at least
+ * "minimumCalls" calls, the share of failed calls or of slow calls reaches its threshold. While it is open calls are
+ * rejected, after "openDuration" it lets "halfOpenCalls" trial calls through and closes again only if they are under
+ * both thresholds, else it opens for another "openDuration".
+ * <p>
+ * The breaker is configured with a {@link JsonObject}
+ * <ul>
+ * <li>"windowSize" - number of calls the rates are computed over, defaults to 20</li>
+ * <li>"minimumCalls" - number of calls in the window before the rates are evaluated, defaults to 10</li>
+ * <li>"failureRateThreshold" - percentage of failed calls that opens the circuit, defaults to 50</li>
+ * <li>"slowCallRateThreshold" - percentage of slow calls that opens the circuit, defaults to 80</li>
+ * <li>"slowCallDuration" - time in milliseconds after which a call is slow, defaults to 2000</li>
+ * <li>"openDuration" - time in milliseconds the circuit stays open, defaults to 5000</li>
+ * <li>"halfOpenCalls" - number of trial calls in the half open state, defaults to 3</li>
+ * </ul>
+ * Each permitted call is identified by the stamp returned from {@link #tryAcquire()}, so that calls that outlive a
+ * state change do not count in the new state.
+ *
+ * @author kameshs
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * returned by {@link #tryAcquire()} when the call is rejected
+     */
+    public static final long REJECTED = -1L;
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    private final byte[] window;
+    private int windowIndex;
+    private int recorded;
+    private int failed;
+    private int slow;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAt;
+    private int halfOpenPermits;
+
+    public CircuitBreaker(JsonObject config) {
+        this.window = new byte[config.getInteger("windowSize", 20)];
+        this.minimumCalls = Math.min(config.getInteger("minimumCalls", 10), window.length);
+        this.failureRateThreshold = config.getInteger("failureRateThreshold", 50);
+        this.slowCallRateThreshold = config.getInteger("slowCallRateThreshold", 80);
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong("slowCallDuration", 2000L));
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong("openDuration", 5000L));
+        this.halfOpenCalls = Math.min(config.getInteger("halfOpenCalls", 3), window.length);
+    }
+
+    /**
+     * @return - the stamp of the permitted call, to be passed to {@link #onResult(long, long, boolean)}, or
+     * {@link #REJECTED}
+     */
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return REJECTED;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return REJECTED;
+            }
+            halfOpenPermits--;
+        }
+        return generation;
+    }
+
+    /**
+     * Records the outcome of a permitted call
+     *
+     * @param stamp         - the value returned by {@link #tryAcquire()} for the call
+     * @param durationNanos - how long the call took
+     * @param failure       - true when the call failed
+     */
+    public synchronized void onResult(long stamp, long durationNanos, boolean failure) {
+        if (stamp != generation || state == State.OPEN) {
+            return;
+        }
+        byte outcome = (byte) ((failure ? FAILED : 0) | (durationNanos >= slowCallNanos ? SLOW : 0));
+        record(outcome);
+        if (state == State.HALF_OPEN) {
+            if (recorded == halfOpenCalls) {
+                transitionTo(overThreshold() ? State.OPEN : State.CLOSED);
+            }
+        } else if (recorded >= minimumCalls && overThreshold()) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * Gives back the permit of a call that was abandoned before it got an outcome, e.g. the losing request of a hedge
+     *
+     * @param stamp - the value returned by {@link #tryAcquire()} for the call
+     */
+    public synchronized void onCancel(long stamp) {
+        if (stamp == generation && state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return - the state and the failure and slow call rates, in percent, of the current window
+     */
+    public synchronized JsonObject stats() {
+        return new JsonObject()
+            .put("state", state.name())
+            .put("calls", recorded)
+            .put("failureRate", recorded == 0 ? 0 : failed * 100 / recorded)
+            .put("slowCallRate", recorded == 0 ? 0 : slow * 100 / recorded);
+    }
+
+    private void record(byte outcome) {
+        if (recorded == window.length) {
+            byte evicted = window[windowIndex];
+            failed -= evicted & FAILED;
+            slow -= (evicted & SLOW) >> 1;
+        } else {
+            recorded++;
+        }
+        window[windowIndex] = outcome;
+        windowIndex = (windowIndex + 1) % window.length;
+        failed += outcome & FAILED;
+        slow += (outcome & SLOW) >> 1;
+    }
+
+    private boolean overThreshold() {
+        return failed * 100 >= failureRateThreshold * recorded || slow * 100 >= slowCallRateThreshold * recorded;
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        generation++;
+        windowIndex = 0;
+        recorded = 0;
+        failed = 0;
+        slow = 0;
+        if (newState == State.OPEN) {
+            openedAt = System.nanoTime();
+        } else if (newState == State.HALF_OPEN) {
+            halfOpenPermits = halfOpenCalls;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.workspace7.msa.calculator.client.resilience;
+
+import io.vertx.core.json.JsonObject;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides when an idempotent request that has not been answered yet is hedged, i.e. sent a second time to another
+ * endpoint of the service. The hedge delay of a service is the configured percentile of its latencies over the last
+ * second, so only the slowest requests are hedged. The policy is configured with a {@link JsonObject}
+ * <ul>
+ * <li>"enabled" - true to hedge, defaults to false</li>
+ * <li>"percentile" - the latency percentile after which a request is hedged, defaults to 95</li>
+ * <li>"minDelay" - lower bound of the hedge delay in milliseconds, defaults to 5</li>
+ * <li>"maxDelay" - upper bound of the hedge delay in milliseconds, also used until enough latencies are recorded,
+ * defaults to 1000</li>
+ * </ul>
+ *
+ * @author kameshs
+ */
+public class HedgingPolicy {
+
+    /**
+     * the number of latencies in an interval below which its percentile is not trusted
+     */
+    private static final long MIN_SAMPLES = 20;
+
+    private static final long INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final ConcurrentMap<String, LatencyTracker> trackers = new ConcurrentHashMap<>();
+
+    public HedgingPolicy(JsonObject config) {
+        this.enabled = config.getBoolean("enabled", false);
+        this.percentile = config.getDouble("percentile", 95d);
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong("minDelay", 5L));
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong("maxDelay", 1000L));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param serviceName  - the service that answered
+     * @param latencyNanos - the time the service took to answer
+     */
+    public void record(String serviceName, long latencyNanos) {
+        tracker(serviceName).recorder.recordValue(Math.max(0L, latencyNanos));
+    }
+
+    /**
+     * @param serviceName - the service the request is sent to
+     * @return - the time in milliseconds after which an unanswered request to the service is hedged
+     */
+    public long hedgeDelay(String serviceName) {
+        long delayNanos = tracker(serviceName).delayNanos();
+        return Math.max(1L, TimeUnit.NANOSECONDS.toMillis(Math.min(maxDelayNanos, Math.max(minDelayNanos,
+            delayNanos))));
+    }
+
+    private LatencyTracker tracker(String serviceName) {
+        return trackers.computeIfAbsent(serviceName, name -> new LatencyTracker());
+    }
+
+    /**
+     * The recent latencies of one service, the percentile is recomputed at most once per interval by the first
+     * caller after the interval ends
+     */
+    private class LatencyTracker {
+
+        private final Recorder recorder = new Recorder(3);
+        private final AtomicLong nextRotation = new AtomicLong(System.nanoTime() + INTERVAL_NANOS);
+        private volatile long delayNanos = maxDelayNanos;
+        private Histogram interval;
+
+        long delayNanos() {
+            long now = System.nanoTime();
+            long next = nextRotation.get();
+            if (now - next >= 0 && nextRotation.compareAndSet(next, now + INTERVAL_NANOS)) {
+                rotate();
+            }
+            return delayNanos;
+        }
+
+        private synchronized void rotate() {
+            interval = recorder.getIntervalHistogram(interval);
+            if (interval.getTotalCount() >= MIN_SAMPLES) {
+                delayNanos = interval.getValueAtPercentile(percentile);
+            }
+        }
+    }
+}
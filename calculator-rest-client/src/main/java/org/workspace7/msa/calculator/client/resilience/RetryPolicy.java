@@ -0,0 +1,106 @@
+package org.workspace7.msa.calculator.client.resilience;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the retries, and hedges, of idempotent requests. A failed request is retried up to "maxRetries" times after a
+ * fully jittered exponential backoff, so that the retries of concurrent requests do not hit the service in waves. All
+ * retries draw from one budget: each request adds "budgetRatio" of a retry to it, and on top of that
+ * "minRetriesPerSecond" retries are always allowed, so a failing service sees at most that many extra requests
+ * instead of a multiple of the load. The policy is configured with a {@link JsonObject}
+ * <ul>
+ * <li>"maxRetries" - retries per request, defaults to 0 i.e. no retry</li>
+ * <li>"backoff" - base of the backoff in milliseconds, defaults to 25</li>
+ * <li>"maxBackoff" - upper bound of the backoff in milliseconds, defaults to 500</li>
+ * <li>"budgetRatio" - retries earned per request, defaults to 0.1</li>
+ * <li>"minRetriesPerSecond" - retries allowed per second whatever the budget, defaults to 10</li>
+ * </ul>
+ *
+ * @author kameshs
+ */
+public class RetryPolicy {
+
+    /**
+     * fixed point scale of the budget, one retry
+     */
+    private static final long RETRY = 1000L;
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final int maxRetries;
+    private final long backoff;
+    private final long maxBackoff;
+    private final long deposit;
+    private final long maxBalance;
+    private final int minRetriesPerSecond;
+
+    private final AtomicLong balance = new AtomicLong();
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger retriesInWindow = new AtomicInteger();
+
+    public RetryPolicy(JsonObject config) {
+        this.maxRetries = config.getInteger("maxRetries", 0);
+        this.backoff = config.getLong("backoff", 25L);
+        this.maxBackoff = config.getLong("maxBackoff", 500L);
+        this.deposit = (long) (config.getDouble("budgetRatio", 0.1d) * RETRY);
+        this.maxBalance = 100 * RETRY;
+        this.minRetriesPerSecond = config.getInteger("minRetriesPerSecond", 10);
+    }
+
+    public boolean isEnabled() {
+        return maxRetries > 0;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Must be called once for each new request, it earns the budget its share of a retry
+     */
+    public void onRequest() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= maxBalance) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(maxBalance, current + deposit)));
+    }
+
+    /**
+     * @return - true when the budget allows one more retry, or hedge, which is then taken from it
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= SECOND && windowStart.compareAndSet(start, now)) {
+            retriesInWindow.set(0);
+        }
+        if (retriesInWindow.incrementAndGet() <= minRetriesPerSecond) {
+            return true;
+        }
+        long current;
+        do {
+            current = balance.get();
+            if (current < RETRY) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - RETRY));
+        return true;
+    }
+
+    /**
+     * @param retry - the number of the retry, starting at 1
+     * @return - the time in milliseconds to wait before the retry, random between 0 and the exponential backoff
+     */
+    public long backoff(int retry) {
+        long ceiling = Math.min(maxBackoff, backoff << Math.min(retry - 1, 20));
+        return 1L + ThreadLocalRandom.current().nextLong(Math.max(1L, ceiling));
+    }
+}
@@ -0,0 +1,157 @@
+package org.workspace7.msa.calculator.client.resilience;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The {@link CircuitBreaker} and the {@link Bulkhead} of one service. Every call to the service enters the guard
+ * first, and reports its outcome to the returned {@link Call}. A call fails when it gets no response or a 5xx
+ * response, other status codes are answers of a healthy backend.
+ *
+ * @author kameshs
+ */
+public class ServiceGuard {
+
+    /**
+     * the responseMessage status code of a call rejected by an open circuit
+     */
+    public static final int CIRCUIT_OPEN = 1001;
+
+    /**
+     * the responseMessage status code of a call rejected by a full bulkhead
+     */
+    public static final int BULKHEAD_FULL = 1002;
+
+    private final String serviceName;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Call circuitOpen;
+    private final Call bulkheadFull;
+
+    /**
+     * @param serviceName          - the guarded service
+     * @param circuitBreakerConfig - the {@link CircuitBreaker} configuration
+     * @param bulkheadConfig       - the {@link Bulkhead} configuration
+     */
+    public ServiceGuard(String serviceName, JsonObject circuitBreakerConfig, JsonObject bulkheadConfig) {
+        this.serviceName = serviceName;
+        this.circuitBreaker = new CircuitBreaker(circuitBreakerConfig);
+        this.bulkhead = new Bulkhead(bulkheadConfig);
+        this.circuitOpen = new Call(CIRCUIT_OPEN, "Circuit of " + serviceName + " is open, please try after sometime");
+        this.bulkheadFull = new Call(BULKHEAD_FULL, "Too many concurrent calls to " + serviceName);
+    }
+
+    /**
+     * @return - the call to report the outcome to, when it is not {@link Call#isPermitted()} it must not be sent
+     */
+    public Call enter() {
+        if (!bulkhead.tryAcquire()) {
+            return bulkheadFull;
+        }
+        long stamp = circuitBreaker.tryAcquire();
+        if (stamp == CircuitBreaker.REJECTED) {
+            bulkhead.release();
+            return circuitOpen;
+        }
+        return new Call(stamp);
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * @return - the circuit breaker stats and the concurrent calls
+     */
+    public JsonObject stats() {
+        return circuitBreaker.stats()
+            .put("concurrentCalls", bulkhead.getConcurrentCalls())
+            .put("maxConcurrentCalls", bulkhead.getMaxConcurrentCalls());
+    }
+
+    @Override
+    public String toString() {
+        return serviceName + " " + stats().encode();
+    }
+
+    /**
+     * One call through the guard, the outcome is recorded once whatever the number of calls to {@link #end(int)},
+     * {@link #failed()} and {@link #cancel()}
+     */
+    public class Call {
+
+        private final boolean permitted;
+        private final int rejectionCode;
+        private final String rejectionMessage;
+        private final long stamp;
+        private final long start;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        Call(long stamp) {
+            this.permitted = true;
+            this.rejectionCode = 0;
+            this.rejectionMessage = null;
+            this.stamp = stamp;
+            this.start = System.nanoTime();
+        }
+
+        Call(int rejectionCode, String rejectionMessage) {
+            this.permitted = false;
+            this.rejectionCode = rejectionCode;
+            this.rejectionMessage = rejectionMessage;
+            this.stamp = CircuitBreaker.REJECTED;
+            this.start = 0;
+        }
+
+        public boolean isPermitted() {
+            return permitted;
+        }
+
+        /**
+         * @return - {@link #CIRCUIT_OPEN} or {@link #BULKHEAD_FULL} when the call is rejected
+         */
+        public int getRejectionCode() {
+            return rejectionCode;
+        }
+
+        public String getRejectionMessage() {
+            return rejectionMessage;
+        }
+
+        /**
+         * @param statusCode - the status of the response
+         */
+        public void end(int statusCode) {
+            complete(statusCode >= 500);
+        }
+
+        /**
+         * The call got no response
+         */
+        public void failed() {
+            complete(true);
+        }
+
+        /**
+         * The call was abandoned before it got an outcome, it is not recorded by the circuit breaker
+         */
+        public void cancel() {
+            if (permitted && completed.compareAndSet(false, true)) {
+                bulkhead.release();
+                circuitBreaker.onCancel(stamp);
+            }
+        }
+
+        private void complete(boolean failure) {
+            if (permitted && completed.compareAndSet(false, true)) {
+                bulkhead.release();
+                circuitBreaker.onResult(stamp, System.nanoTime() - start, failure);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.workspace7.msa.calculator.client.stub;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.Random;
+
+/**
+ * The simulated service time of a {@link StubCalculatorServer} pod, in milliseconds
+ *
+ * @author kameshs
+ */
+public interface LatencyDistribution {
+
+    LatencyDistribution NONE = random -> 0L;
+
+    /**
+     * @param random - the random source of the calling thread
+     * @return - the latency of the next response in milliseconds
+     */
+    long sample(Random random);
+
+    /**
+     * Resolves the distribution configured with a {@link JsonObject}
+     * <ul>
+     * <li>"distribution" - one of "none" (default), "fixed", "uniform", "exponential" or "lognormal"</li>
+     * <li>"value" - the latency of "fixed"</li>
+     * <li>"min" and "max" - the bounds of "uniform"</li>
+     * <li>"mean" - the mean of "exponential"</li>
+     * <li>"median" and "sigma" - the median and the shape of "lognormal", a long tail, with a sigma of 1 the 99th
+     * percentile is about ten times the median</li>
+     * <li>"max" - caps "exponential" and "lognormal", unbounded by default</li>
+     * </ul>
+     *
+     * @param config - the latency configuration
+     * @return - the distribution
+     */
+    static LatencyDistribution fromConfig(JsonObject config) {
+        String distribution = config.getString("distribution", "none");
+        switch (distribution) {
+            case "none":
+                return NONE;
+            case "fixed": {
+                long value = config.getLong("value", 0L);
+                return random -> value;
+            }
+            case "uniform": {
+                long min = config.getLong("min", 0L);
+                long max = config.getLong("max", min);
+                if (max < min) {
+                    throw new IllegalArgumentException("Uniform latency max " + max + " is less than min " + min);
+                }
+                return random -> min + (long) (random.nextDouble() * (max - min + 1));
+            }
+            case "exponential": {
+                double mean = config.getDouble("mean", 0d);
+                long max = config.getLong("max", Long.MAX_VALUE);
+                return random -> Math.min(max, Math.round(-mean * Math.log(1 - random.nextDouble())));
+            }
+            case "lognormal": {
+                double median = config.getDouble("median", 0d);
+                double sigma = config.getDouble("sigma", 1d);
+                long max = config.getLong("max", Long.MAX_VALUE);
+                return random -> Math.min(max, Math.round(median * Math.exp(sigma * random.nextGaussian())));
+            }
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution " + distribution);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package org.workspace7.msa.calculator.client.stub;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static io.vertx.core.http.HttpHeaders.ACCEPT;
+import static io.vertx.core.http.HttpHeaders.CONTENT_TYPE;
+
+/**
+ * An in-process stand in for simple-calculator-spring, so that the clients, the load balancing, the pools and the
+ * proxies can be load tested on a single machine without a cluster. It runs a number of pods, each an http server of
+ * its own with the host name <code>stub-{index}</code>, that answer <code>/api/whoami</code>,
+ * <code>/api/add/{num1}/{num2}</code>, <code>/api/sub/{num1}/{num2}</code>, <code>POST /api/mul</code> and
+ * <code>POST /api/div</code> as the service does, in text or, when the request accepts it, in JSON.
+ * <code>/health</code> answers at once, so the warm up is not slowed down. The verticle is configured with a
+ * {@link JsonObject}
+ * <ul>
+ * <li>"service" - the name the pods are published under, defaults to "simple-calculator-spring"</li>
+ * <li>"host" - the host the pods listen on, defaults to "localhost"</li>
+ * <li>"port" - the port of the first pod, the next pods listen on the next ports, defaults to 0 for random ports</li>
+ * <li>"pods" - the number of pods, defaults to 1</li>
+ * <li>"latency" - the service time of the responses, see {@link LatencyDistribution#fromConfig(JsonObject)}</li>
+ * <li>"errorRate" - the fraction of the responses that fail, from 0 (default) to 1</li>
+ * <li>"errorStatus" - the status code of the failed responses, defaults to 503</li>
+ * <li>"overrides" - the "latency", "errorRate" and "errorStatus" of single pods by index, e.g.
+ * <code>{"2": {"latency": {"distribution": "fixed", "value": 200}}}</code> for a slow pod</li>
+ * </ul>
+ * The latencies are simulated with timers, so any number of requests can wait at once without holding a thread.
+ * {@link #discoveryConfig()} is the "discovery" configuration of a {@link
+ * org.workspace7.msa.calculator.client.util.VertxRestClientUtil} that imports the pods. The stub runs embedded, see
+ * {@link #deploy(Vertx, JsonObject)}, or standalone with the Vert.x launcher,
+ * <pre>
+ * java -jar calculator-rest-client.jar run org.workspace7.msa.calculator.client.stub.StubCalculatorServer \
+ *   -conf stub.json
+ * </pre>
+ *
+ * @author kameshs
+ */
+public class StubCalculatorServer extends AbstractVerticle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StubCalculatorServer.class);
+
+    private static final String TEXT = "text/plain;charset=ISO-8859-1";
+    private static final String JSON = "application/json;charset=UTF-8";
+
+    private final List<Pod> pods = new ArrayList<>();
+
+    private String serviceName;
+
+    /**
+     * Deploys a stub on the vertx instance
+     *
+     * @param vertx  - the vertx instance to run the pods on
+     * @param config - the stub configuration, see the class documentation for the supported keys
+     * @return - the stub, once all of its pods listen
+     */
+    public static CompletionStage<StubCalculatorServer> deploy(Vertx vertx, JsonObject config) {
+        StubCalculatorServer server = new StubCalculatorServer();
+        CompletableFuture<StubCalculatorServer> deployed = new CompletableFuture<>();
+        vertx.deployVerticle(server, new DeploymentOptions().setConfig(config), result -> {
+            if (result.succeeded()) {
+                deployed.complete(server);
+            } else {
+                deployed.completeExceptionally(result.cause());
+            }
+        });
+        return deployed;
+    }
+
+    @Override
+    public void start(Future<Void> future) throws Exception {
+        serviceName = config().getString("service", "simple-calculator-spring");
+        String host = config().getString("host", "localhost");
+        int port = config().getInteger("port", 0);
+        JsonObject overrides = config().getJsonObject("overrides", new JsonObject());
+        List<Future> listening = new ArrayList<>();
+        for (int i = 0; i < config().getInteger("pods", 1); i++) {
+            JsonObject podConfig = config().copy()
+                .mergeIn(overrides.getJsonObject(String.valueOf(i), new JsonObject()));
+            Pod pod = new Pod("stub-" + i, podConfig);
+            pods.add(pod);
+            Future<HttpServer> started = Future.future();
+            pod.httpServer = vertx.createHttpServer()
+                .requestHandler(pod::handle)
+                .listen(port == 0 ? 0 : port + i, host, started.completer());
+            listening.add(started);
+        }
+        CompositeFuture.all(listening).setHandler(result -> {
+            if (result.succeeded()) {
+                LOGGER.info("Stub {} listening on {}", serviceName, getEndpoints());
+                future.complete();
+            } else {
+                future.fail(result.cause());
+            }
+        });
+    }
+
+    /**
+     * Undeploys the stub, its pods stop listening
+     */
+    public void close() {
+        vertx.undeploy(deploymentID());
+    }
+
+    /**
+     * @return - the <code>host:port</code> of every pod
+     */
+    public List<String> getEndpoints() {
+        return pods.stream()
+            .map(pod -> config().getString("host", "localhost") + ":" + pod.httpServer.actualPort())
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * @return - the port of the first pod
+     */
+    public int getPort() {
+        return pods.get(0).httpServer.actualPort();
+    }
+
+    /**
+     * @return - the url of the first pod, for the clients that call a single url
+     */
+    public String getBaseUrl() {
+        return "http://" + getEndpoints().get(0);
+    }
+
+    /**
+     * @return - the "discovery" configuration that imports every pod as an endpoint of the service
+     */
+    public JsonObject discoveryConfig() {
+        return new JsonObject()
+            .put("importer", "static")
+            .put("services", new JsonObject().put(serviceName, new JsonArray(getEndpoints())));
+    }
+
+    /**
+     * @return - the requests and the simulated failures per pod
+     */
+    public JsonObject stats() {
+        JsonObject stats = new JsonObject();
+        pods.forEach(pod -> stats.put(pod.hostname, new JsonObject()
+            .put("requests", pod.requests.sum())
+            .put("errors", pod.errors.sum())));
+        return stats;
+    }
+
+    /**
+     * One simulated pod of the service
+     */
+    private class Pod {
+
+        private final String hostname;
+        private final LatencyDistribution latency;
+        private final double errorRate;
+        private final int errorStatus;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private HttpServer httpServer;
+
+        Pod(String hostname, JsonObject config) {
+            this.hostname = hostname;
+            this.latency = LatencyDistribution.fromConfig(config.getJsonObject("latency", new JsonObject()));
+            this.errorRate = config.getDouble("errorRate", 0d);
+            this.errorStatus = config.getInteger("errorStatus", 503);
+        }
+
+        void handle(HttpServerRequest request) {
+            if ("/health".equals(request.path())) {
+                request.response().putHeader(CONTENT_TYPE, TEXT).end("UP");
+                return;
+            }
+            requests.increment();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long delay = latency.sample(random);
+            boolean failed = random.nextDouble() < errorRate;
+            request.bodyHandler(body -> {
+                if (delay > 0) {
+                    vertx.setTimer(delay, id -> respond(request, body, failed));
+                } else {
+                    respond(request, body, failed);
+                }
+            });
+        }
+
+        private void respond(HttpServerRequest request, Buffer body, boolean failed) {
+            if (failed) {
+                errors.increment();
+                request.response().setStatusCode(errorStatus).putHeader(CONTENT_TYPE, TEXT)
+                    .end("Simulated failure of " + hostname);
+                return;
+            }
+            String accept = request.getHeader(ACCEPT);
+            boolean json = accept != null && accept.contains("application/json");
+            String[] segments = request.path().split("/");
+            // "", "api", operation, num1, num2
+            String operation = segments.length > 2 && "api".equals(segments[1]) ? segments[2] : "";
+            try {
+                if (request.method() == HttpMethod.GET && segments.length == 3 && "whoami".equals(operation)) {
+                    send(request, json, "I am served from Host: " + hostname,
+                        new JsonObject().put("host", hostname).put("op", operation));
+                } else if (request.method() == HttpMethod.GET && segments.length == 5
+                    && ("add".equals(operation) || "sub".equals(operation))) {
+                    binaryOperation(request, json, operation, segments[3], segments[4]);
+                } else if (request.method() == HttpMethod.POST && segments.length == 3
+                    && ("mul".equals(operation) || "div".equals(operation))) {
+                    numbersOperation(request, json, operation, body);
+                } else {
+                    request.response().setStatusCode(404).end();
+                }
+            } catch (NumberFormatException | DecodeException | ClassCastException e) {
+                request.response().setStatusCode(400).putHeader(CONTENT_TYPE, TEXT).end(String.valueOf(e.getMessage()));
+            }
+        }
+
+        private void binaryOperation(HttpServerRequest request, boolean json, String operation, String num1,
+                                     String num2) {
+            int n1 = Integer.parseInt(num1);
+            int n2 = Integer.parseInt(num2);
+            boolean add = "add".equals(operation);
+            int result = add ? n1 + n2 : n1 - n2;
+            send(request, json, String.format("Service Host :%s \n %d %s %d = %d", hostname, n1, add ? "+" : "-", n2,
+                result), new JsonObject()
+                .put("host", hostname)
+                .put("op", operation)
+                .put("operands", new JsonArray().add(n1).add(n2))
+                .put("result", result));
+        }
+
+        private void numbersOperation(HttpServerRequest request, boolean json, String operation, Buffer body) {
+            JsonArray numbers = new JsonObject(body.toString()).getJsonArray("numbers", new JsonArray());
+            if ("mul".equals(operation)) {
+                long product = 1;
+                for (int i = 0; i < numbers.size(); i++) {
+                    product *= ((Number) numbers.getValue(i)).longValue();
+                }
+                send(request, json, String.format("Service Host :%s \n Product  = %d", hostname, product),
+                    new JsonObject().put("host", hostname).put("op", operation).put("precision", "wrap")
+                        .put("result", product));
+                return;
+            }
+            double answer = 0;
+            for (int i = 0; i < numbers.size(); i++) {
+                double number = ((Number) numbers.getValue(i)).doubleValue();
+                if (i > 0 && number == 0) {
+                    // a division by zero answers 0, as on the service
+                    answer = 0;
+                    break;
+                }
+                answer = i == 0 ? number : answer / number;
+            }
+            send(request, json, String.format("Service Host :%s \n Answer = %f", hostname, answer),
+                new JsonObject().put("host", hostname).put("op", operation).put("result", answer));
+        }
+
+        private void send(HttpServerRequest request, boolean json, String text, JsonObject result) {
+            request.response()
+                .putHeader(CONTENT_TYPE, json ? JSON : TEXT)
+                .putHeader("Vary", "Accept")
+                .end(json ? result.encode() : text);
+        }
+    }
+}
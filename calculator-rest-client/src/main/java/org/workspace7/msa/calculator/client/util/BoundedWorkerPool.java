@@ -0,0 +1,169 @@
+package org.workspace7.msa.calculator.client.util;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workspace7.msa.calculator.commons.VirtualThreads;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size worker pool with a bounded queue used to run blocking calls off the Vert.x event loop. The result of
+ * every task is delivered back on the Vert.x {@link Context} that submitted it.
+ * <p>
+ * The pool is configured with a {@link JsonObject}
+ * <ul>
+ * <li>"workers" - number of worker threads i.e. the maximum number of concurrent blocking calls, defaults to 20</li>
+ * <li>"queueDepth" - number of tasks that can wait for a worker, defaults to 100</li>
+ * <li>"rejection" - what to do when the queue is full, "abort" fails the new task and "discard-oldest" fails the
+ * longest waiting task to make room for the new one, defaults to "abort"</li>
+ * <li>"threads" - "platform" (default) or "virtual", the kind of threads the workers are, see
+ * {@link VirtualThreads}. Virtual workers are cheap, so "workers" can be raised to the number of concurrent blocking
+ * calls the backend should see</li>
+ * </ul>
+ *
+ * @author kameshs
+ */
+public class BoundedWorkerPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BoundedWorkerPool.class);
+
+    public enum RejectionPolicy {
+        ABORT, DISCARD_OLDEST;
+
+        static RejectionPolicy fromConfig(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    private final String name;
+    private final boolean virtual;
+    private final RejectionPolicy rejectionPolicy;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+
+    public BoundedWorkerPool(String name, JsonObject config) {
+        this(name, config.getInteger("workers", 20), config.getInteger("queueDepth", 100),
+            RejectionPolicy.fromConfig(config.getString("rejection", "abort")),
+            "virtual".equals(config.getString("threads", "platform")));
+    }
+
+    public BoundedWorkerPool(String name, int workers, int queueDepth, RejectionPolicy rejectionPolicy) {
+        this(name, workers, queueDepth, rejectionPolicy, false);
+    }
+
+    /**
+     * @param virtual - true to run the tasks on virtual threads, when the runtime has them
+     */
+    public BoundedWorkerPool(String name, int workers, int queueDepth, RejectionPolicy rejectionPolicy,
+                             boolean virtual) {
+        this.name = name;
+        this.virtual = virtual && VirtualThreads.isSupported();
+        this.rejectionPolicy = rejectionPolicy;
+        this.executor = new ThreadPoolExecutor(workers, workers, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueDepth), VirtualThreads.threadFactory(name, virtual),
+            this::rejectedExecution);
+        LOGGER.info("Created worker pool {} with {} {} workers, queue depth {} and rejection policy {}",
+            name, workers, this.virtual ? "virtual" : "platform", queueDepth, rejectionPolicy);
+    }
+
+    /**
+     * @return - true when the workers are virtual threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Runs the blocking task on a worker thread and hands its outcome to the resultHandler on the given context. If
+     * the task can't be queued the resultHandler receives a failed result with a {@link RejectedExecutionException}
+     *
+     * @param context       - the Vert.x context on which the resultHandler will be called
+     * @param blockingTask  - the blocking code to run
+     * @param resultHandler - the handler that will receive the result of the task
+     * @param <T>           - the type of the task result
+     */
+    public <T> void execute(Context context, Callable<T> blockingTask, Handler<AsyncResult<T>> resultHandler) {
+        executor.execute(new WorkerTask<>(context, blockingTask, resultHandler));
+    }
+
+    /**
+     * @return - JSON snapshot of the pool usage
+     */
+    public JsonObject stats() {
+        return new JsonObject()
+            .put("name", name)
+            .put("workers", executor.getMaximumPoolSize())
+            .put("threads", virtual ? "virtual" : "platform")
+            .put("active", executor.getActiveCount())
+            .put("queued", executor.getQueue().size())
+            .put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity())
+            .put("completed", executor.getCompletedTaskCount())
+            .put("rejected", rejected.sum())
+            .put("rejectionPolicy", rejectionPolicy.name());
+    }
+
+    public void close() {
+        executor.shutdown();
+    }
+
+    private void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+        if (rejectionPolicy == RejectionPolicy.DISCARD_OLDEST && !executor.isShutdown()) {
+            Runnable oldest = executor.getQueue().poll();
+            if (oldest != null) {
+                reject(oldest);
+            }
+            if (executor.getQueue().offer(task)) {
+                return;
+            }
+        }
+        reject(task);
+    }
+
+    private void reject(Runnable task) {
+        rejected.increment();
+        ((WorkerTask<?>) task).fail(new RejectedExecutionException("Worker pool " + name + " is saturated"));
+    }
+
+    private static class WorkerTask<T> implements Runnable {
+
+        private final Context context;
+        private final Callable<T> blockingTask;
+        private final Handler<AsyncResult<T>> resultHandler;
+
+        WorkerTask(Context context, Callable<T> blockingTask, Handler<AsyncResult<T>> resultHandler) {
+            this.context = context;
+            this.blockingTask = blockingTask;
+            this.resultHandler = resultHandler;
+        }
+
+        @Override
+        public void run() {
+            Future<T> result;
+            try {
+                result = Future.succeededFuture(blockingTask.call());
+            } catch (Exception e) {
+                result = Future.failedFuture(e);
+            }
+            complete(result);
+        }
+
+        void fail(Throwable cause) {
+            complete(Future.failedFuture(cause));
+        }
+
+        private void complete(AsyncResult<T> result) {
+            context.runOnContext(v -> resultHandler.handle(result));
+        }
+    }
+}
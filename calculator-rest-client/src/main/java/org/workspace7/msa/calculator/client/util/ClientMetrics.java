@@ -0,0 +1,263 @@
+package org.workspace7.msa.calculator.client.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer instrumentation of the requests sent to the services, each meter is tagged with the "service" and the
+ * http "method"
+ * <ul>
+ * <li><code>calculator.client.requests</code> - timer of the requests with a latency histogram, also tagged with
+ * the response "status", TIMEOUT, ERROR or CANCELLED</li>
+ * <li><code>calculator.client.in.flight</code> - gauge of the requests sent and not yet completed</li>
+ * <li><code>calculator.client.pool.wait</code> - timer of the wait for a connection, new or reused from the pool,
+ * until the head of the request is sent</li>
+ * <li><code>calculator.client.connections</code> - counter of the new connections opened for the requests</li>
+ * <li><code>calculator.client.timeouts</code> - counter of the requests that timed out</li>
+ * <li><code>calculator.client.non.ok</code> - counter of the responses other than 200, also tagged with the
+ * "status"</li>
+ * <li><code>calculator.client.hedges</code> and <code>calculator.client.retries</code> - counters of the extra
+ * requests sent by hedging and retries</li>
+ * </ul>
+ * A request is followed through a {@link RequestSample}. The meters are available through the {@link MeterRegistry}
+ * and summarized as JSON by {@link #snapshot()}.
+ *
+ * @author kameshs
+ */
+public class ClientMetrics {
+
+    static final String REQUESTS = "calculator.client.requests";
+    static final String IN_FLIGHT = "calculator.client.in.flight";
+    static final String POOL_WAIT = "calculator.client.pool.wait";
+    static final String CONNECTIONS = "calculator.client.connections";
+    static final String TIMEOUTS = "calculator.client.timeouts";
+    static final String NON_OK = "calculator.client.non.ok";
+    static final String HEDGES = "calculator.client.hedges";
+    static final String RETRIES = "calculator.client.retries";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public ClientMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Starts following a request, to be called just before it is sent
+     *
+     * @param serviceName - the service the request is sent to
+     * @param method      - the http method of the request
+     * @return - the sample to report the progress of the request to
+     */
+    public RequestSample start(String serviceName, HttpMethod method) {
+        return new RequestSample(serviceName, method.name());
+    }
+
+    /**
+     * Counts a hedge, a second request sent while the first one is still unanswered
+     *
+     * @param serviceName - the service the hedge is sent to
+     * @param method      - the http method of the request
+     */
+    public void hedged(String serviceName, HttpMethod method) {
+        registry.counter(HEDGES, "service", serviceName, "method", method.name()).increment();
+    }
+
+    /**
+     * Counts a retry of a failed request
+     *
+     * @param serviceName - the service the retry is sent to
+     * @param method      - the http method of the request
+     */
+    public void retried(String serviceName, HttpMethod method) {
+        registry.counter(RETRIES, "service", serviceName, "method", method.name()).increment();
+    }
+
+    /**
+     * @return - per service and method, the request counts and latencies in milliseconds, the requests in flight,
+     * the timeouts, non 200 responses, hedges, retries, the mean pool wait and the new connections
+     */
+    public JsonObject snapshot() {
+        JsonObject snapshot = new JsonObject();
+        for (Timer timer : registry.find(REQUESTS).timers()) {
+            JsonObject entry = entry(snapshot, timer.getId().getTag("service"), timer.getId().getTag("method"));
+            HistogramSnapshot histogram = timer.takeSnapshot();
+            JsonObject latency = new JsonObject()
+                .put("count", histogram.count())
+                .put("mean", histogram.mean(TimeUnit.MILLISECONDS))
+                .put("max", histogram.max(TimeUnit.MILLISECONDS));
+            for (ValueAtPercentile percentile : histogram.percentileValues()) {
+                latency.put("p" + (percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+            }
+            entry.getJsonObject("status").put(timer.getId().getTag("status"), latency);
+        }
+        for (Timer timer : registry.find(POOL_WAIT).timers()) {
+            entry(snapshot, timer.getId().getTag("service"), timer.getId().getTag("method"))
+                .put("poolWaitMean", timer.mean(TimeUnit.MILLISECONDS));
+        }
+        for (Counter counter : registry.find(CONNECTIONS).counters()) {
+            entry(snapshot, counter.getId().getTag("service"), counter.getId().getTag("method"))
+                .put("connections", (long) counter.count());
+        }
+        for (Counter counter : registry.find(TIMEOUTS).counters()) {
+            entry(snapshot, counter.getId().getTag("service"), counter.getId().getTag("method"))
+                .put("timeouts", (long) counter.count());
+        }
+        for (Counter counter : registry.find(NON_OK).counters()) {
+            JsonObject entry = entry(snapshot, counter.getId().getTag("service"), counter.getId().getTag("method"));
+            entry.put("nonOk", entry.getLong("nonOk", 0L) + (long) counter.count());
+        }
+        for (Counter counter : registry.find(HEDGES).counters()) {
+            entry(snapshot, counter.getId().getTag("service"), counter.getId().getTag("method"))
+                .put("hedges", (long) counter.count());
+        }
+        for (Counter counter : registry.find(RETRIES).counters()) {
+            entry(snapshot, counter.getId().getTag("service"), counter.getId().getTag("method"))
+                .put("retries", (long) counter.count());
+        }
+        inFlight.forEach((key, count) -> {
+            String[] serviceAndMethod = key.split(" ", 2);
+            entry(snapshot, serviceAndMethod[0], serviceAndMethod[1]).put("inFlight", count.get());
+        });
+        return snapshot;
+    }
+
+    private static JsonObject entry(JsonObject snapshot, String serviceName, String method) {
+        JsonObject service = snapshot.getJsonObject(serviceName);
+        if (service == null) {
+            service = new JsonObject();
+            snapshot.put(serviceName, service);
+        }
+        JsonObject entry = service.getJsonObject(method);
+        if (entry == null) {
+            entry = new JsonObject().put("status", new JsonObject());
+            service.put(method, entry);
+        }
+        return entry;
+    }
+
+    private AtomicInteger inFlight(String serviceName, String method) {
+        return inFlight.computeIfAbsent(serviceName + " " + method, key -> {
+            AtomicInteger count = new AtomicInteger();
+            Gauge.builder(IN_FLIGHT, count, AtomicInteger::get)
+                .tag("service", serviceName)
+                .tag("method", method)
+                .register(registry);
+            return count;
+        });
+    }
+
+    /**
+     * The progress of one request, the outcome is recorded once whatever the number of calls to
+     * {@link #end(int)}, {@link #failed(Throwable)} and {@link #cancelled()}
+     */
+    public class RequestSample {
+
+        private final String serviceName;
+        private final String method;
+        private final AtomicInteger inFlight;
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private final long start;
+        private volatile boolean connected;
+
+        RequestSample(String serviceName, String method) {
+            this.serviceName = serviceName;
+            this.method = method;
+            this.inFlight = inFlight(serviceName, method);
+            this.start = registry.config().clock().monotonicTime();
+            inFlight.incrementAndGet();
+        }
+
+        /**
+         * The request got a connection and its head was sent, to be called from
+         * {@link io.vertx.core.http.HttpClientRequest#sendHead(io.vertx.core.Handler)} which, unlike the connection
+         * handler, also runs when a keep alive or HTTP/2 connection is reused from the pool
+         */
+        public void connected() {
+            if (connected) {
+                return;
+            }
+            connected = true;
+            Timer.builder(POOL_WAIT)
+                .tag("service", serviceName)
+                .tag("method", method)
+                .register(registry)
+                .record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * A new connection was opened for the request, to be called from
+         * {@link io.vertx.core.http.HttpClientRequest#connectionHandler(io.vertx.core.Handler)}
+         */
+        public void newConnection() {
+            registry.counter(CONNECTIONS, "service", serviceName, "method", method).increment();
+        }
+
+        /**
+         * The response arrived
+         *
+         * @param statusCode - the status of the response
+         */
+        public void end(int statusCode) {
+            if (!complete(String.valueOf(statusCode))) {
+                return;
+            }
+            if (statusCode != 200) {
+                registry.counter(NON_OK, "service", serviceName, "method", method,
+                    "status", String.valueOf(statusCode)).increment();
+            }
+        }
+
+        /**
+         * The request failed before a response arrived
+         *
+         * @param cause - the failure, a {@link TimeoutException} when the request timed out
+         */
+        public void failed(Throwable cause) {
+            boolean timeout = cause instanceof TimeoutException;
+            if (complete(timeout ? "TIMEOUT" : "ERROR") && timeout) {
+                registry.counter(TIMEOUTS, "service", serviceName, "method", method).increment();
+            }
+        }
+
+        /**
+         * The request was abandoned before its response arrived, e.g. the losing request of a hedge
+         */
+        public void cancelled() {
+            complete("CANCELLED");
+        }
+
+        private boolean complete(String status) {
+            if (!completed.compareAndSet(false, true)) {
+                return false;
+            }
+            inFlight.decrementAndGet();
+            Timer.builder(REQUESTS)
+                .tag("service", serviceName)
+                .tag("method", method)
+                .tag("status", status)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+            return true;
+        }
+    }
+}
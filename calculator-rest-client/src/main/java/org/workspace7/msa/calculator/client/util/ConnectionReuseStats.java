@@ -0,0 +1,54 @@
+package org.workspace7.msa.calculator.client.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how many requests were sent and how many new connections had to be opened for them, every request that did
+ * not open a connection reused a pooled one.
+ *
+ * @author kameshs
+ */
+public class ConnectionReuseStats {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder openedConnections = new LongAdder();
+
+    void requestSent() {
+        requests.increment();
+    }
+
+    void connectionOpened() {
+        openedConnections.increment();
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getOpenedConnections() {
+        return openedConnections.sum();
+    }
+
+    public long getReusedConnections() {
+        return Math.max(0, getRequests() - getOpenedConnections());
+    }
+
+    /**
+     * @return - fraction of requests, between 0 and 1, that were served on an already open connection
+     */
+    public double getReuseRatio() {
+        long sent = getRequests();
+        return sent == 0 ? 0 : (double) getReusedConnections() / sent;
+    }
+
+    public void reset() {
+        requests.reset();
+        openedConnections.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("requests=%d, opened=%d, reused=%d, reuseRatio=%.2f",
+            getRequests(), getOpenedConnections(), getReusedConnections(), getReuseRatio());
+    }
+}
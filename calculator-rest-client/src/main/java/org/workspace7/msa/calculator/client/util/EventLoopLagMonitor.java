@@ -0,0 +1,84 @@
+package org.workspace7.msa.calculator.client.util;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the event loop of the calling verticle was blocked, by scheduling a periodic timer and recording
+ * how late every tick fires compared to when it was due. A loop that is never blocked fires its timers on time, so the
+ * accumulated delay is the time the loop spent unable to process events.
+ * <p>
+ * The monitor must be started from the verticle whose event loop is to be measured. All the state is only touched on
+ * that event loop.
+ *
+ * @author kameshs
+ */
+public class EventLoopLagMonitor {
+
+    private final Vertx vertx;
+    private final long intervalMillis;
+    private final long blockedThresholdNanos;
+
+    private long timerId = -1;
+    private long expectedTick;
+    private long samples;
+    private long blockedSamples;
+    private long totalBlockedNanos;
+    private long maxBlockedNanos;
+    private volatile JsonObject snapshot = new JsonObject();
+
+    /**
+     * @param vertx            - the vertx instance
+     * @param intervalMillis   - how often the event loop is probed
+     * @param blockedThreshold - delay in milliseconds above which a tick is counted as a blocked event loop
+     */
+    public EventLoopLagMonitor(Vertx vertx, long intervalMillis, long blockedThreshold) {
+        this.vertx = vertx;
+        this.intervalMillis = intervalMillis;
+        this.blockedThresholdNanos = TimeUnit.MILLISECONDS.toNanos(blockedThreshold);
+    }
+
+    public EventLoopLagMonitor(Vertx vertx, JsonObject config) {
+        this(vertx, config.getLong("interval", 100L), config.getLong("blockedThreshold", 10L));
+    }
+
+    public void start() {
+        expectedTick = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        timerId = vertx.setPeriodic(intervalMillis, id -> tick());
+    }
+
+    public void stop() {
+        if (timerId != -1) {
+            vertx.cancelTimer(timerId);
+            timerId = -1;
+        }
+    }
+
+    /**
+     * @return - JSON snapshot of the measured lag, safe to read from any thread
+     */
+    public JsonObject stats() {
+        return snapshot.copy();
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        long lag = Math.max(0, now - expectedTick);
+        expectedTick = now + TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        samples++;
+        totalBlockedNanos += lag;
+        maxBlockedNanos = Math.max(maxBlockedNanos, lag);
+        if (lag >= blockedThresholdNanos) {
+            blockedSamples++;
+        }
+        snapshot = new JsonObject()
+            .put("intervalMs", intervalMillis)
+            .put("samples", samples)
+            .put("blockedSamples", blockedSamples)
+            .put("totalBlockedMs", TimeUnit.NANOSECONDS.toMillis(totalBlockedNanos))
+            .put("maxBlockedMs", TimeUnit.NANOSECONDS.toMillis(maxBlockedNanos))
+            .put("lastLagMs", TimeUnit.NANOSECONDS.toMillis(lag));
+    }
+}
@@ -0,0 +1,270 @@
+package org.workspace7.msa.calculator.client.util;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workspace7.msa.calculator.client.loadbalancer.ServiceEndpoint;
+import org.workspace7.msa.calculator.client.loadbalancer.ServiceEndpointGroup;
+import org.workspace7.msa.calculator.client.resilience.HedgingPolicy;
+import org.workspace7.msa.calculator.client.resilience.RetryPolicy;
+import org.workspace7.msa.calculator.client.resilience.ServiceGuard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One idempotent GET of {@link VertxRestClientUtil} under its {@link HedgingPolicy} and {@link RetryPolicy}. When the
+ * request is not answered within the hedge delay of the service, a second attempt is sent to another endpoint, or to
+ * the same one on another connection or stream when the service has a single endpoint, e.g. the cluster IP of a
+ * Kubernetes service. The first attempt that answers wins and the others are reset. When all attempts fail, with no response or a 5xx
+ * response, the request is retried after a jittered backoff as long as the retries and the retry budget allow it.
+ * Hedges draw from the retry budget as well, once the guard of the service has let them through.
+ * <p>
+ * The attempts may answer on different event loops, so the state of the request is guarded by its monitor.
+ *
+ * @param <T> - the result type of the request
+ * @author kameshs
+ */
+class HedgedGet<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HedgedGet.class);
+
+    private final VertxRestClientUtil vertxRestClientUtil;
+    private final Vertx vertx;
+    private final ServiceEndpointGroup endpointGroup;
+    private final String serviceName;
+    private final String path;
+    private final Map<String, String> headers;
+    private final ResponseReader<T> responseReader;
+    private final Handler<AsyncResult<T>> responseHandler;
+    private final HedgingPolicy hedgingPolicy;
+    private final RetryPolicy retryPolicy;
+
+    private final List<Attempt> pending = new ArrayList<>();
+    /**
+     * the attempt that won, until its response body is read
+     */
+    private Attempt reading;
+    private boolean done;
+    private int retries;
+    private long hedgeTimer = -1;
+
+    HedgedGet(VertxRestClientUtil vertxRestClientUtil, Vertx vertx, ServiceEndpointGroup endpointGroup,
+              String path, Map<String, String> headers, ResponseReader<T> responseReader,
+              Handler<AsyncResult<T>> responseHandler) {
+        this.vertxRestClientUtil = vertxRestClientUtil;
+        this.vertx = vertx;
+        this.endpointGroup = endpointGroup;
+        this.serviceName = endpointGroup.getServiceName();
+        this.path = path;
+        this.headers = headers;
+        this.responseReader = responseReader;
+        this.responseHandler = responseHandler;
+        this.hedgingPolicy = vertxRestClientUtil.getHedgingPolicy();
+        this.retryPolicy = vertxRestClientUtil.getRetryPolicy();
+    }
+
+    synchronized void start() {
+        retryPolicy.onRequest();
+        sendFirst();
+    }
+
+    /**
+     * Sends the first attempt of the request, or of a retry, and schedules its hedge
+     */
+    private void sendFirst() {
+        ServiceEndpoint endpoint = endpointGroup.select();
+        if (endpoint == null) {
+            finish(responseReader.rejected(vertxRestClientUtil.responseMessage(
+                999, "Unable to load client from Cache")));
+            return;
+        }
+        ServiceGuard.Call call = vertxRestClientUtil.getServiceGuard(serviceName).enter();
+        if (!call.isPermitted()) {
+            finish(responseReader.rejected(vertxRestClientUtil.responseMessage(
+                call.getRejectionCode(), call.getRejectionMessage())));
+            return;
+        }
+        send(endpoint, call);
+        if (hedgingPolicy.isEnabled()) {
+            hedgeTimer = vertx.setTimer(hedgingPolicy.hedgeDelay(serviceName), id -> hedge(endpoint));
+        }
+    }
+
+    private synchronized void hedge(ServiceEndpoint first) {
+        hedgeTimer = -1;
+        if (done || pending.isEmpty()) {
+            return;
+        }
+        ServiceEndpoint other = endpointGroup.selectOther(first);
+        if (other == null) {
+            // the pool of the only endpoint opens another connection, or another stream with h2c
+            other = first;
+        }
+        ServiceGuard.Call call = vertxRestClientUtil.getServiceGuard(serviceName).enter();
+        if (!call.isPermitted()) {
+            return;
+        }
+        if (!retryPolicy.tryAcquire()) {
+            call.cancel();
+            return;
+        }
+        LOGGER.debug("Hedging GET {} of {} on {}", path, serviceName, other);
+        vertxRestClientUtil.getMetrics().hedged(serviceName, HttpMethod.GET);
+        send(other, call);
+    }
+
+    private void send(ServiceEndpoint endpoint, ServiceGuard.Call call) {
+        Attempt attempt = new Attempt(endpoint, call);
+        pending.add(attempt);
+        HttpClientRequest request = endpoint.getHttpClient()
+            .request(HttpMethod.GET, path, res -> onResponse(attempt, res));
+        attempt.request = request;
+        request.setTimeout(vertxRestClientUtil.getRequestTimeout());
+        request.connectionHandler(connection -> attempt.sample.newConnection());
+        request.exceptionHandler(e -> onFailure(attempt, e));
+        if (headers != null && !headers.isEmpty()) {
+            headers.forEach(request::putHeader);
+        }
+        request.sendHead(version -> attempt.sample.connected());
+        request.end();
+    }
+
+    private synchronized void onResponse(Attempt attempt, HttpClientResponse res) {
+        if (!pending.remove(attempt)) {
+            return;
+        }
+        attempt.ended(res.statusCode());
+        if (done) {
+            return;
+        }
+        if (res.statusCode() >= 500 && (!pending.isEmpty() || retry())) {
+            return;
+        }
+        cancelOthers();
+        done = true;
+        reading = attempt;
+        responseReader.read(res, result -> onRead(attempt, result));
+    }
+
+    /**
+     * Completes the request once with the result of the winning attempt, whichever of its response reader and its
+     * request answers first
+     */
+    private synchronized void onRead(Attempt attempt, AsyncResult<T> result) {
+        if (reading != attempt) {
+            return;
+        }
+        reading = null;
+        responseHandler.handle(result);
+    }
+
+    private synchronized void onFailure(Attempt attempt, Throwable e) {
+        if (reading == attempt) {
+            // e.g. the request timed out while the body of the response was read
+            LOGGER.error("Error reading GET {} on {}", path, attempt.endpoint, e);
+            onRead(attempt, Future.failedFuture(vertxRestClientUtil.responseMessage(
+                502, "Error calling service : " + e.getMessage()).encodePrettily()));
+            return;
+        }
+        if (!pending.remove(attempt)) {
+            return;
+        }
+        attempt.failed(e);
+        if (done || !pending.isEmpty() || retry()) {
+            return;
+        }
+        LOGGER.error("Error calling GET {} on {}", path, attempt.endpoint, e);
+        finish(Future.failedFuture(vertxRestClientUtil.responseMessage(
+            502, "Error calling service : " + e.getMessage()).encodePrettily()));
+    }
+
+    /**
+     * @return - true when a retry is scheduled
+     */
+    private boolean retry() {
+        if (retries >= retryPolicy.getMaxRetries() || !retryPolicy.tryAcquire()) {
+            return false;
+        }
+        retries++;
+        cancelHedge();
+        long backoff = retryPolicy.backoff(retries);
+        LOGGER.debug("Retrying GET {} of {} in {} ms", path, serviceName, backoff);
+        vertxRestClientUtil.getMetrics().retried(serviceName, HttpMethod.GET);
+        vertx.setTimer(backoff, id -> {
+            synchronized (this) {
+                if (!done) {
+                    sendFirst();
+                }
+            }
+        });
+        return true;
+    }
+
+    private void finish(AsyncResult<T> result) {
+        cancelOthers();
+        done = true;
+        responseHandler.handle(result);
+    }
+
+    private void cancelOthers() {
+        cancelHedge();
+        for (Attempt loser : pending) {
+            loser.cancel();
+        }
+        pending.clear();
+    }
+
+    private void cancelHedge() {
+        if (hedgeTimer != -1) {
+            vertx.cancelTimer(hedgeTimer);
+            hedgeTimer = -1;
+        }
+    }
+
+    /**
+     * One request sent to one endpoint
+     */
+    private class Attempt {
+
+        private final ServiceEndpoint endpoint;
+        private final ServiceGuard.Call call;
+        private final ClientMetrics.RequestSample sample;
+        private final long start;
+        private HttpClientRequest request;
+
+        Attempt(ServiceEndpoint endpoint, ServiceGuard.Call call) {
+            this.endpoint = endpoint;
+            this.call = call;
+            this.start = endpoint.requestStarted();
+            this.sample = vertxRestClientUtil.getMetrics().start(serviceName, HttpMethod.GET);
+        }
+
+        void ended(int statusCode) {
+            endpoint.requestEnded(start);
+            hedgingPolicy.record(serviceName, System.nanoTime() - start);
+            sample.end(statusCode);
+            call.end(statusCode);
+        }
+
+        void failed(Throwable e) {
+            endpoint.requestEnded(start);
+            sample.failed(e);
+            call.failed();
+        }
+
+        void cancel() {
+            endpoint.requestEnded(start);
+            sample.cancelled();
+            call.cancel();
+            request.reset();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.workspace7.msa.calculator.client.util;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps one long-lived, pooled {@link CloseableHttpClient} per target host, so that the REST client utilities reuse
+ * connections across requests instead of building a new connection manager for every call.
+ * <p>
+ * Each client owns a {@link PoolingHttpClientConnectionManager} bounded by the configured per-route and total limits,
+ * negotiates keep-alive with the server and runs a background evictor that closes expired and idle connections.
+ * The process wide instance returned by {@link #shared()} is shut down by a JVM shutdown hook. How often connections
+ * were reused versus newly opened is reported by {@link #getReuseStats()}.
+ *
+ * @author kameshs
+ */
+public class HttpClientPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientPool.class);
+
+    private final HttpClientPoolConfig poolConfig;
+    private final RequestConfig requestConfig;
+    private final SocketConfig socketConfig;
+    private final ConnectionKeepAliveStrategy keepAliveStrategy;
+    private final HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connectionFactory;
+    private final HttpRequestInterceptor requestCounter;
+    private final ConnectionReuseStats reuseStats = new ConnectionReuseStats();
+    private final ConcurrentMap<HttpHost, CloseableHttpClient> clients = new ConcurrentHashMap<>();
+    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+
+    public HttpClientPool(HttpClientPoolConfig poolConfig) {
+        this.poolConfig = poolConfig;
+        this.requestConfig = RequestConfig.custom()
+            .setConnectionRequestTimeout(poolConfig.getConnectionRequestTimeout())
+            .setConnectTimeout(poolConfig.getConnectTimeout())
+            .setSocketTimeout(poolConfig.getSocketTimeout())
+            .setExpectContinueEnabled(Boolean.TRUE)
+            .setMaxRedirects(50)
+            .build();
+        this.socketConfig = SocketConfig.custom()
+            .setSoTimeout(poolConfig.getSocketTimeout())
+            .setSoKeepAlive(Boolean.TRUE)
+            .setTcpNoDelay(Boolean.TRUE)
+            .build();
+        this.keepAliveStrategy = this::keepAliveDuration;
+        this.connectionFactory = (route, connectionConfig) -> {
+            reuseStats.connectionOpened();
+            return ManagedHttpClientConnectionFactory.INSTANCE.create(route, connectionConfig);
+        };
+        this.requestCounter = (request, context) -> reuseStats.requestSent();
+    }
+
+    /**
+     * @return - the process wide pool configured from system properties, see
+     * {@link HttpClientPoolConfig#fromSystemProperties()}
+     */
+    public static HttpClientPool shared() {
+        return SharedPoolHolder.INSTANCE;
+    }
+
+    /**
+     * Returns the client for the given host, creating it and its connection pool on first use
+     *
+     * @param target - the host, port and scheme the requests will be sent to
+     * @return - the {@link CloseableHttpClient} for that host
+     */
+    public CloseableHttpClient getClient(HttpHost target) {
+        if (shutdown.get()) {
+            throw new BaseException("Failed :HttpClientPool is shut down");
+        }
+        return clients.computeIfAbsent(target, this::createClient);
+    }
+
+    public HttpClientPoolConfig getPoolConfig() {
+        return poolConfig;
+    }
+
+    /**
+     * @return - the requests sent and connections opened by all the clients of this pool
+     */
+    public ConnectionReuseStats getReuseStats() {
+        return reuseStats;
+    }
+
+    /**
+     * Closes all the clients and their connection pools, the pool can't be used after this call
+     */
+    public void shutdown() {
+        if (!shutdown.compareAndSet(false, true)) {
+            return;
+        }
+        LOGGER.info("Shutting down {} pooled http client(s)", clients.size());
+        clients.forEach((host, client) -> {
+            try {
+                client.close();
+            } catch (IOException e) {
+                LOGGER.warn("Error closing http client for host {}", host, e);
+            }
+        });
+        clients.clear();
+    }
+
+    private CloseableHttpClient createClient(HttpHost target) {
+        LOGGER.info("Creating pooled http client for host {} with {}", target, poolConfig);
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+            .register("https", SSLConnectionSocketFactory.getSocketFactory())
+            .build();
+        PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager(
+            socketFactoryRegistry, connectionFactory, null, null,
+            poolConfig.getConnectionTimeToLive(), TimeUnit.MILLISECONDS);
+        connManager.setMaxTotal(poolConfig.getMaxTotal());
+        connManager.setDefaultMaxPerRoute(poolConfig.getMaxPerRoute());
+        connManager.setValidateAfterInactivity(poolConfig.getValidateAfterInactivity());
+        connManager.setDefaultSocketConfig(socketConfig);
+        return HttpClients.custom()
+            .setConnectionManager(connManager)
+            .setDefaultRequestConfig(requestConfig)
+            .setKeepAliveStrategy(keepAliveStrategy)
+            .addInterceptorFirst(requestCounter)
+            .evictExpiredConnections()
+            .evictIdleConnections(poolConfig.getMaxIdleTime(), TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    /**
+     * Honours the server <code>Keep-Alive: timeout=n</code> header, bounded by the configured maximum, and falls back
+     * to the configured default when the server does not advertise one
+     */
+    private long keepAliveDuration(HttpResponse response, HttpContext context) {
+        long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+        if (serverKeepAlive <= 0) {
+            return poolConfig.getDefaultKeepAlive();
+        }
+        return Math.min(serverKeepAlive, poolConfig.getMaxKeepAlive());
+    }
+
+    private static class SharedPoolHolder {
+
+        private static final HttpClientPool INSTANCE = createSharedPool();
+
+        private static HttpClientPool createSharedPool() {
+            HttpClientPool pool = new HttpClientPool(HttpClientPoolConfig.fromSystemProperties());
+            Runtime.getRuntime().addShutdownHook(new Thread(pool::shutdown, "http-client-pool-shutdown"));
+            return pool;
+        }
+    }
+}
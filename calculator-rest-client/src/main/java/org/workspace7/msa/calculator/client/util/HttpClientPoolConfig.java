@@ -0,0 +1,215 @@
+package org.workspace7.msa.calculator.client.util;
+
+/**
+ * Immutable settings for the connection pools managed by {@link HttpClientPool}. Instances are created via
+ * {@link #custom()} or, for the process wide pool, read from system properties prefixed with
+ * <code>calculator.http.pool.</code> via {@link #fromSystemProperties()}.
+ *
+ * @author kameshs
+ */
+public class HttpClientPoolConfig {
+
+    static final String PROPERTY_PREFIX = "calculator.http.pool.";
+
+    public static final HttpClientPoolConfig DEFAULT = custom().build();
+
+    private final int maxTotal;
+    private final int maxPerRoute;
+    private final int connectTimeout;
+    private final int socketTimeout;
+    private final int connectionRequestTimeout;
+    private final int validateAfterInactivity;
+    private final long maxIdleTime;
+    private final long defaultKeepAlive;
+    private final long maxKeepAlive;
+    private final long connectionTimeToLive;
+
+    private HttpClientPoolConfig(Builder builder) {
+        this.maxTotal = builder.maxTotal;
+        this.maxPerRoute = builder.maxPerRoute;
+        this.connectTimeout = builder.connectTimeout;
+        this.socketTimeout = builder.socketTimeout;
+        this.connectionRequestTimeout = builder.connectionRequestTimeout;
+        this.validateAfterInactivity = builder.validateAfterInactivity;
+        this.maxIdleTime = builder.maxIdleTime;
+        this.defaultKeepAlive = builder.defaultKeepAlive;
+        this.maxKeepAlive = builder.maxKeepAlive;
+        this.connectionTimeToLive = builder.connectionTimeToLive;
+    }
+
+    public static Builder custom() {
+        return new Builder();
+    }
+
+    /**
+     * Builds the configuration from system properties, falling back to the defaults for anything that is not set
+     * e.g. <code>-Dcalculator.http.pool.maxTotal=400</code>
+     *
+     * @return - {@link HttpClientPoolConfig}
+     */
+    public static HttpClientPoolConfig fromSystemProperties() {
+        Builder defaults = custom();
+        return custom()
+            .setMaxTotal(Integer.getInteger(PROPERTY_PREFIX + "maxTotal", defaults.maxTotal))
+            .setMaxPerRoute(Integer.getInteger(PROPERTY_PREFIX + "maxPerRoute", defaults.maxPerRoute))
+            .setConnectTimeout(Integer.getInteger(PROPERTY_PREFIX + "connectTimeout", defaults.connectTimeout))
+            .setSocketTimeout(Integer.getInteger(PROPERTY_PREFIX + "socketTimeout", defaults.socketTimeout))
+            .setConnectionRequestTimeout(Integer.getInteger(PROPERTY_PREFIX + "connectionRequestTimeout",
+                defaults.connectionRequestTimeout))
+            .setValidateAfterInactivity(Integer.getInteger(PROPERTY_PREFIX + "validateAfterInactivity",
+                defaults.validateAfterInactivity))
+            .setMaxIdleTime(Long.getLong(PROPERTY_PREFIX + "maxIdleTime", defaults.maxIdleTime))
+            .setDefaultKeepAlive(Long.getLong(PROPERTY_PREFIX + "defaultKeepAlive", defaults.defaultKeepAlive))
+            .setMaxKeepAlive(Long.getLong(PROPERTY_PREFIX + "maxKeepAlive", defaults.maxKeepAlive))
+            .setConnectionTimeToLive(Long.getLong(PROPERTY_PREFIX + "connectionTimeToLive",
+                defaults.connectionTimeToLive))
+            .build();
+    }
+
+    /**
+     * @return - maximum number of connections in a single host pool
+     */
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * @return - maximum number of connections per route (scheme, host and port)
+     */
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    /**
+     * @return - how long in milliseconds a request waits to lease a connection from the pool
+     */
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    /**
+     * @return - period of inactivity in milliseconds after which a pooled connection is validated before it is leased
+     */
+    public int getValidateAfterInactivity() {
+        return validateAfterInactivity;
+    }
+
+    /**
+     * @return - idle time in milliseconds after which the background evictor closes a pooled connection
+     */
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * @return - keep-alive in milliseconds used when the server does not send a <code>Keep-Alive</code> timeout
+     */
+    public long getDefaultKeepAlive() {
+        return defaultKeepAlive;
+    }
+
+    /**
+     * @return - upper bound in milliseconds for any keep-alive timeout, including the one advertised by the server
+     */
+    public long getMaxKeepAlive() {
+        return maxKeepAlive;
+    }
+
+    /**
+     * @return - total time to live in milliseconds of a pooled connection, -1 for no limit
+     */
+    public long getConnectionTimeToLive() {
+        return connectionTimeToLive;
+    }
+
+    @Override
+    public String toString() {
+        return "[maxTotal=" + maxTotal + ", maxPerRoute=" + maxPerRoute + ", connectTimeout=" + connectTimeout
+            + ", socketTimeout=" + socketTimeout + ", connectionRequestTimeout=" + connectionRequestTimeout
+            + ", validateAfterInactivity=" + validateAfterInactivity + ", maxIdleTime=" + maxIdleTime
+            + ", defaultKeepAlive=" + defaultKeepAlive + ", maxKeepAlive=" + maxKeepAlive
+            + ", connectionTimeToLive=" + connectionTimeToLive + "]";
+    }
+
+    public static class Builder {
+
+        private int maxTotal = 200;
+        private int maxPerRoute = 50;
+        private int connectTimeout = 30000;
+        private int socketTimeout = 30000;
+        private int connectionRequestTimeout = 30000;
+        private int validateAfterInactivity = 2000;
+        private long maxIdleTime = 30000L;
+        private long defaultKeepAlive = 30000L;
+        private long maxKeepAlive = 120000L;
+        private long connectionTimeToLive = -1L;
+
+        Builder() {
+        }
+
+        public Builder setMaxTotal(int maxTotal) {
+            this.maxTotal = maxTotal;
+            return this;
+        }
+
+        public Builder setMaxPerRoute(int maxPerRoute) {
+            this.maxPerRoute = maxPerRoute;
+            return this;
+        }
+
+        public Builder setConnectTimeout(int connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        public Builder setSocketTimeout(int socketTimeout) {
+            this.socketTimeout = socketTimeout;
+            return this;
+        }
+
+        public Builder setConnectionRequestTimeout(int connectionRequestTimeout) {
+            this.connectionRequestTimeout = connectionRequestTimeout;
+            return this;
+        }
+
+        public Builder setValidateAfterInactivity(int validateAfterInactivity) {
+            this.validateAfterInactivity = validateAfterInactivity;
+            return this;
+        }
+
+        public Builder setMaxIdleTime(long maxIdleTime) {
+            this.maxIdleTime = maxIdleTime;
+            return this;
+        }
+
+        public Builder setDefaultKeepAlive(long defaultKeepAlive) {
+            this.defaultKeepAlive = defaultKeepAlive;
+            return this;
+        }
+
+        public Builder setMaxKeepAlive(long maxKeepAlive) {
+            this.maxKeepAlive = maxKeepAlive;
+            return this;
+        }
+
+        public Builder setConnectionTimeToLive(long connectionTimeToLive) {
+            this.connectionTimeToLive = connectionTimeToLive;
+            return this;
+        }
+
+        public HttpClientPoolConfig build() {
+            if (maxTotal <= 0 || maxPerRoute <= 0) {
+                throw new BaseException("Failed :pool limits must be greater than zero");
+            }
+            return new HttpClientPoolConfig(this);
+        }
+    }
+}
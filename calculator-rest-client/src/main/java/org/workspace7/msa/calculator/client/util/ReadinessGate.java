@@ -0,0 +1,147 @@
+package org.workspace7.msa.calculator.client.util;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds back requests that arrive before the client is ready to serve them. Requests wait in a bounded queue until the
+ * gate is opened, or failed, and are failed individually when they are still waiting after the deadline. The gate is
+ * configured with a {@link JsonObject}
+ * <ul>
+ * <li>"maxQueued" - maximum number of waiting requests, further requests are failed at once, defaults to 1000</li>
+ * <li>"deadline" - maximum time in milliseconds a request waits, defaults to 5000</li>
+ * </ul>
+ *
+ * @author kameshs
+ */
+public class ReadinessGate {
+
+    private final Vertx vertx;
+    private final int maxQueued;
+    private final long deadline;
+    private final CompletableFuture<Void> readiness = new CompletableFuture<>();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    public ReadinessGate(Vertx vertx, JsonObject config) {
+        this.vertx = vertx;
+        this.maxQueued = config.getInteger("maxQueued", 1000);
+        this.deadline = config.getLong("deadline", 5000L);
+    }
+
+    /**
+     * Marks the client as ready and releases all the waiting requests
+     */
+    public void open() {
+        readiness.complete(null);
+        drain();
+    }
+
+    /**
+     * Marks the client as unable to serve and fails all the waiting requests
+     *
+     * @param cause - why the client can't serve
+     */
+    public void fail(Throwable cause) {
+        readiness.completeExceptionally(cause);
+        drain();
+    }
+
+    /**
+     * @return - completes once the gate is opened, or exceptionally when it is failed
+     */
+    public CompletionStage<Void> readiness() {
+        return readiness;
+    }
+
+    public boolean isOpen() {
+        return readiness.isDone() && !readiness.isCompletedExceptionally();
+    }
+
+    /**
+     * Calls the handler, on the context of the caller, as soon as the gate is opened or failed, or when the
+     * deadline passes
+     *
+     * @param handler - succeeds when the client is ready, fails otherwise
+     */
+    public void await(Handler<AsyncResult<Void>> handler) {
+        if (readiness.isDone()) {
+            handler.handle(result());
+            return;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            handler.handle(Future.failedFuture("Too many requests waiting for the client to be ready"));
+            return;
+        }
+        Waiter waiter = new Waiter(vertx.getOrCreateContext(), handler);
+        waiters.add(waiter);
+        waiter.timerId = vertx.setTimer(deadline, id -> {
+            if (waiters.remove(waiter)) {
+                queued.decrementAndGet();
+                waiter.complete(Future.failedFuture("Client was not ready within " + deadline + " ms"));
+            }
+        });
+        // the gate might have been opened while the waiter was being queued
+        if (readiness.isDone()) {
+            drain();
+        }
+    }
+
+    /**
+     * @return - the number of requests currently waiting
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    private void drain() {
+        AsyncResult<Void> result = result();
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            queued.decrementAndGet();
+            if (waiter.timerId != -1) {
+                vertx.cancelTimer(waiter.timerId);
+            }
+            waiter.complete(result);
+        }
+    }
+
+    private AsyncResult<Void> result() {
+        if (isOpen()) {
+            return Future.succeededFuture();
+        }
+        Throwable cause = readiness.handle((v, error) -> error).join();
+        return Future.failedFuture(cause);
+    }
+
+    private static class Waiter {
+
+        private final Context context;
+        private final Handler<AsyncResult<Void>> handler;
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile long timerId = -1;
+
+        Waiter(Context context, Handler<AsyncResult<Void>> handler) {
+            this.context = context;
+            this.handler = handler;
+        }
+
+        void complete(AsyncResult<Void> result) {
+            if (completed.compareAndSet(false, true)) {
+                context.runOnContext(v -> handler.handle(result));
+            }
+        }
+    }
+}
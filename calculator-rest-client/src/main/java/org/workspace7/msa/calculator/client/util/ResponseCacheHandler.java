@@ -0,0 +1,341 @@
+package org.workspace7.msa.calculator.client.util;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the deterministic calculator operations, <code>GET /api/add/{a}/{b}</code>, <code>GET /api/sub/{a}/{b}</code>,
+ * <code>POST /api/mul</code> and <code>POST /api/div</code>, from an in-memory cache of the backend responses, and
+ * passes every other request, e.g. <code>/api/whoami</code>, on to the next handler. It must be routed before the
+ * proxy handler.
+ * <p>
+ * The cache key is the operation with its operands normalized, so <code>/api/add/05/3</code> and
+ * <code>/api/add/5/3</code>, or <code>2</code> and <code>2.0</code> in a body, share an entry. Multiplications are
+ * also keyed by their precision, and every operation by the Accept header the response was negotiated with, so the
+ * text, JSON and CBOR responses are cached apart. Bodies without a Content-Length or larger than "maxBodyBytes" are
+ * streamed to the backend uncached. The cache evicts with Caffeine's W-TinyLFU policy, and concurrent misses of the
+ * same key wait for a single backend call. Only 200 responses that do not forbid it with Cache-Control are kept, the
+ * others are answered to the requests that waited for them and then dropped from the cache.
+ * Responses carry an X-Cache header, "HIT" when answered from the cache, "MISS" for the request that called the
+ * backend and "COALESCED" for the requests that waited for that call. The handler is configured with a
+ * {@link JsonObject}
+ * <ul>
+ * <li>"maximumSize" - the maximum number of cached responses, defaults to 10000</li>
+ * <li>"expireAfterWrite" - the time in seconds a response is kept, defaults to 0 i.e. until evicted</li>
+ * <li>"maxBodyBytes" - the largest request body that is cached, defaults to 4096</li>
+ * <li>"loadTimeout" - the time in milliseconds a miss waits for the backend, including the wait for the client
+ * readiness, before it and the requests that joined it are answered 504, defaults to twice the client request
+ * timeout</li>
+ * </ul>
+ *
+ * @author kameshs
+ */
+public class ResponseCacheHandler implements Handler<RoutingContext> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCacheHandler.class);
+
+    private static final Pattern BINARY_OPERATION = Pattern.compile("/api/(add|sub)/([^/]+)/([^/]+)");
+    private static final String PRECISION_HEADER = "X-Calculator-Precision";
+    private static final String CACHE_HEADER = "X-Cache";
+    private static final String VARY = "Vary";
+
+    private final VertxRestClientUtil vertxRestClientUtil;
+    private final String serviceName;
+    private final int maxBodyBytes;
+    private final long loadTimeout;
+    private final AsyncCache<String, ServiceResponse> cache;
+
+    /**
+     * @param vertxRestClientUtil - the client utility used to call the backend on a miss
+     * @param serviceName         - the backend service
+     * @param config              - the cache configuration, see the class documentation for the supported keys
+     * @param meterRegistry       - the registry the hit, miss and eviction metrics are registered with
+     */
+    public ResponseCacheHandler(VertxRestClientUtil vertxRestClientUtil, String serviceName, JsonObject config,
+                                MeterRegistry meterRegistry) {
+        this.vertxRestClientUtil = vertxRestClientUtil;
+        this.serviceName = serviceName;
+        this.maxBodyBytes = config.getInteger("maxBodyBytes", 4096);
+        this.loadTimeout = config.getLong("loadTimeout", 2 * vertxRestClientUtil.getRequestTimeout());
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .maximumSize(config.getLong("maximumSize", 10000L))
+            .recordStats();
+        long expireAfterWrite = config.getLong("expireAfterWrite", 0L);
+        if (expireAfterWrite > 0) {
+            builder.expireAfterWrite(expireAfterWrite, TimeUnit.SECONDS);
+        }
+        this.cache = builder.buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "calculator.proxy.cache");
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        HttpServerRequest request = routingContext.request();
+        if (request.method() == HttpMethod.GET) {
+            String key = binaryOperationKey(request);
+            if (key == null) {
+                routingContext.next();
+            } else {
+                serve(routingContext, key, null);
+            }
+            return;
+        }
+        String operation = request.method() == HttpMethod.POST ? numbersOperation(request.path()) : null;
+        if (operation == null) {
+            routingContext.next();
+            return;
+        }
+        if (routingContext.getBody() != null) {
+            serve(routingContext, numbersKey(operation, request, routingContext.getBody()), routingContext.getBody());
+            return;
+        }
+        String contentLength = request.getHeader(HttpHeaders.CONTENT_LENGTH);
+        if (contentLength == null || parseLength(contentLength) > maxBodyBytes) {
+            routingContext.next();
+            return;
+        }
+        request.bodyHandler(body -> serve(routingContext, numbersKey(operation, request, body), body));
+    }
+
+    /**
+     * @return - the hit, miss and eviction counts and the number of cached responses
+     */
+    public JsonObject stats() {
+        CacheStats stats = cache.synchronous().stats();
+        return new JsonObject()
+            .put("size", cache.synchronous().estimatedSize())
+            .put("hits", stats.hitCount())
+            .put("misses", stats.missCount())
+            .put("hitRate", stats.hitRate())
+            .put("evictions", stats.evictionCount());
+    }
+
+    /**
+     * Answers the request from the cache, or from the backend on a miss. Requests without a key are forwarded
+     * uncached
+     */
+    private void serve(RoutingContext routingContext, String key, Buffer body) {
+        Context context = Vertx.currentContext();
+        CompletableFuture<ServiceResponse> response;
+        boolean[] miss = new boolean[1];
+        if (key == null) {
+            miss[0] = true;
+            response = load(context, routingContext.request(), body);
+        } else {
+            // the service negotiates the format of its response from the Accept header
+            String accept = routingContext.request().getHeader(HttpHeaders.ACCEPT);
+            String negotiatedKey = key + ";accept=" + (accept == null ? "" : accept.replace(" ", "")
+                .toLowerCase(Locale.ROOT));
+            response = cache.get(negotiatedKey, (k, executor) -> {
+                miss[0] = true;
+                return load(context, routingContext.request(), body);
+            });
+            if (miss[0]) {
+                // the entry is in the map by now, even when the backend answered synchronously
+                CompletableFuture<ServiceResponse> loaded = response;
+                loaded.thenAccept(result -> {
+                    if (!isCacheable(result)) {
+                        cache.asMap().remove(negotiatedKey, loaded);
+                    }
+                });
+            }
+        }
+        // a request that found the miss of another one still in flight waited for its backend call
+        String outcome = miss[0] ? "MISS" : response.isDone() ? "HIT" : "COALESCED";
+        response.whenComplete((result, error) -> {
+            if (context == Vertx.currentContext()) {
+                respond(routingContext, result, error, outcome);
+            } else {
+                context.runOnContext(v -> respond(routingContext, result, error, outcome));
+            }
+        });
+    }
+
+    /**
+     * Calls the backend. The future always completes with a response, the one of the backend whatever its status,
+     * a 502 when the call failed or a 504 when no response came within the "loadTimeout", so that neither the request
+     * nor the ones that joined its miss wait forever
+     */
+    private CompletableFuture<ServiceResponse> load(Context context, HttpServerRequest request, Buffer body) {
+        CompletableFuture<ServiceResponse> future = new CompletableFuture<>();
+        String uri = request.uri();
+        long timerId = context.owner().setTimer(loadTimeout, id -> {
+            if (future.complete(failure(504, "No response from " + serviceName + " within " + loadTimeout + " ms"))) {
+                LOGGER.error("No response from {} for {} within {} ms", serviceName, uri, loadTimeout);
+            }
+        });
+        future.whenComplete((result, error) -> context.owner().cancelTimer(timerId));
+        Map<String, String> headers = new HashMap<>();
+        String contentType = request.getHeader(HttpHeaders.CONTENT_TYPE);
+        if (contentType != null) {
+            headers.put(HttpHeaders.CONTENT_TYPE.toString(), contentType);
+        }
+        String precision = request.getHeader(PRECISION_HEADER);
+        if (precision != null) {
+            headers.put(PRECISION_HEADER, precision);
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept != null) {
+            headers.put(HttpHeaders.ACCEPT.toString(), accept);
+        }
+        vertxRestClientUtil.executeForResponse(request.method(), serviceName, uri,
+            body != null ? body.toString() : null, headers, result -> {
+                if (result.succeeded()) {
+                    future.complete(result.result());
+                } else if (future.complete(failure(502, "Error calling service : " + result.cause().getMessage()))) {
+                    LOGGER.error("Error calling {} for {}", serviceName, uri, result.cause());
+                }
+            });
+        return future;
+    }
+
+    private void respond(RoutingContext routingContext, ServiceResponse response, Throwable error, String outcome) {
+        if (error != null) {
+            LOGGER.error("Error calling {} for {}", serviceName, routingContext.request().uri(), error);
+            response = failure(502, String.valueOf(error.getMessage()));
+        }
+        HttpServerResponse serverResponse = routingContext.response();
+        serverResponse.setStatusCode(response.getStatusCode());
+        String contentType = response.getHeaders().get(HttpHeaders.CONTENT_TYPE);
+        if (contentType != null) {
+            serverResponse.putHeader(HttpHeaders.CONTENT_TYPE, contentType);
+        }
+        String vary = response.getHeaders().get(VARY);
+        if (vary != null) {
+            serverResponse.putHeader(VARY, vary);
+        }
+        serverResponse
+            .putHeader(CACHE_HEADER, outcome)
+            .end(response.getBody());
+    }
+
+    /**
+     * @return - the JSON responseMessage of a backend call that got no response
+     */
+    private static ServiceResponse failure(int statusCode, String statusMessage) {
+        MultiMap headers = new CaseInsensitiveHeaders()
+            .add(HttpHeaders.CONTENT_TYPE, "application/json; charset=utf-8");
+        return new ServiceResponse(statusCode, statusMessage, headers, Buffer.buffer(new JsonObject()
+            .put("statusCode", statusCode)
+            .put("statusMessage", statusMessage)
+            .encodePrettily()));
+    }
+
+    private static boolean isCacheable(ServiceResponse response) {
+        if (response.getStatusCode() != 200) {
+            return false;
+        }
+        String cacheControl = response.getHeaders().get(HttpHeaders.CACHE_CONTROL);
+        if (cacheControl == null) {
+            return true;
+        }
+        String directives = cacheControl.toLowerCase(Locale.ROOT);
+        return !directives.contains("no-store") && !directives.contains("no-cache")
+            && !directives.contains("private");
+    }
+
+    /**
+     * @return - the key of an add or sub, or null when the request is not one or its operands are not ints
+     */
+    private static String binaryOperationKey(HttpServerRequest request) {
+        if (request.query() != null) {
+            return null;
+        }
+        Matcher matcher = BINARY_OPERATION.matcher(request.path());
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            return matcher.group(1) + '/' + Integer.parseInt(matcher.group(2).trim())
+                + '/' + Integer.parseInt(matcher.group(3).trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String numbersOperation(String path) {
+        switch (path) {
+            case "/api/mul":
+                return "mul";
+            case "/api/div":
+                return "div";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return - the key of a mul or div, or null when the body is not a numbers array
+     */
+    private static String numbersKey(String operation, HttpServerRequest request, Buffer body) {
+        JsonArray numbers;
+        try {
+            numbers = new JsonObject(body.toString()).getJsonArray("numbers");
+        } catch (DecodeException | ClassCastException e) {
+            return null;
+        }
+        if (numbers == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(operation);
+        if ("mul".equals(operation)) {
+            String precision = request.getHeader(PRECISION_HEADER);
+            if (precision == null) {
+                precision = request.getParam("precision");
+            }
+            key.append(";precision=").append(precision == null ? "" : precision.trim().toLowerCase(Locale.ROOT));
+        } else if (request.query() != null) {
+            return null;
+        }
+        key.append(':');
+        try {
+            for (int i = 0; i < numbers.size(); i++) {
+                Object number = numbers.getValue(i);
+                if (!(number instanceof Number) && !(number instanceof String)) {
+                    return null;
+                }
+                key.append(new BigDecimal(number.toString().trim()).stripTrailingZeros().toPlainString())
+                    .append(',');
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return key.toString();
+    }
+
+    private static long parseLength(String contentLength) {
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.workspace7.msa.calculator.client.util;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Turns the response of a service, or the rejection of a request that never reached it, into the result type of a
+ * {@link VertxRestClientUtil} call
+ *
+ * @param <T> - the result type
+ * @author kameshs
+ */
+interface ResponseReader<T> {
+
+    /**
+     * @param response      - the response of the service
+     * @param resultHandler - the handler the result is passed to once the response is read
+     */
+    void read(HttpClientResponse response, Handler<AsyncResult<T>> resultHandler);
+
+    /**
+     * @param responseMessage - the status code and message of the rejection, see
+     *                        {@link VertxRestClientUtil#responseMessage(int, String)}
+     * @return - the result of the rejected request
+     */
+    AsyncResult<T> rejected(JsonObject responseMessage);
+}
@@ -1,16 +1,15 @@
 package org.workspace7.msa.calculator.client.util;
 
+import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
-import org.apache.http.config.SocketConfig;
+import org.apache.http.client.utils.URIUtils;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.workspace7.msa.calculator.commons.RequestLogSampler;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -20,7 +19,8 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
- * Utility class providing a REST client implementation
+ * Utility class providing a REST client implementation, all requests are sent through the long-lived pooled clients
+ * of a {@link HttpClientPool}, by default the process wide {@link HttpClientPool#shared()}
  *
  * @author Jaisy_Cheriyan
  *
@@ -29,40 +29,18 @@ public class RestHttpClientUtil {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(RestHttpClientUtil.class);
 
-	private final RequestConfig config;
-	private final SocketConfig sconfig;
-	// CloseableHttpClient httpclient = getHTTPClient();
+	private final HttpClientPool httpClientPool;
 
 	private static enum HTTPMethod {
 		GET, POST, PUT, DELETE
 	}
 
 	public RestHttpClientUtil() {
-		config = RequestConfig.custom().setConnectionRequestTimeout(30000)
-				.setConnectTimeout(30000)
-				.setSocketTimeout(30000).setExpectContinueEnabled(Boolean.TRUE)
-				.setMaxRedirects(50).setStaleConnectionCheckEnabled(true).build();
-		sconfig = SocketConfig.custom().setSoTimeout(30000)
-				.setSoKeepAlive(Boolean.FALSE).build();
-
+		this(HttpClientPool.shared());
 	}
 
-	private CloseableHttpClient getHTTPClient() {
-		LOGGER.info("Entering getHTTPClient at {}", System.currentTimeMillis());
-		CloseableHttpClient httpclient = null;
-		try {
-			PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager();
-			connManager.setMaxTotal(20);
-			httpclient = HttpClients.custom().setDefaultRequestConfig(config).setConnectionManager(connManager)
-					.setDefaultSocketConfig(sconfig).build();
-		} catch (NumberFormatException e) {
-			throw new BaseException("Failed :NumberFormatException", e);
-		} catch (Exception e) {
-			throw new BaseException("Failed :CloseableHttpClient", e);
-		} finally {
-			LOGGER.info("Exiting getHTTPClient at {}", System.currentTimeMillis());
-		}
-		return httpclient;
+	public RestHttpClientUtil(HttpClientPool httpClientPool) {
+		this.httpClientPool = httpClientPool;
 	}
 
 	/**
@@ -76,7 +54,7 @@ public class RestHttpClientUtil {
 	 * @throws IOException
 	 */
 	public String executeGetRequest(String url, Map<String, String> header) throws IOException {
-		LOGGER.info("Entering executeGetRequest at {}", System.currentTimeMillis());
+		LOGGER.debug(RequestLogSampler.REQUEST, "Entering executeGetRequest");
 		HttpGet request = null;
 		try {
 			request = getHTTPGetRequest(url);
@@ -84,7 +62,7 @@ public class RestHttpClientUtil {
 			return sendHttpResponse(request);
 		} finally {
 			closeHTTPRequest(request);
-			LOGGER.info("Exiting executeGetRequest at {}", System.currentTimeMillis());
+			LOGGER.debug(RequestLogSampler.REQUEST, "Exiting executeGetRequest");
 		}
 	}
 
@@ -102,7 +80,7 @@ public class RestHttpClientUtil {
 	 */
 	public String executePostRequest(String url, Object json, Map<String, String> Header) throws IOException {
 
-		LOGGER.info("Entering executePostRequest at {}", System.currentTimeMillis());
+		LOGGER.debug(RequestLogSampler.REQUEST, "Entering executePostRequest");
 		HttpPost request = null;
 		try {
 			StringEntity params = null;
@@ -113,7 +91,7 @@ public class RestHttpClientUtil {
 			return sendHttpResponse(request);
 		} finally {
 			closeHTTPRequest(request);// closing the request
-			LOGGER.info("Exiting executePostRequest at {}", System.currentTimeMillis());
+			LOGGER.debug(RequestLogSampler.REQUEST, "Exiting executePostRequest");
 		}
 
 	}
@@ -131,7 +109,7 @@ public class RestHttpClientUtil {
 	 * @throws IOException
 	 */
 	public String executePutRequest(String url, Object json, Map<String, String> Header) throws IOException {
-		LOGGER.info("Entering executePutRequest at {}", System.currentTimeMillis());
+		LOGGER.debug(RequestLogSampler.REQUEST, "Entering executePutRequest");
 		HttpPut request = null;
 		try {
 			StringEntity params = null;
@@ -142,13 +120,13 @@ public class RestHttpClientUtil {
 			return sendHttpResponse(request);
 		} finally {
 			closeHTTPRequest(request);// closing the request
-			LOGGER.info("Exiting executePutRequest at {}", System.currentTimeMillis());
+			LOGGER.debug(RequestLogSampler.REQUEST, "Exiting executePutRequest");
 		}
 	}
 
 	public String executeDeleteRequest(String url, Map<String, String> Header) throws IOException {
 
-		LOGGER.info("Entering executeDeleteRequest at {}", System.currentTimeMillis());
+		LOGGER.debug(RequestLogSampler.REQUEST, "Entering executeDeleteRequest");
 		HttpDelete request = null;
 		try {
 			request = getHTTPDeleteRequest(url);
@@ -156,7 +134,7 @@ public class RestHttpClientUtil {
 			return sendHttpResponse(request);
 		} finally {
 			closeHTTPRequest(request);// closing the request
-			LOGGER.info("Exiting executeDeleteRequest at {}", System.currentTimeMillis());
+			LOGGER.debug(RequestLogSampler.REQUEST, "Exiting executeDeleteRequest");
 		}
 
 	}
@@ -202,15 +180,21 @@ public class RestHttpClientUtil {
 	}
 
 	private String sendHttpResponse(HttpRequestBase request) throws IOException {
-		LOGGER.info("Entering sendHttpResponse at {}", System.currentTimeMillis());
+		LOGGER.debug(RequestLogSampler.REQUEST, "Entering sendHttpResponse");
 		HttpResponse response = null;
 		BufferedReader br = null;
 		StringBuilder result = new StringBuilder();
 		try {
-			response = getHTTPClient().execute(request);
+			HttpHost target = URIUtils.extractHost(request.getURI());
+			if (target == null) {
+				throw new BaseException("Failed :Invalid request URI " + request.getURI());
+			}
+			response = httpClientPool.getClient(target).execute(target, request);
 
 			if (response.getStatusLine() != null) {
 				if (response.getStatusLine().getStatusCode() != 200) {
+					// consume the error body so that the connection goes back to the pool
+					EntityUtils.consume(response.getEntity());
 					throw handleHttpResponseStatus(response);
 				}
 				result.append(read(response.getEntity().getContent()));
@@ -224,7 +208,7 @@ public class RestHttpClientUtil {
 				br.close();
 				br = null;
 			}
-			LOGGER.info("Exiting sendHttpResponse {}", System.currentTimeMillis());
+			LOGGER.debug(RequestLogSampler.REQUEST, "Exiting sendHttpResponse");
 		}
 		return result.toString();
 	}
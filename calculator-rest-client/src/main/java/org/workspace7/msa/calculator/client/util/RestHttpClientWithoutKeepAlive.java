@@ -1,15 +1,24 @@
 package org.workspace7.msa.calculator.client.util;
 
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.*;
+import org.apache.http.client.utils.URIUtils;
 import org.apache.http.config.SocketConfig;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.workspace7.msa.calculator.commons.RequestLogSampler;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -18,6 +27,12 @@ import java.util.Map;
 
 /**
  * Utility class providing a REST client implementation
+ * <p>
+ * By default every request is sent on a brand new client and connection which is closed once the response is read.
+ * The opt-in persistent mode, enabled via the constructor or <code>-Dcalculator.http.keepAlive=true</code>, sends the
+ * requests through a dedicated {@link HttpClientPool} that keeps connections alive, honours the server
+ * <code>Keep-Alive</code> timeout and validates connections only after a period of inactivity. In both modes
+ * {@link #getReuseStats()} reports how many connections were reused versus newly opened.
  *
  * @author Jaisy_Cheriyan
  */
@@ -26,13 +41,57 @@ public class RestHttpClientWithoutKeepAlive {
     private static final Logger LOGGER = LoggerFactory
         .getLogger(RestHttpClientWithoutKeepAlive.class);
 
+    public static final String KEEP_ALIVE_PROPERTY = "calculator.http.keepAlive";
+
+    private final boolean keepAlive;
+    private final HttpClientPool httpClientPool;
+    private final ConnectionReuseStats reuseStats;
+
+    public RestHttpClientWithoutKeepAlive() {
+        this(Boolean.getBoolean(KEEP_ALIVE_PROPERTY));
+    }
+
+    /**
+     * @param keepAlive - true to reuse persistent connections, false to open a new connection for every request
+     */
+    public RestHttpClientWithoutKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+        if (keepAlive) {
+            httpClientPool = new HttpClientPool(HttpClientPoolConfig.fromSystemProperties());
+            reuseStats = httpClientPool.getReuseStats();
+        } else {
+            httpClientPool = null;
+            reuseStats = new ConnectionReuseStats();
+        }
+        LOGGER.info("Using {} connections", keepAlive ? "persistent" : "per request");
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * @return - how many requests were sent and how many of them reused an already open connection
+     */
+    public ConnectionReuseStats getReuseStats() {
+        return reuseStats;
+    }
+
+    /**
+     * Closes the pooled connections of the persistent mode, no-op otherwise
+     */
+    public void close() {
+        if (httpClientPool != null) {
+            httpClientPool.shutdown();
+        }
+    }
 
     private static enum HTTPMethod {
         GET, POST, PUT
     }
 
     private static CloseableHttpClient getHTTPClient() {
-        LOGGER.info("Entering getHTTPClient at {}", System.currentTimeMillis());
+        LOGGER.debug(RequestLogSampler.REQUEST, "Entering getHTTPClient");
         CloseableHttpClient httpclient = null;
         RequestConfig config;
         try {
@@ -56,8 +115,7 @@ public class RestHttpClientWithoutKeepAlive {
         } catch (Exception e) {
             throw new BaseException("Failed :CloseableHttpClient", e);
         } finally {
-            LOGGER.info("Exiting getHTTPClient at {}",
-                System.currentTimeMillis());
+            LOGGER.debug(RequestLogSampler.REQUEST, "Exiting getHTTPClient");
         }
         return httpclient;
     }
@@ -72,8 +130,7 @@ public class RestHttpClientWithoutKeepAlive {
      */
     public String executeGetRequest(String url, Map<String, String> header)
         throws IOException {
-        LOGGER.info("Entering executeGetRequest at {}",
-            System.currentTimeMillis());
+        LOGGER.debug(RequestLogSampler.REQUEST, "Entering executeGetRequest");
         HttpGet request = null;
         try {
             request = getHTTPGetRequest(url);
@@ -81,8 +138,38 @@ public class RestHttpClientWithoutKeepAlive {
             return sendHttpResponse(request);
         } finally {
             closeHTTPRequest(request);
-            LOGGER.info("Exiting executeGetRequest at {}",
-                System.currentTimeMillis());
+            LOGGER.debug(RequestLogSampler.REQUEST, "Exiting executeGetRequest");
+        }
+    }
+
+    /**
+     * Rest client method executing GET request, for proxies that pass the response on as is
+     *
+     * @param url    : rest server url
+     * @param header : header parameters in map
+     * @return the status, headers and undecoded body of the response, whatever its status
+     * @throws IOException
+     */
+    public ServiceResponse executeGetForResponse(String url, Map<String, String> header)
+        throws IOException {
+        LOGGER.debug(RequestLogSampler.REQUEST, "Entering executeGetForResponse");
+        HttpGet request = null;
+        try {
+            request = getHTTPGetRequest(url);
+            request = (HttpGet) setHttpHeader(header, request);
+            return send(request, response -> {
+                MultiMap headers = new CaseInsensitiveHeaders();
+                for (Header responseHeader : response.getAllHeaders()) {
+                    headers.add(responseHeader.getName(), responseHeader.getValue());
+                }
+                HttpEntity entity = response.getEntity();
+                Buffer body = entity != null ? Buffer.buffer(EntityUtils.toByteArray(entity)) : Buffer.buffer();
+                return new ServiceResponse(response.getStatusLine().getStatusCode(),
+                    response.getStatusLine().getReasonPhrase(), headers, body);
+            });
+        } finally {
+            closeHTTPRequest(request);
+            LOGGER.debug(RequestLogSampler.REQUEST, "Exiting executeGetForResponse");
         }
     }
 
@@ -98,8 +185,7 @@ public class RestHttpClientWithoutKeepAlive {
     public String executePostRequest(String url, Object json,
                                      Map<String, String> Header) throws IOException {
 
-        LOGGER.info("Entering executePostRequest at {}",
-            System.currentTimeMillis());
+        LOGGER.debug(RequestLogSampler.REQUEST, "Entering executePostRequest");
         HttpPost request = null;
         try {
             StringEntity params = null;
@@ -110,8 +196,7 @@ public class RestHttpClientWithoutKeepAlive {
             return sendHttpResponse(request);
         } finally {
             closeHTTPRequest(request);// closing the request
-            LOGGER.info("Exiting executePostRequest at {}",
-                System.currentTimeMillis());
+            LOGGER.debug(RequestLogSampler.REQUEST, "Exiting executePostRequest");
         }
 
     }
@@ -127,8 +212,7 @@ public class RestHttpClientWithoutKeepAlive {
      */
     public String executePutRequest(String url, Object json,
                                     Map<String, String> Header) throws IOException {
-        LOGGER.info("Entering executePutRequest at {}",
-            System.currentTimeMillis());
+        LOGGER.debug(RequestLogSampler.REQUEST, "Entering executePutRequest");
         HttpPut request = null;
         try {
             StringEntity params = null;
@@ -139,8 +223,7 @@ public class RestHttpClientWithoutKeepAlive {
             return sendHttpResponse(request);
         } finally {
             closeHTTPRequest(request);// closing the request
-            LOGGER.info("Exiting executePutRequest at {}",
-                System.currentTimeMillis());
+            LOGGER.debug(RequestLogSampler.REQUEST, "Exiting executePutRequest");
         }
     }
 
@@ -180,41 +263,64 @@ public class RestHttpClientWithoutKeepAlive {
     }
 
     private String sendHttpResponse(HttpRequestBase request) throws IOException {
-        LOGGER.info("Entering sendHttpResponse at {}",
-            System.currentTimeMillis());
-        HttpResponse response = null;
-        BufferedReader br = null;
-        StringBuilder result = new StringBuilder();
+        LOGGER.debug(RequestLogSampler.REQUEST, "Entering sendHttpResponse");
         try {
-            response = getHTTPClient().execute(request);
+            return send(request, response -> {
+                StringBuilder result = new StringBuilder();
+                if (response.getStatusLine() != null) {
+                    if (response.getStatusLine().getStatusCode() != 200) {
+                        EntityUtils.consume(response.getEntity());
+                        throw handleHttpResponseStatus(response);
+                    }
+                    try (BufferedReader br = new BufferedReader(new InputStreamReader(response
+                        .getEntity().getContent()))) {
+                        while (true) {
+                            final String line = br.readLine();
+                            if (line == null)
+                                break;
 
-            if (response.getStatusLine() != null) {
-                if (response.getStatusLine().getStatusCode() != 200) {
-                    throw handleHttpResponseStatus(response);
+                            result.append(line);
+                        }
+                    }
                 }
-                br = new BufferedReader(new InputStreamReader(response
-                    .getEntity().getContent()));
-                while (true) {
-                    final String line = br.readLine();
-                    if (line == null)
-                        break;
-
-                    result.append(line);
+                return result.toString();
+            });
+        } finally {
+            LOGGER.debug(RequestLogSampler.REQUEST, "Exiting sendHttpResponse");
+        }
+    }
+
+    /**
+     * Sends the request on a persistent or a one shot connection, and reads the response before the one shot client
+     * is closed
+     */
+    private <T> T send(HttpRequestBase request, ResponseReader<T> reader) throws IOException {
+        CloseableHttpClient oneShotClient = null;
+        try {
+            HttpResponse response;
+            if (keepAlive) {
+                HttpHost target = URIUtils.extractHost(request.getURI());
+                if (target == null) {
+                    throw new BaseException("Failed :Invalid request URI " + request.getURI());
                 }
+                response = httpClientPool.getClient(target).execute(target, request);
+            } else {
+                oneShotClient = getHTTPClient();
+                reuseStats.requestSent();
+                reuseStats.connectionOpened();
+                response = oneShotClient.execute(request);
             }
+            T result = reader.read(response);
             closeHTTPRequest(request);// closing the request
+            return result;
         } catch (IOException e) {
             LOGGER.error("Failed :IOException", e);
             throw new BaseException("Failed :IOException", e);
         } finally {
-            if (null != br) {
-                br.close();
-                br = null;
+            if (null != oneShotClient) {
+                oneShotClient.close();
             }
-            LOGGER.info("Exiting sendHttpResponse {}",
-                System.currentTimeMillis());
         }
-        return result.toString();
     }
 
     private BaseException handleHttpResponseStatus(HttpResponse response) {
@@ -261,6 +367,13 @@ public class RestHttpClientWithoutKeepAlive {
 
     }
 
+    /**
+     * Reads a response while its connection is still open
+     */
+    private interface ResponseReader<T> {
+        T read(HttpResponse response) throws IOException;
+    }
+
     private void closeHTTPRequest(HttpRequestBase httpRequest)
         throws ClientProtocolException, IOException {
         if (null != httpRequest) {
@@ -0,0 +1,183 @@
+package org.workspace7.msa.calculator.client.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.NoStackTraceThrowable;
+import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
+import io.vertx.servicediscovery.ServiceDiscovery;
+import io.vertx.servicediscovery.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workspace7.msa.calculator.client.loadbalancer.ServiceEndpointGroup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The cache of {@link ServiceEndpointGroup}s, and so of the service {@link io.vertx.core.http.HttpClient}s, used by
+ * {@link VertxRestClientUtil}.
+ * <ul>
+ * <li>creation is single-flight, concurrent misses for the same service wait for one lookup instead of each building
+ * their own clients</li>
+ * <li>entries are bounded in number and expire when not accessed for a while</li>
+ * <li>entries are invalidated when the service registry announces that one of their records was modified or
+ * removed, new records of a cached service are added to its group in place</li>
+ * </ul>
+ * The clients of evicted or invalidated entries are closed once in-flight requests had time to drain. The cache is
+ * configured with a {@link JsonObject}
+ * <ul>
+ * <li>"maxSize" - maximum number of cached services, defaults to 100</li>
+ * <li>"expireAfterAccess" - idle time in milliseconds after which an entry expires, defaults to 10 minutes</li>
+ * <li>"drainTimeout" - delay in milliseconds before the clients of a removed entry are closed, defaults to 10
+ * seconds</li>
+ * </ul>
+ *
+ * @author kameshs
+ */
+public class ServiceClientCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceClientCache.class);
+
+    private final Vertx vertx;
+    private final ServiceDiscovery serviceDiscovery;
+    private final Function<String, ServiceEndpointGroup> groupFactory;
+    private final long drainTimeout;
+    private final Cache<String, ServiceEndpointGroup> cache;
+    private final ConcurrentMap<String, CompletableFuture<ServiceEndpointGroup>> pendingLoads =
+        new ConcurrentHashMap<>();
+    private final long cleanUpTimerId;
+
+    /**
+     * @param vertx            - the vertx instance
+     * @param serviceDiscovery - the service discovery used to look up the records of a service
+     * @param groupFactory     - creates an empty {@link ServiceEndpointGroup} for a service name
+     * @param config           - the cache configuration
+     */
+    public ServiceClientCache(Vertx vertx, ServiceDiscovery serviceDiscovery,
+                              Function<String, ServiceEndpointGroup> groupFactory, JsonObject config) {
+        this.vertx = vertx;
+        this.serviceDiscovery = serviceDiscovery;
+        this.groupFactory = groupFactory;
+        this.drainTimeout = config.getLong("drainTimeout", 10000L);
+        long expireAfterAccess = config.getLong("expireAfterAccess", TimeUnit.MINUTES.toMillis(10));
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(config.getLong("maxSize", 100L))
+            .expireAfterAccess(expireAfterAccess, TimeUnit.MILLISECONDS)
+            .<String, ServiceEndpointGroup>removalListener(this::onRemoval)
+            .build();
+        // expiry is otherwise only processed as a side effect of cache writes
+        this.cleanUpTimerId = vertx.setPeriodic(Math.max(1000L, expireAfterAccess / 2), id -> cache.cleanUp());
+    }
+
+    /**
+     * Hands the endpoints of the service to the handler, looking them up in the service registry on a miss. The
+     * handler is called on the Vert.x context of the caller.
+     *
+     * @param serviceName - the name of the service
+     * @param handler     - receives the {@link ServiceEndpointGroup} or the failure of the lookup
+     */
+    public void get(String serviceName, Handler<AsyncResult<ServiceEndpointGroup>> handler) {
+        ServiceEndpointGroup endpointGroup = cache.getIfPresent(serviceName);
+        if (endpointGroup != null) {
+            handler.handle(Future.succeededFuture(endpointGroup));
+            return;
+        }
+
+        CompletableFuture<ServiceEndpointGroup> load = new CompletableFuture<>();
+        CompletableFuture<ServiceEndpointGroup> inFlight = pendingLoads.putIfAbsent(serviceName, load);
+        if (inFlight == null) {
+            inFlight = load;
+            LOGGER.info("Http Client for key {} does not exist creating and adding ", serviceName);
+            load(serviceName, load);
+        }
+
+        Context context = vertx.getOrCreateContext();
+        inFlight.whenComplete((loaded, error) -> {
+            AsyncResult<ServiceEndpointGroup> result = error == null
+                ? Future.succeededFuture(loaded) : Future.failedFuture(error);
+            if (Vertx.currentContext() == context) {
+                handler.handle(result);
+            } else {
+                context.runOnContext(v -> handler.handle(result));
+            }
+        });
+    }
+
+    /**
+     * @param serviceName - the name of the service
+     * @return - the cached endpoints of the service, or null when not cached
+     */
+    public ServiceEndpointGroup getIfPresent(String serviceName) {
+        return cache.getIfPresent(serviceName);
+    }
+
+    /**
+     * Reacts to a record announced by the service registry. Modified or removed records invalidate the cached entry
+     * of their service, so that the next request rebuilds it, while new records are added to the cached group.
+     *
+     * @param record - the announced record
+     */
+    public void onRecordAnnounced(Record record) {
+        ServiceEndpointGroup endpointGroup = cache.getIfPresent(record.getName());
+        if (endpointGroup == null) {
+            return;
+        }
+        boolean known = endpointGroup.getEndpoints().stream()
+            .anyMatch(endpoint -> endpoint.getRecord().getRegistration().equals(record.getRegistration()));
+        if (record.getStatus() != Status.UP || known) {
+            LOGGER.info("Record {} of service {} was {}, invalidating its clients", record.getRegistration(),
+                record.getName(), record.getStatus() != Status.UP ? "removed" : "modified");
+            cache.invalidate(record.getName());
+        } else {
+            LOGGER.info("Service {} has a new record, refreshing its endpoints", record.getName());
+            endpointGroup.refresh(serviceDiscovery, result -> {
+            });
+        }
+    }
+
+    /**
+     * Closes the clients of all the cached services
+     */
+    public void close() {
+        vertx.cancelTimer(cleanUpTimerId);
+        cache.asMap().values().forEach(ServiceEndpointGroup::close);
+        cache.invalidateAll();
+    }
+
+    private void load(String serviceName, CompletableFuture<ServiceEndpointGroup> load) {
+        ServiceEndpointGroup endpointGroup = groupFactory.apply(serviceName);
+        endpointGroup.refresh(serviceDiscovery, result -> {
+            if (result.succeeded() && !endpointGroup.getEndpoints().isEmpty()) {
+                cache.put(serviceName, endpointGroup);
+                pendingLoads.remove(serviceName, load);
+                load.complete(endpointGroup);
+            } else {
+                LOGGER.error("Error building HTTP Client for service {}", serviceName, result.cause());
+                endpointGroup.close();
+                pendingLoads.remove(serviceName, load);
+                load.completeExceptionally(result.failed() ? result.cause()
+                    : new NoStackTraceThrowable("No endpoints available for service " + serviceName));
+            }
+        });
+    }
+
+    private void onRemoval(RemovalNotification<String, ServiceEndpointGroup> notification) {
+        ServiceEndpointGroup endpointGroup = notification.getValue();
+        if (endpointGroup == null) {
+            return;
+        }
+        LOGGER.info("Removed clients of service {} from cache ({}), closing them in {} ms", notification.getKey(),
+            notification.getCause(), drainTimeout);
+        vertx.setTimer(Math.max(1L, drainTimeout), id -> endpointGroup.close());
+    }
+}
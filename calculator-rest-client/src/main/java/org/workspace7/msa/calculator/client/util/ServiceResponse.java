@@ -0,0 +1,57 @@
+package org.workspace7.msa.calculator.client.util;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The complete response of a service to a request sent by
+ * {@link VertxRestClientUtil#executeForResponse(io.vertx.core.http.HttpMethod, String, String, String, java.util.Map,
+ * io.vertx.core.Handler)}, whatever its status code. A request rejected before reaching the service is answered 503
+ * with the JSON responseMessage as body.
+ *
+ * @author kameshs
+ */
+public class ServiceResponse {
+
+    private final int statusCode;
+    private final String statusMessage;
+    private final MultiMap headers;
+    private final Buffer body;
+
+    public ServiceResponse(int statusCode, String statusMessage, MultiMap headers, Buffer body) {
+        this.statusCode = statusCode;
+        this.statusMessage = statusMessage;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    /**
+     * @param responseMessage - the status code and message of the rejection
+     * @return - the 503 response of a rejected request
+     */
+    static ServiceResponse rejected(JsonObject responseMessage) {
+        MultiMap headers = new CaseInsensitiveHeaders()
+            .add(HttpHeaders.CONTENT_TYPE, "application/json; charset=utf-8");
+        return new ServiceResponse(503, responseMessage.getString("statusMessage"), headers,
+            Buffer.buffer(responseMessage.encodePrettily()));
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public String getStatusMessage() {
+        return statusMessage;
+    }
+
+    public MultiMap getHeaders() {
+        return headers;
+    }
+
+    public Buffer getBody() {
+        return body;
+    }
+}
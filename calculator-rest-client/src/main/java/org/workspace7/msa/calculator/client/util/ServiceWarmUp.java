@@ -0,0 +1,116 @@
+package org.workspace7.msa.calculator.client.util;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workspace7.msa.calculator.client.loadbalancer.ServiceEndpoint;
+import org.workspace7.msa.calculator.client.loadbalancer.ServiceEndpointGroup;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Pre-creates the clients of the configured services and opens their connection pools by sending a few requests to
+ * every endpoint, so that the first real requests don't pay for it. The pools only stay open when the clients keep
+ * their connections alive, {@link VertxRestClientUtil} does so for the services listed here, see
+ * {@link #isWarmedUp(String)}. It is configured with a {@link JsonObject}
+ * <ul>
+ * <li>"services" - the names of the services to warm up, defaults to none</li>
+ * <li>"path" - the path requested on each endpoint, defaults to "/health"</li>
+ * <li>"requests" - the number of concurrent requests per endpoint, defaults to 5</li>
+ * <li>"timeout" - the time in milliseconds after which the warm up is considered done, defaults to 5000</li>
+ * </ul>
+ * Failures are only logged, a service that can't be warmed up is created on its first request as usual.
+ *
+ * @author kameshs
+ */
+public class ServiceWarmUp {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceWarmUp.class);
+
+    private final Vertx vertx;
+    private final ServiceClientCache clientCache;
+    private final List<String> services;
+    private final String path;
+    private final int requests;
+    private final long timeout;
+
+    public ServiceWarmUp(Vertx vertx, ServiceClientCache clientCache, JsonObject config) {
+        this.vertx = vertx;
+        this.clientCache = clientCache;
+        this.services = config.getJsonArray("services", new JsonArray()).stream()
+            .map(String::valueOf)
+            .collect(Collectors.toList());
+        this.path = config.getString("path", "/health");
+        this.requests = config.getInteger("requests", 5);
+        this.timeout = config.getLong("timeout", 5000L);
+    }
+
+    /**
+     * @param serviceName - the name of the service
+     * @return - true if the service is warmed up, its clients must then keep their connections alive
+     */
+    public boolean isWarmedUp(String serviceName) {
+        return services.contains(serviceName);
+    }
+
+    /**
+     * @return - completes when all the services are warmed up or the timeout passed, never exceptionally
+     */
+    public CompletableFuture<Void> run() {
+        if (services.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> done = CompletableFuture.allOf(services.stream()
+            .map(this::warmUp)
+            .toArray(CompletableFuture[]::new));
+        long timerId = vertx.setTimer(timeout, id -> {
+            if (done.complete(null)) {
+                LOGGER.warn("Warm up of services {} did not finish within {} ms", services, timeout);
+            }
+        });
+        return done.whenComplete((v, e) -> vertx.cancelTimer(timerId));
+    }
+
+    private CompletableFuture<Void> warmUp(String serviceName) {
+        CompletableFuture<Void> warmedUp = new CompletableFuture<>();
+        clientCache.get(serviceName, result -> {
+            if (result.failed()) {
+                LOGGER.warn("Unable to warm up service {} : {}", serviceName, result.cause().getMessage());
+                warmedUp.complete(null);
+                return;
+            }
+            ServiceEndpointGroup endpointGroup = result.result();
+            List<ServiceEndpoint> endpoints = endpointGroup.getEndpoints();
+            AtomicInteger remaining = new AtomicInteger(endpoints.size() * requests);
+            if (remaining.get() == 0) {
+                warmedUp.complete(null);
+                return;
+            }
+            Runnable countDown = () -> {
+                if (remaining.decrementAndGet() == 0) {
+                    LOGGER.info("Warmed up {} endpoint(s) of service {}", endpoints.size(), serviceName);
+                    warmedUp.complete(null);
+                }
+            };
+            for (ServiceEndpoint endpoint : endpoints) {
+                for (int i = 0; i < requests; i++) {
+                    HttpClientRequest request = endpoint.getHttpClient().get(path,
+                        response -> response.bodyHandler(body -> countDown.run()));
+                    request.setTimeout(timeout);
+                    request.exceptionHandler(e -> {
+                        LOGGER.debug("Warm up request to {} failed", endpoint, e);
+                        countDown.run();
+                    });
+                    request.end();
+                }
+            }
+        });
+        return warmedUp;
+    }
+}
@@ -0,0 +1,172 @@
+package org.workspace7.msa.calculator.client.util;
+
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.Pump;
+import io.vertx.ext.web.RoutingContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workspace7.msa.calculator.client.loadbalancer.ServiceEndpoint;
+import org.workspace7.msa.calculator.client.resilience.ServiceGuard;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A reverse proxy {@link Handler} that streams the request and response bodies between the server and the backend
+ * service endpoint picked by the load balancer using a {@link Pump} on each direction, so only a bounded number of
+ * buffers is held per in-flight request whatever the payload size. Status codes and end-to-end headers are passed
+ * through as is, hop-by-hop headers are dropped. Requests go through the {@link ServiceGuard} of the service, those it
+ * rejects are answered 503 without reaching the backend.
+ * <p>
+ * No {@link io.vertx.ext.web.handler.BodyHandler} must be registered on the proxied route, as it would consume the
+ * request body before this handler can stream it.
+ *
+ * @author kameshs
+ */
+public class StreamingProxyHandler implements Handler<RoutingContext> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamingProxyHandler.class);
+
+    private static final Set<String> HOP_BY_HOP_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        HOP_BY_HOP_HEADERS.addAll(Arrays.asList("Connection", "Keep-Alive", "Proxy-Authenticate",
+            "Proxy-Authorization", "TE", "Trailer", "Transfer-Encoding", "Upgrade", "Host"));
+    }
+
+    private final VertxRestClientUtil vertxRestClientUtil;
+    private final String serviceName;
+    private final long timeout;
+
+    /**
+     * @param vertxRestClientUtil - the client utility used to look up the backend client
+     * @param serviceName         - the backend service all requests are proxied to
+     * @param timeout             - the backend request timeout in milliseconds
+     */
+    public StreamingProxyHandler(VertxRestClientUtil vertxRestClientUtil, String serviceName, long timeout) {
+        this.vertxRestClientUtil = vertxRestClientUtil;
+        this.serviceName = serviceName;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void handle(RoutingContext routingContext) {
+        HttpServerRequest serverRequest = routingContext.request();
+        HttpServerResponse serverResponse = routingContext.response();
+
+        // hold the body until the backend request is ready to receive it
+        serverRequest.pause();
+
+        vertxRestClientUtil.getServiceEndpoint(serviceName, endpointResult -> {
+            if (endpointResult.failed()) {
+                serverRequest.resume();
+                sendError(serverResponse, 503, endpointResult.cause().getMessage());
+                return;
+            }
+
+            ServiceGuard.Call call = vertxRestClientUtil.getServiceGuard(serviceName).enter();
+            if (!call.isPermitted()) {
+                serverRequest.resume();
+                serverResponse
+                    .setStatusCode(503)
+                    .putHeader(HttpHeaders.CONTENT_TYPE, "application/json; charset=utf-8")
+                    .end(vertxRestClientUtil.responseMessage(call.getRejectionCode(), call.getRejectionMessage())
+                        .encodePrettily());
+                return;
+            }
+
+            ServiceEndpoint endpoint = endpointResult.result();
+            AtomicBoolean ended = new AtomicBoolean();
+            long start = endpoint.requestStarted();
+            ClientMetrics.RequestSample sample = vertxRestClientUtil.getMetrics()
+                .start(serviceName, serverRequest.method());
+            Handler<Void> endRequest = v -> {
+                if (ended.compareAndSet(false, true)) {
+                    endpoint.requestEnded(start);
+                }
+            };
+
+            HttpClientRequest clientRequest = endpoint.getHttpClient().request(serverRequest.method(),
+                serverRequest.uri(), clientResponse -> {
+                    sample.end(clientResponse.statusCode());
+                    call.end(clientResponse.statusCode());
+                    proxyResponse(clientResponse, serverResponse, endRequest);
+                });
+            clientRequest.setTimeout(timeout);
+            clientRequest.connectionHandler(connection -> sample.newConnection());
+            clientRequest.exceptionHandler(e -> {
+                sample.failed(e);
+                call.failed();
+                endRequest.handle(null);
+                LOGGER.error("Error proxying {} {} to {}", serverRequest.method(), serverRequest.uri(),
+                    endpoint, e);
+                if (serverResponse.headWritten()) {
+                    serverResponse.close();
+                } else {
+                    sendError(serverResponse, 502, String.valueOf(e.getMessage()));
+                }
+            });
+
+            copyHeaders(serverRequest.headers(), clientRequest.headers());
+            if (!clientRequest.headers().contains(HttpHeaders.CONTENT_LENGTH) && hasBody(serverRequest.method())) {
+                clientRequest.setChunked(true);
+            }
+            // the head is sent once the request got a connection, a new one or one reused from the pool
+            clientRequest.sendHead(version -> sample.connected());
+
+            serverRequest.endHandler(v -> clientRequest.end());
+            Pump.pump(serverRequest, clientRequest).start();
+            serverRequest.resume();
+        });
+    }
+
+    private void proxyResponse(HttpClientResponse clientResponse, HttpServerResponse serverResponse,
+                               Handler<Void> endRequest) {
+        serverResponse.setStatusCode(clientResponse.statusCode());
+        serverResponse.setStatusMessage(clientResponse.statusMessage());
+        copyHeaders(clientResponse.headers(), serverResponse.headers());
+        if (!serverResponse.headers().contains(HttpHeaders.CONTENT_LENGTH)) {
+            serverResponse.setChunked(true);
+        }
+        clientResponse.exceptionHandler(e -> {
+            endRequest.handle(null);
+            LOGGER.error("Error streaming response from {}", serviceName, e);
+            serverResponse.close();
+        });
+        clientResponse.endHandler(v -> {
+            endRequest.handle(null);
+            serverResponse.end();
+        });
+        Pump.pump(clientResponse, serverResponse).start();
+    }
+
+    private static void copyHeaders(MultiMap from, MultiMap to) {
+        from.names().stream()
+            .filter(name -> !HOP_BY_HOP_HEADERS.contains(name))
+            .forEach(name -> to.set(name, from.getAll(name)));
+    }
+
+    private static boolean hasBody(HttpMethod method) {
+        return method == HttpMethod.POST || method == HttpMethod.PUT || method == HttpMethod.PATCH;
+    }
+
+    private static void sendError(HttpServerResponse serverResponse, int statusCode, String statusMessage) {
+        serverResponse
+            .setStatusCode(statusCode)
+            .putHeader(HttpHeaders.CONTENT_TYPE, "application/json; charset=utf-8")
+            .end(new JsonObject()
+                .put("statusCode", statusCode)
+                .put("statusMessage", statusMessage)
+                .encodePrettily());
+    }
+}
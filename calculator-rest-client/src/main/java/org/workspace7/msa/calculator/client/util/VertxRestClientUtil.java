@@ -1,30 +1,96 @@
 package org.workspace7.msa.calculator.client.util;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.CaseInsensitiveHeaders;
 import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
 import io.vertx.core.http.HttpClientRequest;
 import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.json.JsonObject;
+import io.vertx.servicediscovery.Record;
 import io.vertx.servicediscovery.ServiceDiscovery;
-import io.vertx.servicediscovery.kubernetes.KubernetesServiceImporter;
-import io.vertx.servicediscovery.types.HttpEndpoint;
+import io.vertx.servicediscovery.ServiceDiscoveryOptions;
+import io.vertx.servicediscovery.spi.ServiceImporter;
+import io.vertx.servicediscovery.types.HttpLocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.workspace7.msa.calculator.client.discovery.ServiceImporters;
+import org.workspace7.msa.calculator.client.loadbalancer.LoadBalancingStrategy;
+import org.workspace7.msa.calculator.client.loadbalancer.ServiceEndpoint;
+import org.workspace7.msa.calculator.client.loadbalancer.ServiceEndpointGroup;
+import org.workspace7.msa.calculator.client.resilience.HedgingPolicy;
+import org.workspace7.msa.calculator.client.resilience.RetryPolicy;
+import org.workspace7.msa.calculator.client.resilience.ServiceGuard;
 
 import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 /**
  * A REST client utility that uses Kubernetes service discovery to perform REST calls to the services.  The
  * application uses the http://vertx.io/docs/vertx-service-discovery-bridge-kubernetes to perform the Service Discovery
- * and store them in the Vert.x service registry.
+ * and store them in the Vert.x service registry. Outside of a cluster the services can be imported from a static
+ * list of endpoints instead.
+ * <p>
+ * Requests are load balanced across all the discovered records of a service, see {@link ServiceEndpointGroup}. The
+ * Kubernetes importer publishes a single record per service, its cluster IP, so the balancing only takes effect with
+ * an importer that publishes the pods or endpoints one by one, such as the "static" importer. The
+ * endpoints are held in a {@link ServiceClientCache} that is kept in line with the service registry announcements.
+ * The utility can be configured with a {@link JsonObject}
+ * <ul>
+ * <li>"loadBalancing" - one of "round-robin" (default), "least-outstanding" or "power-of-two"</li>
+ * <li>"transport" - "http1" (default) for HTTP/1.1 connections, or "h2c" for HTTP/2 over cleartext connections
+ * that multiplex the concurrent requests as streams</li>
+ * <li>"http2Connections" - with "h2c", the number of connections per endpoint, defaults to 1</li>
+ * <li>"http2Streams" - with "h2c", the maximum concurrent streams per connection, defaults to 1000, -1 for as
+ * many as the server allows</li>
+ * <li>"h2cUpgrade" - with "h2c", true to open the connections with an HTTP/1.1 upgrade request, for servers that
+ * do not accept HTTP/2 with prior knowledge, defaults to false</li>
+ * <li>"httpClientOptions" - {@link HttpClientOptions} as JSON, merged over the defaults</li>
+ * <li>"clientCache" - the {@link ServiceClientCache} configuration</li>
+ * <li>"warmup" - the {@link ServiceWarmUp} configuration, the services whose pools are opened at startup, their
+ * clients keep the connections alive whatever the "httpClientOptions"</li>
+ * <li>"readiness" - the {@link ReadinessGate} configuration, how many requests may wait for startup and for how
+ * long</li>
+ * <li>"discovery" - the configuration of the service importer, its "importer" is "kubernetes" (default),
+ * "static" for the fixed endpoints of a {@link org.workspace7.msa.calculator.client.discovery.StaticServiceImporter},
+ * "none" or the class name of a custom importer, see {@link ServiceImporters}</li>
+ * <li>"importKubernetesServices" - false to skip the Kubernetes import when no "discovery" importer is set, when the
+ * records are published to {@link #getServiceDiscovery()} by the application itself, defaults to true</li>
+ * <li>"requestTimeout" - the time in milliseconds a request waits for its response, defaults to 10000</li>
+ * <li>"circuitBreaker" - the {@link org.workspace7.msa.calculator.client.resilience.CircuitBreaker} configuration
+ * </li>
+ * <li>"bulkhead" - the {@link org.workspace7.msa.calculator.client.resilience.Bulkhead} configuration</li>
+ * <li>"hedging" - the {@link HedgingPolicy} configuration of the GET requests, disabled by default</li>
+ * <li>"retry" - the {@link RetryPolicy} configuration of the GET requests, disabled by default</li>
+ * </ul>
+ * Startup runs as a pipeline: the services are imported, {@link #discoveryCompletion()} completes, the configured
+ * services are warmed up and finally {@link #readiness()} completes. Requests that arrive before that are queued
+ * until the client is ready instead of being rejected.
+ * <p>
+ * Every request sent to a service is recorded in the {@link ClientMetrics} of {@link #getMetrics()}, tagged with the
+ * service name and the http method.
+ * <p>
+ * Each service gets its own {@link ServiceGuard}, a circuit breaker and a bulkhead. Calls that the guard rejects are
+ * not sent and are answered at once with the status code 1001 when the circuit is open and 1002 when the bulkhead is
+ * full, as are the requests to a service without endpoints with the status code 999.
+ * <p>
+ * GET requests are idempotent, when hedging or retries are enabled they are sent as a {@link HedgedGet}, which may
+ * send the request to more than one endpoint and keeps the first answer.
  *
  * @author kameshs
  */
@@ -32,8 +98,9 @@ public class VertxRestClientUtil {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(VertxRestClientUtil.class);
 
-    private final long CONNECTION_TIMEOUT = 10000L;
+    private static final long CONNECTION_TIMEOUT = 10000L;
     private final Vertx vertx;
+    private final JsonObject config;
     private ServiceDiscovery serviceDiscovery;
     private JsonObject httpClientOptions = new JsonObject();
 
@@ -49,72 +116,204 @@ public class VertxRestClientUtil {
      */
     private final JsonObject k8sConfig = new JsonObject();
 
-    private boolean isServiceable = false;
+    private final CompletableFuture<Void> discoveryCompletion = new CompletableFuture<>();
 
-    private Cache<String, HttpClient> httpClientCache;
+    private final ReadinessGate readinessGate;
+
+    private ServiceClientCache httpClientCache;
+
+    private ServiceWarmUp serviceWarmUp;
+
+    private final ClientMetrics metrics;
+
+    private final long requestTimeout;
+
+    private final ConcurrentMap<String, ServiceGuard> serviceGuards = new ConcurrentHashMap<>();
+
+    private final HedgingPolicy hedgingPolicy;
+
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * reads the 200 responses as their body, the others and the rejections as a responseMessage
+     */
+    private final ResponseReader<String> stringReader = new ResponseReader<String>() {
+        @Override
+        public void read(HttpClientResponse response, Handler<AsyncResult<String>> resultHandler) {
+            handleResponse(response, resultHandler);
+        }
+
+        @Override
+        public AsyncResult<String> rejected(JsonObject responseMessage) {
+            return Future.succeededFuture(responseMessage.encodePrettily());
+        }
+    };
+
+    /**
+     * reads every response as a {@link ServiceResponse}, the rejections as a 503 one
+     */
+    private final ResponseReader<ServiceResponse> serviceResponseReader =
+        new ResponseReader<ServiceResponse>() {
+            @Override
+            public void read(HttpClientResponse response, Handler<AsyncResult<ServiceResponse>> resultHandler) {
+                MultiMap headers = new CaseInsensitiveHeaders().addAll(response.headers());
+                readBody(response, resultHandler,
+                    body -> new ServiceResponse(response.statusCode(), response.statusMessage(), headers, body));
+            }
+
+            @Override
+            public AsyncResult<ServiceResponse> rejected(JsonObject responseMessage) {
+                return Future.succeededFuture(ServiceResponse.rejected(responseMessage));
+            }
+        };
 
     public VertxRestClientUtil() {
-        vertx = Vertx.vertx();
-        discoverServices();
+        this(Vertx.vertx());
+    }
+
+    /**
+     * Creates the client utility on an existing {@link Vertx} instance, verticles should pass their own instance so
+     * that the service clients share the event loops of the verticle
+     *
+     * @param vertx - the vertx instance to use
+     */
+    public VertxRestClientUtil(Vertx vertx) {
+        this(vertx, new JsonObject());
+    }
+
+    /**
+     * @param vertx  - the vertx instance to use
+     * @param config - the client configuration, see the class documentation for the supported keys
+     */
+    public VertxRestClientUtil(Vertx vertx, JsonObject config) {
+        this(vertx, config, new SimpleMeterRegistry());
+    }
+
+    /**
+     * @param vertx         - the vertx instance to use
+     * @param config        - the client configuration, see the class documentation for the supported keys
+     * @param meterRegistry - the registry the {@link ClientMetrics} are registered with
+     */
+    public VertxRestClientUtil(Vertx vertx, JsonObject config, MeterRegistry meterRegistry) {
+        this.vertx = vertx;
+        this.config = config;
+        this.metrics = new ClientMetrics(meterRegistry);
+        this.requestTimeout = config.getLong("requestTimeout", CONNECTION_TIMEOUT);
+        this.hedgingPolicy = new HedgingPolicy(config.getJsonObject("hedging", new JsonObject()));
+        this.retryPolicy = new RetryPolicy(config.getJsonObject("retry", new JsonObject()));
 
         httpClientOptions.put("keepAlive", false);
         httpClientOptions.put("minPoolSize", 5);
         httpClientOptions.put("maxPoolSize", 25);
+        if ("h2c".equals(config.getString("transport", "http1"))) {
+            // prior knowledge by default, the connections start as HTTP/2 without an upgrade round trip
+            httpClientOptions.put("protocolVersion", HttpVersion.HTTP_2.name());
+            httpClientOptions.put("http2ClearTextUpgrade", config.getBoolean("h2cUpgrade", false));
+            httpClientOptions.put("keepAlive", true);
+            httpClientOptions.put("http2MaxPoolSize", config.getInteger("http2Connections", 1));
+            httpClientOptions.put("http2MultiplexingLimit", config.getInteger("http2Streams", 1000));
+        }
+        httpClientOptions.mergeIn(config.getJsonObject("httpClientOptions", new JsonObject()));
+
+        readinessGate = new ReadinessGate(vertx, config.getJsonObject("readiness", new JsonObject()));
 
-        httpClientCache = CacheBuilder.newBuilder().build();
+        discoverServices();
     }
 
     /**
-     * This will discover all Kubernetes services in the cluster, and enables the flag isServiceable to allow
-     * the clients to start using the REST client
+     * This will import the services with the configured importer, warm up the configured services and then open the
+     * readiness gate to allow the clients to start using the REST client
      */
     public void discoverServices() {
         serviceDiscovery = ServiceDiscovery.create(vertx);
-        KubernetesServiceImporter kubernetesServiceImporter = new KubernetesServiceImporter();
-        serviceDiscovery.registerServiceImporter(kubernetesServiceImporter, k8sConfig, result -> {
+        httpClientCache = new ServiceClientCache(vertx, serviceDiscovery, this::createEndpointGroup,
+            config.getJsonObject("clientCache", new JsonObject()));
+        serviceWarmUp = new ServiceWarmUp(vertx, httpClientCache, config.getJsonObject("warmup", new JsonObject()));
+        Handler<AsyncResult<Void>> importHandler = result -> {
 
             if (result.succeeded()) {
-                isServiceable = true;
+                discoveryCompletion.complete(null);
+                serviceWarmUp.run().whenComplete((v, e) -> readinessGate.open());
             } else {
                 LOGGER.error("Error while discovering service", result.cause());
+                discoveryCompletion.completeExceptionally(result.cause());
+                readinessGate.fail(result.cause());
             }
-        });
+        };
+
+        JsonObject discoveryConfig = config.getJsonObject("discovery", new JsonObject());
+        String importerName = discoveryConfig.getString("importer",
+            config.getBoolean("importKubernetesServices", true) ? "kubernetes" : "none");
+        ServiceImporter serviceImporter = ServiceImporters.fromName(importerName);
+        if (serviceImporter != null) {
+            LOGGER.info("Importing the services with the {} service importer", importerName);
+            serviceDiscovery.registerServiceImporter(serviceImporter, k8sConfig.copy().mergeIn(discoveryConfig),
+                importHandler);
+        } else {
+            LOGGER.info("Service import is disabled, using the records published by the application");
+            importHandler.handle(Future.succeededFuture());
+        }
 
+        vertx.eventBus().<JsonObject>consumer(new ServiceDiscoveryOptions().getAnnounceAddress(),
+            message -> httpClientCache.onRecordAnnounced(new Record(message.body())));
     }
 
     /**
-     * Checks the local cache for the client implementation, if one found it will use it to handle the request
-     * else will create one client, put it to the cache and will use that new client to handle
+     * Creates the empty endpoint group of a service, using the configured load balancing strategy
      *
-     * @param serviceName   - the service name which will be used to look up the client in cache
-     * @param clientHandler - the handler which will be responsible for handling the {@link HttpClient}
-     * @throws ExecutionException - any error that might occur while getting element from cache
+     * @param serviceName - the name of the service
+     * @return - the {@link ServiceEndpointGroup}
      */
-    private void getClient(String serviceName, Handler<Optional<HttpClient>> clientHandler) throws ExecutionException {
+    private ServiceEndpointGroup createEndpointGroup(String serviceName) {
+        return new ServiceEndpointGroup(serviceName,
+            LoadBalancingStrategy.fromName(config.getString("loadBalancing", "round-robin")),
+            this::createHttpClient);
+    }
 
-        //Check the cache for the service
-        HttpClient httpClient = null;
-        try {
-            httpClient = httpClientCache.get(serviceName, () -> null);
-            if (httpClient != null) {
-                clientHandler.handle(Optional.ofNullable(httpClient));
+    /**
+     * Creates the {@link HttpClient} bound to the location of one service record
+     *
+     * @param record - the service record
+     * @return - the client
+     */
+    protected HttpClient createHttpClient(Record record) {
+        HttpLocation location = new HttpLocation(record.getLocation());
+        HttpClientOptions options = new HttpClientOptions(httpClientOptions)
+            .setDefaultHost(location.getHost())
+            .setDefaultPort(location.getPort())
+            .setSsl(location.isSsl());
+        if (serviceWarmUp.isWarmedUp(record.getName())) {
+            // without keep alive the warmed up connections would be closed as soon as they are answered
+            options.setKeepAlive(true);
+        }
+        return vertx.createHttpClient(options);
+    }
+
+    /**
+     * Hands the load balanced {@link ServiceEndpoint} for the next request of the service to the endpointHandler,
+     * for callers such as proxies that need to drive the request and response streams themselves. The caller must
+     * report the request to the endpoint via {@link ServiceEndpoint#requestStarted()} and
+     * {@link ServiceEndpoint#requestEnded(long)}
+     *
+     * @param serviceName     - name of the service which will serve the REST request
+     * @param endpointHandler - the handler that will receive the endpoint, or the failure if none is available
+     */
+    public void getServiceEndpoint(String serviceName, Handler<AsyncResult<ServiceEndpoint>> endpointHandler) {
+        readinessGate.await(ready -> {
+            if (ready.failed()) {
+                endpointHandler.handle(Future.failedFuture(
+                    "Service Discovery is not completed, please try after sometime"));
                 return;
             }
-        } catch (CacheLoader.InvalidCacheLoadException e) {
-            LOGGER.info("Http Client for key {} does not exist creating and adding ",serviceName);
-            //Since we don't have the client we need to create one via Service Discovery
-            HttpEndpoint.getClient(serviceDiscovery, buildServiceFilter(serviceName), httpClientOptions, result -> {
-
-                if (result.succeeded()) {
-                    HttpClient newHttpClient = result.result();
-                    httpClientCache.put(serviceName, newHttpClient);
-                    clientHandler.handle(Optional.of(newHttpClient));
+            httpClientCache.get(serviceName, endpointGroup -> {
+                ServiceEndpoint endpoint = endpointGroup.succeeded() ? endpointGroup.result().select() : null;
+                if (endpoint != null) {
+                    endpointHandler.handle(Future.succeededFuture(endpoint));
                 } else {
-                    LOGGER.error("Error building HTTP Client: ", result.cause());
-                    clientHandler.handle(null);
+                    endpointHandler.handle(Future.failedFuture("Unable to load client from Cache"));
                 }
             });
-        }
+        });
     }
 
     /**
@@ -128,31 +327,7 @@ public class VertxRestClientUtil {
 
     public void executeDELETE(String serviceName, String path, Map<String, String> headers,
                               Handler<AsyncResult<String>> responseHandler) {
-
-        if (isServiceable()) {
-            try {
-                getClient(serviceName, httpClient -> {
-                    if (httpClient.isPresent()) {
-                        HttpClientRequest request = httpClient.get().delete(path,
-                            (res) -> handleResponse(res, responseHandler));
-                        request.setTimeout(CONNECTION_TIMEOUT);
-                        if (headers != null && !headers.isEmpty()) {
-                            headers.forEach((k, v) -> request.putHeader(k, v));
-                        }
-                        request.end();
-                    } else {
-                        responseHandler.handle(Future.failedFuture(responseMessage(
-                            999, "Unable to load client from Cache").encodePrettily()));
-                    }
-                });
-            } catch (ExecutionException e) {
-                LOGGER.error("Error getting Service : " + serviceName + "from cache", e);
-                responseHandler.handle(Future.failedFuture(responseMessage(
-                    999, "Unable to load client from Cache").encodePrettily()));
-            }
-        } else {
-            serviceClientUnavailable(responseHandler);
-        }
+        execute(HttpMethod.DELETE, serviceName, path, null, headers, stringReader, responseHandler);
     }
 
     /**
@@ -165,33 +340,7 @@ public class VertxRestClientUtil {
      */
     public void executeGET(String serviceName, String path, Map<String, String> headers,
                            Handler<AsyncResult<String>> responseHandler) {
-        if (isServiceable()) {
-
-            try {
-                getClient(serviceName, httpClient -> {
-
-                    if (httpClient.isPresent()) {
-                        HttpClientRequest request = httpClient.get()
-                            .get(path, (res) -> handleResponse(res, responseHandler));
-                        request.setTimeout(CONNECTION_TIMEOUT);
-                        if (headers != null && !headers.isEmpty()) {
-                            headers.forEach((k, v) -> request.putHeader(k, v));
-                        }
-                        request.end();
-                    } else {
-                        responseHandler.handle(Future.failedFuture(responseMessage(
-                            999, "Unable to load client from Cache").encodePrettily()));
-                    }
-                });
-            } catch (ExecutionException e) {
-                LOGGER.error("Error getting Service : " + serviceName + "from cache", e);
-                responseHandler.handle(Future.failedFuture(responseMessage(
-                    999, "Unable to load client from Cache").encodePrettily()));
-            }
-        } else {
-            serviceClientUnavailable(responseHandler);
-        }
-
+        execute(HttpMethod.GET, serviceName, path, null, headers, stringReader, responseHandler);
     }
 
     /**
@@ -205,33 +354,7 @@ public class VertxRestClientUtil {
      */
     public void executePOST(String serviceName, String path, String body, Map<String, String> headers,
                             Handler<AsyncResult<String>> responseHandler) {
-        if (isServiceable()) {
-            try {
-
-                getClient(serviceName, httpClient -> {
-
-                    if (httpClient.isPresent()) {
-                        HttpClientRequest request = httpClient.get()
-                            .post(path, (res) -> handleResponse(res, responseHandler));
-                        request.setTimeout(CONNECTION_TIMEOUT);
-                        headers.forEach((k, v) -> request.putHeader(k, v));
-                        request
-                            .write(body)
-                            .end();
-                    } else {
-                        responseHandler.handle(Future.failedFuture(responseMessage(
-                            999, "Unable to load client from Cache").encodePrettily()));
-                    }
-
-                });
-            } catch (ExecutionException e) {
-                LOGGER.error("Error getting Service : " + serviceName + "from cache", e);
-                responseHandler.handle(Future.failedFuture(responseMessage(
-                    999, "Unable to load client from Cache").encodePrettily()));
-            }
-        } else {
-            serviceClientUnavailable(responseHandler);
-        }
+        execute(HttpMethod.POST, serviceName, path, body, headers, stringReader, responseHandler);
     }
 
     /**
@@ -246,38 +369,128 @@ public class VertxRestClientUtil {
 
     public void executePUT(String serviceName, String path, String body, Map<String, String> headers,
                            Handler<AsyncResult<String>> responseHandler) {
-        if (isServiceable()) {
-            try {
-
-                getClient(serviceName, httpClient -> {
-
-                    if (httpClient.isPresent()) {
-                        HttpClientRequest request = httpClient.get()
-                            .put(path, (res) -> handleResponse(res, responseHandler));
-                        request.setTimeout(CONNECTION_TIMEOUT);
-                        headers.forEach((k, v) -> request.putHeader(k, v));
-                        request
-                            .write(body)
-                            .end();
-                    } else {
-                        responseHandler.handle(Future.failedFuture(responseMessage(
-                            999, "Unable to load client from Cache").encodePrettily()));
-                    }
-                });
-            } catch (ExecutionException e) {
-                LOGGER.error("Error getting Service : " + serviceName + "from cache", e);
-                responseHandler.handle(Future.failedFuture(responseMessage(
-                    999, "Unable to load client from Cache").encodePrettily()));
+        execute(HttpMethod.PUT, serviceName, path, body, headers, stringReader, responseHandler);
+    }
+
+    /**
+     * Performs the request like the other execute methods, but hands over the complete response whatever its status
+     * code, for callers such as caches and proxies that need the status and headers of the response. Requests
+     * rejected before reaching the service are answered with a 503 {@link ServiceResponse}
+     *
+     * @param method          - the http method
+     * @param serviceName     - name of the service which will serve the REST request
+     * @param path            - the REST path
+     * @param body            - the request body, null for methods without one
+     * @param headers         - optional headers to add to the request
+     * @param responseHandler - the handler that will hold the response of the service call
+     */
+    public void executeForResponse(HttpMethod method, String serviceName, String path, String body,
+                                   Map<String, String> headers, Handler<AsyncResult<ServiceResponse>> responseHandler) {
+        execute(method, serviceName, path, body, headers, serviceResponseReader, responseHandler);
+    }
+
+    /**
+     * Sends the request to the endpoint picked by the load balancer of the service
+     *
+     * @param method          - the http method
+     * @param serviceName     - name of the service which will serve the REST request
+     * @param path            - the REST path
+     * @param body            - the request body, null for methods without one
+     * @param headers         - optional headers to add to the request
+     * @param responseReader  - reads the response into the result
+     * @param responseHandler - the handler that will hold the response of the service call
+     */
+    private <T> void execute(HttpMethod method, String serviceName, String path, String body,
+                             Map<String, String> headers, ResponseReader<T> responseReader,
+                             Handler<AsyncResult<T>> responseHandler) {
+        readinessGate.await(ready -> {
+            if (ready.failed()) {
+                LOGGER.debug("Rejecting {} {} : {}", method, path, ready.cause().getMessage());
+                responseHandler.handle(responseReader.rejected(responseMessage(1000,
+                    "Service Discovery is not completed, please try after sometime")));
+                return;
             }
+            httpClientCache.get(serviceName, endpointGroup -> {
+                if (method == HttpMethod.GET && endpointGroup.succeeded()
+                    && (hedgingPolicy.isEnabled() || retryPolicy.isEnabled())) {
+                    new HedgedGet<>(this, vertx, endpointGroup.result(), path, headers, responseReader,
+                        responseHandler).start();
+                    return;
+                }
+                ServiceEndpoint endpoint = endpointGroup.succeeded() ? endpointGroup.result().select() : null;
+                if (endpoint == null) {
+                    responseHandler.handle(responseReader.rejected(responseMessage(
+                        999, "Unable to load client from Cache")));
+                    return;
+                }
+                ServiceGuard.Call call = getServiceGuard(serviceName).enter();
+                if (call.isPermitted()) {
+                    send(serviceName, call, endpoint, method, path, body, headers, responseReader, responseHandler);
+                } else {
+                    LOGGER.debug("Rejecting {} {} : {}", method, path, call.getRejectionMessage());
+                    responseHandler.handle(responseReader.rejected(responseMessage(
+                        call.getRejectionCode(), call.getRejectionMessage())));
+                }
+            });
+        });
+    }
 
-        } else {
-            serviceClientUnavailable(responseHandler);
+    private <T> void send(String serviceName, ServiceGuard.Call call, ServiceEndpoint endpoint, HttpMethod method,
+                          String path, String body, Map<String, String> headers, ResponseReader<T> responseReader,
+                          Handler<AsyncResult<T>> responseHandler) {
+        AtomicBoolean ended = new AtomicBoolean();
+        long start = endpoint.requestStarted();
+        ClientMetrics.RequestSample sample = metrics.start(serviceName, method);
+        Handler<AsyncResult<T>> completionHandler = result -> {
+            if (ended.compareAndSet(false, true)) {
+                endpoint.requestEnded(start);
+                responseHandler.handle(result);
+            }
+        };
+
+        HttpClientRequest request = endpoint.getHttpClient()
+            .request(method, path, (res) -> {
+                sample.end(res.statusCode());
+                call.end(res.statusCode());
+                responseReader.read(res, completionHandler);
+            });
+        request.setTimeout(requestTimeout);
+        request.connectionHandler(connection -> sample.newConnection());
+        request.exceptionHandler(e -> {
+            sample.failed(e);
+            call.failed();
+            LOGGER.error("Error calling {} {} on {}", method, path, endpoint, e);
+            completionHandler.handle(Future.failedFuture(responseMessage(
+                502, "Error calling service : " + e.getMessage()).encodePrettily()));
+        });
+        if (headers != null && !headers.isEmpty()) {
+            headers.forEach((k, v) -> request.putHeader(k, v));
+        }
+        try {
+            Buffer buffer = body != null ? Buffer.buffer(body) : null;
+            if (buffer != null) {
+                // an HTTP/1.1 request that is neither chunked nor sized must not write a body
+                request.putHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(buffer.length()));
+            }
+            // the head is sent once the request got a connection, a new one or one reused from the pool
+            request.sendHead(version -> sample.connected());
+            if (buffer != null) {
+                request.end(buffer);
+            } else {
+                request.end();
+            }
+        } catch (RuntimeException e) {
+            sample.failed(e);
+            call.failed();
+            LOGGER.error("Error sending {} {} to {}", method, path, endpoint, e);
+            completionHandler.handle(Future.failedFuture(responseMessage(
+                502, "Error calling service : " + e.getMessage()).encodePrettily()));
         }
     }
 
     /**
-     * the method will add the client service not available to the response as JSON when isServiceable flag is false
-     * with STATUS_CODE of 1000
+     * the method will add the client service not available to the response as JSON when the client did not become
+     * ready in time with STATUS_CODE of 1000
      *
      * @param responseHandler - the response handler where the JSON response string will be added
      */
@@ -294,7 +507,68 @@ public class VertxRestClientUtil {
      * @return - true if the client is ready to service
      */
     public boolean isServiceable() {
-        return isServiceable;
+        return readinessGate.isOpen();
+    }
+
+    /**
+     * @return - the metrics of the requests sent to the services
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param serviceName - the name of the service
+     * @return - the circuit breaker and bulkhead every call to the service must go through
+     */
+    public ServiceGuard getServiceGuard(String serviceName) {
+        return serviceGuards.computeIfAbsent(serviceName, name -> new ServiceGuard(name,
+            config.getJsonObject("circuitBreaker", new JsonObject()),
+            config.getJsonObject("bulkhead", new JsonObject())));
+    }
+
+    HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * @return - per service, the state of its circuit breaker and bulkhead
+     */
+    public JsonObject guardStats() {
+        JsonObject stats = new JsonObject();
+        serviceGuards.forEach((serviceName, guard) -> stats.put(serviceName, guard.stats()));
+        return stats;
+    }
+
+    /**
+     * @return - the service registry the clients are looked up in
+     */
+    public ServiceDiscovery getServiceDiscovery() {
+        return serviceDiscovery;
+    }
+
+    /**
+     * @return - completes when the services have been imported into the service registry, exceptionally if the
+     * import failed
+     */
+    public CompletionStage<Void> discoveryCompletion() {
+        return discoveryCompletion;
+    }
+
+    /**
+     * @return - completes when the services have been imported and the configured services warmed up, exceptionally
+     * if the import failed
+     */
+    public CompletionStage<Void> readiness() {
+        return readinessGate.readiness();
     }
 
     /**
@@ -308,13 +582,38 @@ public class VertxRestClientUtil {
         LOGGER.debug("Status Message: " + res.statusMessage());
         //handling only 200
         if (200 == res.statusCode()) {
-            res.bodyHandler(buffer -> responseHandler.handle(Future.succeededFuture(buffer.toString())));
+            readBody(res, responseHandler, Buffer::toString);
         } else {
-            res.bodyHandler(buffer -> responseHandler.handle(Future.succeededFuture(
-                responseMessage(res.statusCode(), res.statusMessage()).encodePrettily())));
+            readBody(res, responseHandler,
+                buffer -> responseMessage(res.statusCode(), res.statusMessage()).encodePrettily());
         }
     }
 
+    /**
+     * Reads the body of the response into the result, or answers a 502 when the response fails before its end, e.g.
+     * when the stream is reset or the connection closed in the middle of the body
+     *
+     * @param res           - the http response returned by the client
+     * @param resultHandler - the handler that is completed once, with the body or the failure
+     * @param bodyReader    - turns the body into the result
+     */
+    private <T> void readBody(HttpClientResponse res, Handler<AsyncResult<T>> resultHandler,
+                              Function<Buffer, T> bodyReader) {
+        AtomicBoolean read = new AtomicBoolean();
+        res.exceptionHandler(e -> {
+            if (read.compareAndSet(false, true)) {
+                LOGGER.error("Error reading the {} response", res.statusCode(), e);
+                resultHandler.handle(Future.failedFuture(responseMessage(
+                    502, "Error reading response : " + e.getMessage()).encodePrettily()));
+            }
+        });
+        res.bodyHandler(body -> {
+            if (read.compareAndSet(false, true)) {
+                resultHandler.handle(Future.succeededFuture(bodyReader.apply(body)));
+            }
+        });
+    }
+
 
     /**
      * Builds the Kubernetes service filter based on &quotname&quot;
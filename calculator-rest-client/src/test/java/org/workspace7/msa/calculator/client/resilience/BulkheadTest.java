@@ -0,0 +1,68 @@
+package org.workspace7.msa.calculator.client.resilience;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that {@link Bulkhead} caps the concurrent calls, and that the calls of a {@link ServiceGuard} give their
+ * permit back exactly once
+ *
+ * @author kameshs
+ */
+public class BulkheadTest {
+
+    @Test
+    public void rejectsCallsBeyondTheLimitUntilOneIsReleased() {
+        Bulkhead bulkhead = new Bulkhead(new JsonObject().put("maxConcurrentCalls", 2));
+
+        assertTrue(bulkhead.tryAcquire());
+        assertTrue(bulkhead.tryAcquire());
+        assertFalse(bulkhead.tryAcquire());
+        assertEquals(2, bulkhead.getConcurrentCalls());
+
+        bulkhead.release();
+
+        assertEquals(1, bulkhead.getConcurrentCalls());
+        assertTrue(bulkhead.tryAcquire());
+        assertFalse(bulkhead.tryAcquire());
+    }
+
+    @Test
+    public void releasesThePermitOfAGuardedCallOnce() {
+        ServiceGuard guard = new ServiceGuard("calculator", new JsonObject(),
+            new JsonObject().put("maxConcurrentCalls", 1));
+
+        ServiceGuard.Call call = guard.enter();
+        assertTrue(call.isPermitted());
+        ServiceGuard.Call rejected = guard.enter();
+        assertFalse(rejected.isPermitted());
+        assertEquals(ServiceGuard.BULKHEAD_FULL, rejected.getRejectionCode());
+
+        // a rejected call holds no permit, and a call reports its outcome once however often it is ended
+        rejected.cancel();
+        call.end(200);
+        call.cancel();
+        call.failed();
+
+        assertEquals(0, guard.getBulkhead().getConcurrentCalls());
+        assertEquals(1, (int) guard.getCircuitBreaker().stats().getInteger("calls"));
+    }
+
+    @Test
+    public void releasesThePermitOfACallRejectedByTheCircuitBreaker() {
+        ServiceGuard guard = new ServiceGuard("calculator",
+            new JsonObject().put("windowSize", 1).put("minimumCalls", 1).put("openDuration", 60000L),
+            new JsonObject().put("maxConcurrentCalls", 1));
+        guard.enter().failed();
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitBreaker().getState());
+
+        ServiceGuard.Call rejected = guard.enter();
+
+        assertEquals(ServiceGuard.CIRCUIT_OPEN, rejected.getRejectionCode());
+        assertEquals(0, guard.getBulkhead().getConcurrentCalls());
+    }
+}
@@ -0,0 +1,169 @@
+package org.workspace7.msa.calculator.client.resilience;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Tests the sliding window, the half open trials and the stamps of {@link CircuitBreaker}
+ *
+ * @author kameshs
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensWhenTheFailureRateReachesTheThreshold() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(config(4, 0L));
+
+        record(circuitBreaker, false);
+        record(circuitBreaker, true);
+        record(circuitBreaker, false);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        record(circuitBreaker, true);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void rejectsCallsWhileOpen() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(config(2, 60000L));
+        record(circuitBreaker, true);
+        record(circuitBreaker, true);
+
+        assertEquals(CircuitBreaker.REJECTED, circuitBreaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void evictsTheOldestCallsFromTheWindow() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(config(4, 0L));
+        record(circuitBreaker, false);
+        record(circuitBreaker, true);
+        record(circuitBreaker, false);
+        record(circuitBreaker, false);
+        assertEquals(25, (int) circuitBreaker.stats().getInteger("failureRate"));
+
+        record(circuitBreaker, false);
+        record(circuitBreaker, false);
+
+        // the failure fell out of the window, over all 6 calls the rate would still be 16%
+        assertEquals(4, (int) circuitBreaker.stats().getInteger("calls"));
+        assertEquals(0, (int) circuitBreaker.stats().getInteger("failureRate"));
+
+        record(circuitBreaker, true);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        record(circuitBreaker, true);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void opensWhenTheSlowCallRateReachesTheThreshold() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(config(2, 60000L)
+            .put("slowCallDuration", 10L)
+            .put("slowCallRateThreshold", 100));
+
+        long fast = circuitBreaker.tryAcquire();
+        circuitBreaker.onResult(fast, TimeUnit.MILLISECONDS.toNanos(1), false);
+        long slow = circuitBreaker.tryAcquire();
+        circuitBreaker.onResult(slow, TimeUnit.MILLISECONDS.toNanos(20), false);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        slow = circuitBreaker.tryAcquire();
+        circuitBreaker.onResult(slow, TimeUnit.MILLISECONDS.toNanos(20), false);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void letsTheConfiguredNumberOfTrialCallsThroughWhenHalfOpen() {
+        CircuitBreaker circuitBreaker = open(new CircuitBreaker(config(4, 0L).put("halfOpenCalls", 3)));
+
+        long first = circuitBreaker.tryAcquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        long second = circuitBreaker.tryAcquire();
+        long third = circuitBreaker.tryAcquire();
+        assertNotEquals(CircuitBreaker.REJECTED, first);
+        assertNotEquals(CircuitBreaker.REJECTED, second);
+        assertNotEquals(CircuitBreaker.REJECTED, third);
+        assertEquals(CircuitBreaker.REJECTED, circuitBreaker.tryAcquire());
+
+        circuitBreaker.onResult(first, 0L, false);
+        circuitBreaker.onResult(second, 0L, false);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        circuitBreaker.onResult(third, 0L, false);
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void reopensWhenTheTrialCallsFail() {
+        CircuitBreaker circuitBreaker = open(new CircuitBreaker(config(2, 0L).put("halfOpenCalls", 2)));
+
+        long first = circuitBreaker.tryAcquire();
+        long second = circuitBreaker.tryAcquire();
+        circuitBreaker.onResult(first, 0L, false);
+        circuitBreaker.onResult(second, 0L, true);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void givesBackThePermitOfACancelledTrialCall() {
+        CircuitBreaker circuitBreaker = open(new CircuitBreaker(config(2, 0L).put("halfOpenCalls", 1)));
+
+        long trial = circuitBreaker.tryAcquire();
+        assertEquals(CircuitBreaker.REJECTED, circuitBreaker.tryAcquire());
+        circuitBreaker.onCancel(trial);
+
+        assertNotEquals(CircuitBreaker.REJECTED, circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void ignoresTheOutcomeOfCallsPermittedBeforeAStateChange() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(config(2, 0L).put("halfOpenCalls", 2));
+        long stale = circuitBreaker.tryAcquire();
+        open(circuitBreaker);
+
+        long trial = circuitBreaker.tryAcquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        circuitBreaker.onResult(stale, 0L, true);
+        circuitBreaker.onCancel(stale);
+
+        // neither counted as a trial call nor gave a trial permit back
+        assertEquals(0, (int) circuitBreaker.stats().getInteger("calls"));
+        assertNotEquals(CircuitBreaker.REJECTED, circuitBreaker.tryAcquire());
+        assertEquals(CircuitBreaker.REJECTED, circuitBreaker.tryAcquire());
+
+        circuitBreaker.onResult(trial, 0L, false);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    }
+
+    /**
+     * @return - a breaker configuration over a window of windowSize calls, all evaluated, that opens at 50% failures
+     */
+    private static JsonObject config(int windowSize, long openDuration) {
+        return new JsonObject()
+            .put("windowSize", windowSize)
+            .put("minimumCalls", windowSize)
+            .put("failureRateThreshold", 50)
+            .put("slowCallDuration", 60000L)
+            .put("openDuration", openDuration);
+    }
+
+    private static CircuitBreaker open(CircuitBreaker circuitBreaker) {
+        while (circuitBreaker.getState() != CircuitBreaker.State.OPEN) {
+            record(circuitBreaker, true);
+        }
+        return circuitBreaker;
+    }
+
+    private static void record(CircuitBreaker circuitBreaker, boolean failure) {
+        long stamp = circuitBreaker.tryAcquire();
+        assertNotEquals(CircuitBreaker.REJECTED, stamp);
+        circuitBreaker.onResult(stamp, 0L, failure);
+    }
+}
@@ -0,0 +1,85 @@
+package org.workspace7.msa.calculator.client.resilience;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the retry budget and the jittered backoff of {@link RetryPolicy}
+ *
+ * @author kameshs
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void isDisabledByDefault() {
+        assertFalse(new RetryPolicy(new JsonObject()).isEnabled());
+        assertTrue(new RetryPolicy(new JsonObject().put("maxRetries", 1)).isEnabled());
+    }
+
+    @Test
+    public void retriesOnlyWhatTheRequestsEarned() {
+        RetryPolicy retryPolicy = new RetryPolicy(new JsonObject()
+            .put("budgetRatio", 0.5d)
+            .put("minRetriesPerSecond", 0));
+        assertFalse(retryPolicy.tryAcquire());
+
+        retryPolicy.onRequest();
+        assertFalse(retryPolicy.tryAcquire());
+        retryPolicy.onRequest();
+
+        assertTrue(retryPolicy.tryAcquire());
+        assertFalse(retryPolicy.tryAcquire());
+    }
+
+    @Test
+    public void allowsTheMinimumRetriesPerSecondWithoutBudget() {
+        RetryPolicy retryPolicy = new RetryPolicy(new JsonObject()
+            .put("budgetRatio", 0d)
+            .put("minRetriesPerSecond", 3));
+
+        assertTrue(retryPolicy.tryAcquire());
+        assertTrue(retryPolicy.tryAcquire());
+        assertTrue(retryPolicy.tryAcquire());
+        assertFalse(retryPolicy.tryAcquire());
+    }
+
+    @Test
+    public void capsTheBudget() {
+        RetryPolicy retryPolicy = new RetryPolicy(new JsonObject()
+            .put("budgetRatio", 1d)
+            .put("minRetriesPerSecond", 0));
+        for (int i = 0; i < 1000; i++) {
+            retryPolicy.onRequest();
+        }
+
+        int retries = 0;
+        while (retryPolicy.tryAcquire()) {
+            retries++;
+        }
+
+        assertEquals(100, retries);
+    }
+
+    @Test
+    public void backsOffExponentiallyWithFullJitter() {
+        RetryPolicy retryPolicy = new RetryPolicy(new JsonObject()
+            .put("backoff", 25L)
+            .put("maxBackoff", 500L));
+
+        for (int retry = 1; retry <= 10; retry++) {
+            long ceiling = Math.min(500L, 25L << (retry - 1));
+            long longest = 0;
+            for (int i = 0; i < 1000; i++) {
+                long backoff = retryPolicy.backoff(retry);
+                assertTrue("backoff " + backoff + " of retry " + retry, backoff >= 1 && backoff <= ceiling);
+                longest = Math.max(longest, backoff);
+            }
+            // the jitter spreads the retries over the whole interval
+            assertTrue("longest backoff " + longest + " of retry " + retry, longest > ceiling / 2);
+        }
+    }
+}
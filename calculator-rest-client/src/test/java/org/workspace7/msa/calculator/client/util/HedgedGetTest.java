@@ -0,0 +1,137 @@
+package org.workspace7.msa.calculator.client.util;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that a {@link HedgedGet} keeps the first answer and resets the losing attempt, against a local server that
+ * leaves the first request it receives unanswered, and that it fails once when the body of the answer breaks
+ *
+ * @author kameshs
+ */
+public class HedgedGetTest {
+
+    private static final String SERVICE_NAME = "simple-calculator-spring";
+
+    private static final long SHORT_HEDGE_DELAY = 50L;
+
+    private static final long LONG_HEDGE_DELAY = 500L;
+
+    private Vertx vertx;
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile boolean answerFirst;
+    private volatile boolean breakFirst;
+    private final CompletableFuture<Void> firstClosed = new CompletableFuture<>();
+
+    @Before
+    public void startServer() throws Exception {
+        vertx = Vertx.vertx();
+        CompletableFuture<HttpServer> listening = new CompletableFuture<>();
+        vertx.createHttpServer()
+            .requestHandler(request -> {
+                if (requests.incrementAndGet() == 1 && breakFirst) {
+                    // the connection is closed in the middle of the body
+                    request.response().setChunked(true).write("ans");
+                    vertx.setTimer(SHORT_HEDGE_DELAY, id -> request.connection().close());
+                } else if (requests.get() == 1 && !answerFirst) {
+                    request.connection().closeHandler(v -> firstClosed.complete(null));
+                } else {
+                    request.response().end("answer " + requests.get());
+                }
+            })
+            .listen(0, "localhost", result -> {
+                if (result.succeeded()) {
+                    listening.complete(result.result());
+                } else {
+                    listening.completeExceptionally(result.cause());
+                }
+            });
+        server = listening.get(5, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void stopVertx() throws Exception {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        vertx.close(result -> closed.complete(null));
+        closed.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void keepsTheHedgeAndResetsTheUnansweredAttempt() throws Exception {
+        VertxRestClientUtil vertxRestClientUtil = new VertxRestClientUtil(vertx, config(SHORT_HEDGE_DELAY));
+
+        String answer = get(vertxRestClientUtil);
+
+        // the service has a single endpoint, so the hedge went to the same one on another connection
+        assertEquals("answer 2", answer);
+        assertEquals(2, requests.get());
+        firstClosed.get(5, TimeUnit.SECONDS);
+        assertEquals(0, vertxRestClientUtil.getServiceGuard(SERVICE_NAME).getBulkhead().getConcurrentCalls());
+    }
+
+    @Test
+    public void doesNotHedgeRequestsAnsweredWithinTheDelay() throws Exception {
+        answerFirst = true;
+        VertxRestClientUtil vertxRestClientUtil = new VertxRestClientUtil(vertx, config(LONG_HEDGE_DELAY));
+
+        String answer = get(vertxRestClientUtil);
+        Thread.sleep(2 * LONG_HEDGE_DELAY);
+
+        assertEquals("answer 1", answer);
+        assertEquals(1, requests.get());
+        assertEquals(0, vertxRestClientUtil.getServiceGuard(SERVICE_NAME).getBulkhead().getConcurrentCalls());
+    }
+
+    @Test
+    public void failsWhenTheBodyOfTheAnswerBreaks() throws Exception {
+        breakFirst = true;
+        VertxRestClientUtil vertxRestClientUtil = new VertxRestClientUtil(vertx, config(LONG_HEDGE_DELAY));
+
+        try {
+            get(vertxRestClientUtil);
+            fail("the broken answer was read");
+        } catch (ExecutionException e) {
+            assertEquals(502, new JsonObject(e.getCause().getMessage()).getInteger("statusCode").intValue());
+        }
+        assertEquals(1, requests.get());
+    }
+
+    private JsonObject config(long hedgeDelay) {
+        return new JsonObject()
+            .put("discovery", new JsonObject()
+                .put("importer", "static")
+                .put("services", new JsonObject()
+                    .put(SERVICE_NAME, new JsonArray().add("localhost:" + server.actualPort()))))
+            .put("hedging", new JsonObject()
+                .put("enabled", true)
+                .put("minDelay", hedgeDelay)
+                .put("maxDelay", hedgeDelay))
+            .put("requestTimeout", 5000L);
+    }
+
+    private static String get(VertxRestClientUtil vertxRestClientUtil) throws Exception {
+        CompletableFuture<String> answer = new CompletableFuture<>();
+        vertxRestClientUtil.executeGET(SERVICE_NAME, "/api/whoami", null, result -> {
+            if (result.succeeded()) {
+                answer.complete(result.result());
+            } else {
+                answer.completeExceptionally(result.cause());
+            }
+        });
+        return answer.get(5, TimeUnit.SECONDS);
+    }
+}
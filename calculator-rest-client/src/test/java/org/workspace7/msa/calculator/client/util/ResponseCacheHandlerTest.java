@@ -0,0 +1,221 @@
+package org.workspace7.msa.calculator.client.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the key normalization and the coalescing of concurrent misses of {@link ResponseCacheHandler}, routed in
+ * front of a fallback handler as in the streaming proxy mode, with a local server as the calculator service
+ *
+ * @author kameshs
+ */
+public class ResponseCacheHandlerTest {
+
+    private static final String SERVICE_NAME = "simple-calculator-spring";
+
+    /**
+     * the time the service takes to answer a sub, long enough for concurrent requests to find the miss in flight
+     */
+    private static final long SUB_DELAY = 200L;
+
+    /**
+     * the request the service answers with a 500
+     */
+    private static final String FAILING_ADD = "/api/add/0/0";
+
+    private Vertx vertx;
+    private HttpClient httpClient;
+    private int proxyPort;
+    private final Map<String, AtomicInteger> serviceCalls = new ConcurrentHashMap<>();
+    private final List<String> serviceBodies = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void startServers() throws Exception {
+        vertx = Vertx.vertx();
+        HttpServer service = listen(vertx.createHttpServer().requestHandler(this::answer));
+
+        VertxRestClientUtil vertxRestClientUtil = new VertxRestClientUtil(vertx, new JsonObject()
+            .put("discovery", new JsonObject()
+                .put("importer", "static")
+                .put("services", new JsonObject()
+                    .put(SERVICE_NAME, new JsonArray().add("localhost:" + service.actualPort())))));
+        ResponseCacheHandler responseCache = new ResponseCacheHandler(vertxRestClientUtil, SERVICE_NAME,
+            new JsonObject(), new SimpleMeterRegistry());
+        Router router = Router.router(vertx);
+        router.route("/api/*").handler(responseCache);
+        router.route("/api/*").handler(routingContext -> routingContext.response().setStatusCode(404).end("next"));
+        proxyPort = listen(vertx.createHttpServer().requestHandler(router::accept)).actualPort();
+
+        httpClient = vertx.createHttpClient();
+    }
+
+    @After
+    public void stopVertx() throws Exception {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        vertx.close(result -> closed.complete(null));
+        closed.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void sharesTheEntryOfNormalizedOperands() throws Exception {
+        Answer miss = send(HttpMethod.GET, "/api/add/05/3", null, null).get(5, TimeUnit.SECONDS);
+        Answer hit = send(HttpMethod.GET, "/api/add/+5/03", null, null).get(5, TimeUnit.SECONDS);
+
+        assertEquals("MISS", miss.cache);
+        assertEquals("HIT", hit.cache);
+        assertEquals(miss.body, hit.body);
+        assertEquals(1, serviceCalls("/api/add/05/3") + serviceCalls("/api/add/+5/03"));
+    }
+
+    @Test
+    public void forwardsTheBodyOfAMissAndNormalizesItsNumbers() throws Exception {
+        String body = new JsonObject().put("numbers", new JsonArray().add(2).add(3)).encode();
+
+        Answer miss = send(HttpMethod.POST, "/api/mul", body, null).get(5, TimeUnit.SECONDS);
+        Answer hit = send(HttpMethod.POST, "/api/mul",
+            new JsonObject().put("numbers", new JsonArray().add(2.0d).add(" 3")).encode(), null)
+            .get(5, TimeUnit.SECONDS);
+        Answer otherPrecision = send(HttpMethod.POST, "/api/mul", body, "bigint").get(5, TimeUnit.SECONDS);
+
+        assertEquals(200, miss.statusCode);
+        assertEquals("MISS", miss.cache);
+        assertEquals("HIT", hit.cache);
+        assertEquals("MISS", otherPrecision.cache);
+        assertEquals(2, serviceCalls("/api/mul"));
+        assertEquals(Arrays.asList(body, body), serviceBodies);
+    }
+
+    @Test
+    public void coalescesConcurrentMissesIntoOneServiceCall() throws Exception {
+        List<CompletableFuture<Answer>> answers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            answers.add(send(HttpMethod.GET, "/api/sub/9/4", null, null));
+        }
+
+        List<String> outcomes = new ArrayList<>();
+        for (CompletableFuture<Answer> answer : answers) {
+            Answer coalesced = answer.get(5, TimeUnit.SECONDS);
+            assertEquals(200, coalesced.statusCode);
+            outcomes.add(coalesced.cache);
+        }
+        Collections.sort(outcomes);
+
+        assertEquals(Arrays.asList("COALESCED", "COALESCED", "MISS"), outcomes);
+        assertEquals(1, serviceCalls("/api/sub/9/4"));
+    }
+
+    @Test
+    public void dropsTheResponsesThatCannotBeCached() throws Exception {
+        Answer first = send(HttpMethod.GET, FAILING_ADD, null, null).get(5, TimeUnit.SECONDS);
+        Answer second = send(HttpMethod.GET, FAILING_ADD, null, null).get(5, TimeUnit.SECONDS);
+
+        assertEquals(500, first.statusCode);
+        assertEquals("MISS", first.cache);
+        assertEquals(500, second.statusCode);
+        assertEquals("MISS", second.cache);
+        assertEquals(2, serviceCalls(FAILING_ADD));
+    }
+
+    @Test
+    public void passesOtherRequestsOn() throws Exception {
+        Answer whoami = send(HttpMethod.GET, "/api/whoami", null, null).get(5, TimeUnit.SECONDS);
+
+        assertEquals(404, whoami.statusCode);
+        assertEquals("next", whoami.body);
+        assertEquals(0, serviceCalls("/api/whoami"));
+    }
+
+    /**
+     * The calculator service, it answers with the path of the request, after {@link #SUB_DELAY} for a sub, and with a
+     * 500 to {@link #FAILING_ADD}
+     */
+    private void answer(HttpServerRequest request) {
+        request.bodyHandler(body -> {
+            serviceCalls.computeIfAbsent(request.path(), path -> new AtomicInteger()).incrementAndGet();
+            if (body.length() > 0) {
+                serviceBodies.add(body.toString());
+            }
+            long delay = request.path().startsWith("/api/sub/") ? SUB_DELAY : 0L;
+            Runnable respond = () -> request.response()
+                .setStatusCode(FAILING_ADD.equals(request.path()) ? 500 : 200)
+                .putHeader("Content-Type", "text/plain")
+                .end("answer of " + request.path());
+            if (delay > 0) {
+                vertx.setTimer(delay, id -> respond.run());
+            } else {
+                respond.run();
+            }
+        });
+    }
+
+    private int serviceCalls(String path) {
+        AtomicInteger calls = serviceCalls.get(path);
+        return calls == null ? 0 : calls.get();
+    }
+
+    private CompletableFuture<Answer> send(HttpMethod method, String uri, String body, String precision) {
+        CompletableFuture<Answer> answer = new CompletableFuture<>();
+        HttpClientRequest request = httpClient.request(method, proxyPort, "localhost", uri,
+            response -> response.bodyHandler(responseBody -> answer.complete(new Answer(response.statusCode(),
+                response.getHeader("X-Cache"), responseBody.toString()))));
+        request.exceptionHandler(answer::completeExceptionally);
+        if (precision != null) {
+            request.putHeader("X-Calculator-Precision", precision);
+        }
+        if (body != null) {
+            request.putHeader("Content-Type", "application/json").end(body);
+        } else {
+            request.end();
+        }
+        return answer;
+    }
+
+    private static HttpServer listen(HttpServer server) throws Exception {
+        CompletableFuture<HttpServer> listening = new CompletableFuture<>();
+        server.listen(0, "localhost", result -> {
+            if (result.succeeded()) {
+                listening.complete(result.result());
+            } else {
+                listening.completeExceptionally(result.cause());
+            }
+        });
+        return listening.get(5, TimeUnit.SECONDS);
+    }
+
+    private static class Answer {
+
+        private final int statusCode;
+        private final String cache;
+        private final String body;
+
+        Answer(int statusCode, String cache, String body) {
+            this.statusCode = statusCode;
+            this.cache = cache;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.workspace7.msa.calculator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Evaluates the operations of a batch with the {@link Calculator}. Batches of at least
+ * <code>calculator.batch.parallel-threshold</code> operations are evaluated in parallel on the common fork join pool,
+ * smaller ones on the request thread where the hand-off would cost more than the arithmetic. An operation that fails
+ * is reported in its own result and does not fail the batch.
+ *
+ * @author kameshs
+ */
+@Component
+public class BatchCalculator {
+
+    private final Calculator calculator;
+    private final int parallelThreshold;
+    private final int maxSize;
+    private final CalculatorMetrics metrics;
+
+    public BatchCalculator(Calculator calculator, CalculatorMetrics metrics,
+                           @Value("${calculator.batch.parallel-threshold:256}") int parallelThreshold,
+                           @Value("${calculator.batch.max-size:10000}") int maxSize) {
+        this.calculator = calculator;
+        this.metrics = metrics;
+        this.parallelThreshold = parallelThreshold;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param operations - the operations to evaluate
+     * @return - one result per operation, in the same order
+     * @throws BatchTooLargeException - when there are more than <code>calculator.batch.max-size</code> operations
+     */
+    public List<BatchResult> evaluate(List<BatchOperation> operations) {
+        if (operations.size() > maxSize) {
+            throw new BatchTooLargeException(operations.size(), maxSize);
+        }
+        IntStream indexes = IntStream.range(0, operations.size());
+        if (operations.size() >= parallelThreshold) {
+            indexes = indexes.parallel();
+        }
+        return indexes
+                .mapToObj(i -> evaluate(i, operations.get(i)))
+                .collect(Collectors.toList());
+    }
+
+    private BatchResult evaluate(int index, BatchOperation operation) {
+        if (operation == null) {
+            metrics.parseFailure("batch");
+            return BatchResult.failure(index, null, "Missing operation");
+        }
+        try {
+            return BatchResult.success(index, operation.getOp(),
+                    calculator.evaluate(operation.getOp(), operation.getOperands()));
+        } catch (IllegalArgumentException e) {
+            metrics.parseFailure("batch");
+            return BatchResult.failure(index, operation.getOp(), e.getMessage());
+        } catch (ArithmeticException e) {
+            metrics.divideByZero("batch");
+            return BatchResult.failure(index, operation.getOp(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.workspace7.msa.calculator;
+
+import java.util.List;
+
+/**
+ * One operation of a batch request, e.g. <code>{"op": "add", "operands": [1, 2]}</code>
+ *
+ * @author kameshs
+ */
+public class BatchOperation {
+
+    private String op;
+    private List<Number> operands;
+
+    public BatchOperation() {
+    }
+
+    public BatchOperation(String op, List<Number> operands) {
+        this.op = op;
+        this.operands = operands;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public List<Number> getOperands() {
+        return operands;
+    }
+
+    public void setOperands(List<Number> operands) {
+        this.operands = operands;
+    }
+}
@@ -0,0 +1,33 @@
+package org.workspace7.msa.calculator;
+
+import java.util.List;
+
+/**
+ * The response of the batch endpoint, the results are in the order of the requested operations
+ *
+ * @author kameshs
+ */
+public class BatchResponse {
+
+    private final String host;
+    private final int failures;
+    private final List<BatchResult> results;
+
+    public BatchResponse(String host, List<BatchResult> results) {
+        this.host = host;
+        this.results = results;
+        this.failures = (int) results.stream().filter(result -> result.getError() != null).count();
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    public List<BatchResult> getResults() {
+        return results;
+    }
+}
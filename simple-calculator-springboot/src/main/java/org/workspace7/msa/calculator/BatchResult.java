@@ -0,0 +1,48 @@
+package org.workspace7.msa.calculator;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The outcome of one operation of a batch request, either its result or the error that prevented it
+ *
+ * @author kameshs
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult {
+
+    private final int index;
+    private final String op;
+    private final Number result;
+    private final String error;
+
+    private BatchResult(int index, String op, Number result, String error) {
+        this.index = index;
+        this.op = op;
+        this.result = result;
+        this.error = error;
+    }
+
+    public static BatchResult success(int index, String op, Number result) {
+        return new BatchResult(index, op, result, null);
+    }
+
+    public static BatchResult failure(int index, String op, String error) {
+        return new BatchResult(index, op, null, error);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public Number getResult() {
+        return result;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
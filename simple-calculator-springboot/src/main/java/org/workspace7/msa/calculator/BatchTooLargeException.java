@@ -0,0 +1,14 @@
+package org.workspace7.msa.calculator;
+
+/**
+ * Thrown by {@link BatchCalculator#evaluate(java.util.List)} when a batch has more operations than
+ * <code>calculator.batch.max-size</code>, the endpoints answer it with 413 and its message
+ *
+ * @author kameshs
+ */
+public class BatchTooLargeException extends IllegalArgumentException {
+
+    public BatchTooLargeException(int size, int maxSize) {
+        super(String.format("Batch of %d operations exceeds the maximum of %d", size, maxSize));
+    }
+}
@@ -0,0 +1,301 @@
+package org.workspace7.msa.calculator;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The arithmetic shared by the single operation endpoints and the batch endpoint of
+ * {@link SimpleCalculatorController}.
+ *
+ * @author kameshs
+ */
+@Component
+public class Calculator {
+
+    /**
+     * Products of fewer numbers than this are computed sequentially by a product tree task
+     */
+    private static final int PRODUCT_TREE_LEAF_SIZE = 256;
+
+    /**
+     * How a product is computed, chosen per request for /api/mul
+     */
+    public enum Precision {
+        /**
+         * long arithmetic that wraps on overflow, the historical behaviour
+         */
+        WRAP,
+        /**
+         * long arithmetic that fails on overflow
+         */
+        LONG,
+        /**
+         * BigInteger arithmetic, multiplied as the numbers are read
+         */
+        BIGINT,
+        /**
+         * BigInteger arithmetic, multiplied as a balanced product tree in parallel once all numbers are read
+         */
+        PARALLEL;
+
+        /**
+         * @param name - the name of the precision, case insensitive
+         * @return - the matching precision
+         * @throws IllegalArgumentException - when there is no such precision
+         */
+        public static Precision fromName(String name) {
+            for (Precision precision : values()) {
+                if (precision.name().equalsIgnoreCase(name.trim())) {
+                    return precision;
+                }
+            }
+            throw new IllegalArgumentException("Unknown precision " + name + ", expected one of "
+                    + Arrays.toString(values()).toLowerCase());
+        }
+    }
+
+    public int add(int num1, int num2) {
+        return num1 + num2;
+    }
+
+    public int sub(int num1, int num2) {
+        return num1 - num2;
+    }
+
+    /**
+     * @param numbers - the numbers to multiply
+     * @return - the product of all numbers, 1 when there are none
+     */
+    public long mul(long... numbers) {
+        return mul(Arrays.stream(numbers).iterator());
+    }
+
+    /**
+     * Folds the numbers as they are iterated, so they need not be held in memory
+     *
+     * @param numbers - the numbers to multiply
+     * @return - the product of all numbers, 1 when there are none
+     */
+    public long mul(PrimitiveIterator.OfLong numbers) {
+        long product = 1;
+        while (numbers.hasNext()) {
+            product = product * numbers.nextLong();
+        }
+        return product;
+    }
+
+    /**
+     * @param numbers - the numbers to multiply
+     * @return - the product of all numbers, 1 when there are none
+     * @throws ArithmeticException - when the product overflows a long
+     */
+    public long mulExact(PrimitiveIterator.OfLong numbers) {
+        long product = 1;
+        while (numbers.hasNext()) {
+            product = Math.multiplyExact(product, numbers.nextLong());
+        }
+        return product;
+    }
+
+    /**
+     * Multiplies the numbers as they are iterated. The cost grows quadratically with the size of the product, use
+     * {@link #parallelMul(Iterator)} for long arrays
+     *
+     * @param numbers - the numbers to multiply
+     * @return - the exact product of all numbers, 1 when there are none
+     */
+    public BigInteger mul(Iterator<BigInteger> numbers) {
+        BigInteger product = BigInteger.ONE;
+        while (numbers.hasNext()) {
+            product = product.multiply(numbers.next());
+        }
+        return product;
+    }
+
+    /**
+     * Multiplies the numbers as a balanced product tree on the common fork join pool, so that operands of similar
+     * size are multiplied together and the subtrees are multiplied in parallel. All numbers are held in memory.
+     *
+     * @param numbers - the numbers to multiply
+     * @return - the exact product of all numbers, 1 when there are none
+     */
+    public BigInteger parallelMul(Iterator<BigInteger> numbers) {
+        List<BigInteger> factors = new ArrayList<>();
+        numbers.forEachRemaining(factors::add);
+        if (factors.isEmpty()) {
+            return BigInteger.ONE;
+        }
+        return ForkJoinPool.commonPool().invoke(
+                new ProductTree(factors.toArray(new BigInteger[factors.size()]), 0, factors.size()));
+    }
+
+    /**
+     * Multiplies the given precision's way
+     *
+     * @param precision - how to multiply
+     * @param numbers   - the numbers to multiply
+     * @return - the product, a Long for WRAP and LONG, a BigInteger otherwise
+     * @throws ArithmeticException - when the product overflows a long with LONG precision
+     */
+    public Number mul(Precision precision, JsonNumbersReader numbers) {
+        switch (precision) {
+            case LONG:
+                return mulExact(numbers.longs());
+            case BIGINT:
+                return mul(numbers.bigIntegers());
+            case PARALLEL:
+                return parallelMul(numbers.bigIntegers());
+            case WRAP:
+            default:
+                return mul(numbers.longs());
+        }
+    }
+
+    /**
+     * Divides the first number successively by all the following ones
+     *
+     * @param numbers - the numbers to divide
+     * @return - the answer, 0 when there are no numbers
+     * @throws ArithmeticException - when any of the numbers is 0
+     */
+    public double div(double... numbers) {
+        return div(Arrays.stream(numbers).iterator());
+    }
+
+    /**
+     * Folds the numbers as they are iterated, so they need not be held in memory
+     *
+     * @param numbers - the numbers to divide
+     * @return - the answer, 0 when there are no numbers
+     * @throws ArithmeticException - when any of the numbers is 0
+     */
+    public double div(PrimitiveIterator.OfDouble numbers) {
+        double answer = 0;
+        while (numbers.hasNext()) {
+            double n = numbers.nextDouble();
+            if (n == 0) {
+                throw new ArithmeticException("Divide by 0");
+            }
+            answer = answer == 0 ? n : answer / n;
+        }
+        return answer;
+    }
+
+    /**
+     * Evaluates an operation given by its name
+     *
+     * @param operation - one of add, sub, mul or div
+     * @param operands  - the operands, exactly two for add and sub which must be ints
+     * @return - the result of the operation
+     * @throws IllegalArgumentException - when the operation is unknown or the operands don't suit it
+     * @throws ArithmeticException      - when dividing by 0
+     */
+    public Number evaluate(String operation, List<? extends Number> operands) {
+        if (operation == null) {
+            throw new IllegalArgumentException("Missing operation");
+        }
+        if (operands == null) {
+            throw new IllegalArgumentException("Missing operands");
+        }
+        switch (operation.toLowerCase()) {
+            case "add":
+                requireTwo(operation, operands);
+                return add(toInt(operands.get(0)), toInt(operands.get(1)));
+            case "sub":
+                requireTwo(operation, operands);
+                return sub(toInt(operands.get(0)), toInt(operands.get(1)));
+            case "mul": {
+                long[] numbers = new long[operands.size()];
+                for (int i = 0; i < numbers.length; i++) {
+                    numbers[i] = toLong(operands.get(i));
+                }
+                return mul(numbers);
+            }
+            case "div": {
+                double[] numbers = new double[operands.size()];
+                for (int i = 0; i < numbers.length; i++) {
+                    numbers[i] = toNumber(operands.get(i)).doubleValue();
+                }
+                return div(numbers);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    private static void requireTwo(String operation, List<? extends Number> operands) {
+        if (operands.size() != 2) {
+            throw new IllegalArgumentException(operation + " takes 2 operands, got " + operands.size());
+        }
+    }
+
+    private static int toInt(Number number) {
+        long value = toLong(number);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Operand " + number + " is not an int");
+        }
+        return (int) value;
+    }
+
+    private static long toLong(Number number) {
+        Number value = toNumber(number);
+        if (value instanceof Double || value instanceof Float) {
+            if (value.doubleValue() != Math.rint(value.doubleValue())) {
+                throw new IllegalArgumentException("Operand " + number + " is not an integer");
+            }
+        }
+        return value.longValue();
+    }
+
+    private static Number toNumber(Number number) {
+        if (number == null) {
+            throw new IllegalArgumentException("Operand is null");
+        }
+        return number;
+    }
+
+    /**
+     * Computes the product of a range of factors by splitting it in halves until it is small enough to multiply
+     * directly, itself as a balanced tree
+     */
+    private static class ProductTree extends RecursiveTask<BigInteger> {
+
+        private final BigInteger[] factors;
+        private final int from;
+        private final int to;
+
+        ProductTree(BigInteger[] factors, int from, int to) {
+            this.factors = factors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BigInteger compute() {
+            if (to - from <= PRODUCT_TREE_LEAF_SIZE) {
+                return product(factors, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ProductTree left = new ProductTree(factors, from, middle);
+            left.fork();
+            BigInteger right = new ProductTree(factors, middle, to).compute();
+            return left.join().multiply(right);
+        }
+
+        private static BigInteger product(BigInteger[] factors, int from, int to) {
+            if (to - from == 1) {
+                return factors[from];
+            }
+            int middle = (from + to) >>> 1;
+            return product(factors, from, middle).multiply(product(factors, middle, to));
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package org.workspace7.msa.calculator;
+
+import com.google.protobuf.ByteString;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workspace7.msa.calculator.commons.RequestLogSampler;
+import org.workspace7.msa.calculator.grpc.BinaryOperation;
+import org.workspace7.msa.calculator.grpc.CalculatorGrpc;
+import org.workspace7.msa.calculator.grpc.DivRequest;
+import org.workspace7.msa.calculator.grpc.DivResult;
+import org.workspace7.msa.calculator.grpc.IntResult;
+import org.workspace7.msa.calculator.grpc.MulRequest;
+import org.workspace7.msa.calculator.grpc.ProductResult;
+import org.workspace7.msa.calculator.grpc.WhoAmIRequest;
+import org.workspace7.msa.calculator.grpc.WhoAmIResponse;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * The calculator operations of <code>calculator.proto</code>, the binary counterpart of
+ * {@link SimpleCalculatorController} computed by the same {@link Calculator}. The mul and div numbers are streamed by
+ * the client in chunks and folded as they arrive, the operations of a batch are answered one by one as they are
+ * evaluated. The failures are reported as on the REST endpoints, a product that overflows a long with the long
+ * precision fails with OUT_OF_RANGE and a division by zero answers 0.
+ *
+ * @author kameshs
+ */
+public class CalculatorGrpcService extends CalculatorGrpc.CalculatorImplBase {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CalculatorGrpcService.class);
+
+    private final Calculator calculator;
+    private final CalculatorMetrics metrics;
+    private final String hostname;
+    private final Calculator.Precision defaultPrecision;
+    private final int maxBatchSize;
+
+    /**
+     * @param calculator       - the arithmetic
+     * @param metrics          - the counters of the failed operations
+     * @param hostname         - the host name of the pod, sent with every result
+     * @param defaultPrecision - the precision of the products that do not ask for one
+     * @param maxBatchSize     - the most operations of a batch stream
+     */
+    public CalculatorGrpcService(Calculator calculator, CalculatorMetrics metrics, String hostname,
+                                 Calculator.Precision defaultPrecision, int maxBatchSize) {
+        this.calculator = calculator;
+        this.metrics = metrics;
+        this.hostname = hostname;
+        this.defaultPrecision = defaultPrecision;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public void whoAmI(WhoAmIRequest request, StreamObserver<WhoAmIResponse> responseObserver) {
+        responseObserver.onNext(WhoAmIResponse.newBuilder().setHost(hostname).build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void add(BinaryOperation request, StreamObserver<IntResult> responseObserver) {
+        int result = calculator.add(request.getNum1(), request.getNum2());
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(RequestLogSampler.REQUEST, "Add Result:{} executed on Pod {}", result, hostname);
+        }
+        responseObserver.onNext(IntResult.newBuilder().setHost(hostname).setResult(result).build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void sub(BinaryOperation request, StreamObserver<IntResult> responseObserver) {
+        int result = calculator.sub(request.getNum1(), request.getNum2());
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(RequestLogSampler.REQUEST, "Sub Result:{} executed on Pod {}", result, hostname);
+        }
+        responseObserver.onNext(IntResult.newBuilder().setHost(hostname).setResult(result).build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<MulRequest> mul(StreamObserver<ProductResult> responseObserver) {
+        return new Product(responseObserver);
+    }
+
+    @Override
+    public StreamObserver<DivRequest> div(StreamObserver<DivResult> responseObserver) {
+        return new Division(responseObserver);
+    }
+
+    @Override
+    public StreamObserver<org.workspace7.msa.calculator.grpc.BatchOperation> batch(
+            StreamObserver<org.workspace7.msa.calculator.grpc.BatchResult> responseObserver) {
+        return new Batch(responseObserver);
+    }
+
+    private Calculator.Precision precision(org.workspace7.msa.calculator.grpc.Precision precision) {
+        switch (precision) {
+            case DEFAULT:
+                return defaultPrecision;
+            case UNRECOGNIZED:
+                throw new IllegalArgumentException("Unknown precision");
+            default:
+                return Calculator.Precision.valueOf(precision.name());
+        }
+    }
+
+    private static LongStream numbers(MulRequest request) {
+        return IntStream.range(0, request.getNumbersCount()).mapToLong(request::getNumbers);
+    }
+
+    /**
+     * Folds the streamed numbers into their product, with the precision of the first chunk. gRPC calls an observer
+     * serially, so the state needs no guard
+     */
+    private class Product implements StreamObserver<MulRequest> {
+
+        private final StreamObserver<ProductResult> responseObserver;
+        private Calculator.Precision precision;
+        private long product = 1;
+        private BigInteger bigProduct = BigInteger.ONE;
+        private final List<BigInteger> factors = new ArrayList<>();
+        private boolean failed;
+
+        Product(StreamObserver<ProductResult> responseObserver) {
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public void onNext(MulRequest request) {
+            if (failed) {
+                return;
+            }
+            try {
+                if (precision == null) {
+                    precision = precision(request.getPrecision());
+                }
+                switch (precision) {
+                    case LONG:
+                        product = calculator.mulExact(LongStream.concat(LongStream.of(product), numbers(request))
+                                .iterator());
+                        break;
+                    case BIGINT:
+                        bigProduct = calculator.mul(Stream.concat(Stream.of(bigProduct),
+                                numbers(request).mapToObj(BigInteger::valueOf)).iterator());
+                        break;
+                    case PARALLEL:
+                        numbers(request).mapToObj(BigInteger::valueOf).forEach(factors::add);
+                        break;
+                    case WRAP:
+                    default:
+                        product = calculator.mul(LongStream.concat(LongStream.of(product), numbers(request))
+                                .iterator());
+                }
+            } catch (IllegalArgumentException e) {
+                fail(Status.INVALID_ARGUMENT.withDescription(e.getMessage()));
+            } catch (ArithmeticException e) {
+                LOGGER.warn("Product overflows a long with {} precision", precision);
+                fail(Status.OUT_OF_RANGE.withDescription(
+                        String.format("Service Host :%s \n Product overflows a long, use precision bigint",
+                                hostname)));
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            LOGGER.debug("Product cancelled by the client", t);
+        }
+
+        @Override
+        public void onCompleted() {
+            if (failed) {
+                return;
+            }
+            ProductResult.Builder result = ProductResult.newBuilder().setHost(hostname);
+            Calculator.Precision used = precision != null ? precision : defaultPrecision;
+            Number value;
+            switch (used) {
+                case BIGINT:
+                    value = bigProduct;
+                    result.setBigProduct(ByteString.copyFrom(bigProduct.toByteArray()));
+                    break;
+                case PARALLEL:
+                    BigInteger parallelProduct = calculator.parallelMul(factors.iterator());
+                    value = parallelProduct;
+                    result.setBigProduct(ByteString.copyFrom(parallelProduct.toByteArray()));
+                    break;
+                default:
+                    value = product;
+                    result.setLongProduct(product);
+            }
+            LOGGER.info(RequestLogSampler.REQUEST, "Product Result:{} executed on Pod {}", value, hostname);
+            responseObserver.onNext(result.build());
+            responseObserver.onCompleted();
+        }
+
+        private void fail(Status status) {
+            failed = true;
+            responseObserver.onError(status.asRuntimeException());
+        }
+    }
+
+    /**
+     * Folds the streamed numbers into their quotient, a division by zero answers 0 as on the REST endpoint
+     */
+    private class Division implements StreamObserver<DivRequest> {
+
+        private final StreamObserver<DivResult> responseObserver;
+        private double answer;
+        private boolean divideByZero;
+
+        Division(StreamObserver<DivResult> responseObserver) {
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public void onNext(DivRequest request) {
+            if (divideByZero) {
+                return;
+            }
+            DoubleStream numbers = IntStream.range(0, request.getNumbersCount()).mapToDouble(request::getNumbers);
+            // an answer of 0 is where the division starts over, as Calculator#div folds it
+            PrimitiveIterator.OfDouble iterator = (answer == 0 ? numbers
+                    : DoubleStream.concat(DoubleStream.of(answer), numbers)).iterator();
+            try {
+                answer = calculator.div(iterator);
+            } catch (ArithmeticException e) {
+                answer = 0;
+                divideByZero = true;
+                metrics.divideByZero("div");
+                LOGGER.error(RequestLogSampler.REQUEST, "Exception Divide by 0");
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            LOGGER.debug("Division cancelled by the client", t);
+        }
+
+        @Override
+        public void onCompleted() {
+            LOGGER.info(RequestLogSampler.REQUEST, "Divide Result:{} executed on Pod {}", answer, hostname);
+            responseObserver.onNext(DivResult.newBuilder().setHost(hostname).setAnswer(answer).build());
+            responseObserver.onCompleted();
+        }
+    }
+
+    /**
+     * Evaluates every streamed operation as it arrives, the ones that fail are answered with their error
+     */
+    private class Batch implements StreamObserver<org.workspace7.msa.calculator.grpc.BatchOperation> {
+
+        private final StreamObserver<org.workspace7.msa.calculator.grpc.BatchResult> responseObserver;
+        private int index;
+        private int failures;
+        private boolean rejected;
+
+        Batch(StreamObserver<org.workspace7.msa.calculator.grpc.BatchResult> responseObserver) {
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public void onNext(org.workspace7.msa.calculator.grpc.BatchOperation operation) {
+            if (rejected) {
+                return;
+            }
+            if (index >= maxBatchSize) {
+                rejected = true;
+                LOGGER.warn("Rejected batch : more than {} operations", maxBatchSize);
+                responseObserver.onError(Status.RESOURCE_EXHAUSTED
+                        .withDescription("Batch exceeds the maximum of " + maxBatchSize + " operations")
+                        .asRuntimeException());
+                return;
+            }
+            org.workspace7.msa.calculator.grpc.BatchResult.Builder result =
+                    org.workspace7.msa.calculator.grpc.BatchResult.newBuilder()
+                            .setIndex(index++)
+                            .setOpValue(operation.getOpValue())
+                            .setHost(hostname);
+            List<Number> operands = new ArrayList<>();
+            if (operation.getDecimalsCount() > 0) {
+                operands.addAll(operation.getDecimalsList());
+            } else {
+                operands.addAll(operation.getIntegersList());
+            }
+            try {
+                Number value = calculator.evaluate(operation.getOp().name(), operands);
+                if (value instanceof Double || value instanceof Float) {
+                    result.setDecimal(value.doubleValue());
+                } else {
+                    result.setInteger(value.longValue());
+                }
+            } catch (IllegalArgumentException e) {
+                metrics.parseFailure("batch");
+                failures++;
+                result.setError(e.getMessage());
+            } catch (ArithmeticException e) {
+                metrics.divideByZero("batch");
+                failures++;
+                result.setError(e.getMessage());
+            }
+            responseObserver.onNext(result.build());
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            LOGGER.debug("Batch cancelled by the client", t);
+        }
+
+        @Override
+        public void onCompleted() {
+            if (rejected) {
+                return;
+            }
+            LOGGER.info(RequestLogSampler.REQUEST, "Batch of {} operations with {} failures executed on Pod {}",
+                    index, failures, hostname);
+            responseObserver.onCompleted();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.workspace7.msa.calculator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The calculator specific counters, next to the request timers Micrometer records for every endpoint
+ * <ul>
+ * <li><code>calculator.divide.by.zero</code> - divisions by zero</li>
+ * <li><code>calculator.parse.failures</code> - requests, or batch operations, whose numbers could not be read</li>
+ * </ul>
+ * both tagged with the <code>operation</code>. The counters are registered upfront and looked up in an immutable map,
+ * so counting takes no lock, Micrometer counters being backed by adders.
+ *
+ * @author kameshs
+ */
+@Component
+public class CalculatorMetrics {
+
+    static final String DIVIDE_BY_ZERO = "calculator.divide.by.zero";
+    static final String PARSE_FAILURES = "calculator.parse.failures";
+
+    private static final List<String> OPERATIONS = Arrays.asList("add", "sub", "mul", "div", "batch");
+
+    private final MeterRegistry registry;
+    private final Map<String, Counter> divideByZero;
+    private final Map<String, Counter> parseFailures;
+
+    public CalculatorMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.divideByZero = counters(DIVIDE_BY_ZERO, "Divisions by zero");
+        this.parseFailures = counters(PARSE_FAILURES, "Requests or batch operations whose numbers could not be read");
+    }
+
+    public void divideByZero(String operation) {
+        counter(divideByZero, DIVIDE_BY_ZERO, operation).increment();
+    }
+
+    public void parseFailure(String operation) {
+        counter(parseFailures, PARSE_FAILURES, operation).increment();
+    }
+
+    private Map<String, Counter> counters(String name, String description) {
+        Map<String, Counter> counters = new HashMap<>();
+        for (String operation : OPERATIONS) {
+            counters.put(operation, Counter.builder(name)
+                    .description(description)
+                    .tag("operation", operation)
+                    .register(registry));
+        }
+        return Collections.unmodifiableMap(counters);
+    }
+
+    private Counter counter(Map<String, Counter> counters, String name, String operation) {
+        Counter counter = counters.get(operation);
+        return counter != null ? counter : registry.counter(name, "operation", operation);
+    }
+}
@@ -0,0 +1,36 @@
+package org.workspace7.msa.calculator;
+
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Serves the {@link CalculatorGrpcService} on <code>calculator.grpc.port</code>, next to the REST endpoints. Disabled
+ * with <code>calculator.grpc.enabled=false</code>.
+ *
+ * @author kameshs
+ */
+@Configuration
+@ConditionalOnProperty(name = "calculator.grpc.enabled", matchIfMissing = true)
+public class GrpcConfiguration {
+
+    @Bean
+    CalculatorGrpcService calculatorGrpcService(Calculator calculator, CalculatorMetrics metrics,
+                                                OperationResponseWriter responseWriter,
+                                                @Value("${calculator.mul.precision:wrap}") String defaultPrecision,
+                                                @Value("${calculator.batch.max-size:10000}") int maxBatchSize) {
+        return new CalculatorGrpcService(calculator, metrics, responseWriter.getHostname(),
+                Calculator.Precision.fromName(defaultPrecision), maxBatchSize);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    Server grpcServer(CalculatorGrpcService calculatorGrpcService,
+                      @Value("${calculator.grpc.port:9090}") int port) {
+        return ServerBuilder.forPort(port)
+                .addService(calculatorGrpcService)
+                .build();
+    }
+}
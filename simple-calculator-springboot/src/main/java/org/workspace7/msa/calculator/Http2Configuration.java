@@ -0,0 +1,35 @@
+package org.workspace7.msa.calculator;
+
+import io.undertow.UndertowOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.undertow.UndertowEmbeddedServletContainerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables HTTP/2 over cleartext (h2c) on the Undertow listener, both with prior knowledge and by upgrade from
+ * HTTP/1.1, so that the proxies can multiplex their requests over a few connections. HTTP/1.1 clients are served as
+ * before. Disabled with <code>calculator.http2.enabled=false</code>, the number of concurrent streams per connection
+ * is set by <code>calculator.http2.max-concurrent-streams</code>.
+ *
+ * @author kameshs
+ */
+@Configuration
+@ConditionalOnProperty(name = "calculator.http2.enabled", matchIfMissing = true)
+public class Http2Configuration {
+
+    @Bean
+    EmbeddedServletContainerCustomizer http2Customizer(
+            @Value("${calculator.http2.max-concurrent-streams:1000}") int maxConcurrentStreams) {
+        return container -> {
+            if (container instanceof UndertowEmbeddedServletContainerFactory) {
+                ((UndertowEmbeddedServletContainerFactory) container).addBuilderCustomizers(builder -> builder
+                        .setServerOption(UndertowOptions.ENABLE_HTTP2, true)
+                        .setServerOption(UndertowOptions.HTTP2_SETTINGS_MAX_CONCURRENT_STREAMS,
+                                maxConcurrentStreams));
+            }
+        };
+    }
+}
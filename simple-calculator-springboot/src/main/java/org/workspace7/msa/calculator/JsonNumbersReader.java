@@ -0,0 +1,196 @@
+package org.workspace7.msa.calculator;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Reads the <code>numbers</code> array of a <code>{"numbers": [..]}</code> body token by token, so that it can be
+ * folded as it is read without holding the body or the array in memory. Other fields of the body are skipped. Numbers
+ * may be given as JSON numbers or numeric strings, as the org.json based parsing accepted.
+ * <p>
+ * The iterators throw {@link UncheckedIOException} when the body can't be read and {@link IllegalArgumentException}
+ * when it is not of the expected shape. An empty body has no numbers.
+ *
+ * @author kameshs
+ */
+public class JsonNumbersReader implements Closeable {
+
+    private static final String NUMBERS_FIELD = "numbers";
+
+    private final JsonParser parser;
+    private boolean started;
+    private JsonToken next;
+
+    public JsonNumbersReader(JsonFactory jsonFactory, InputStream body) throws IOException {
+        this.parser = jsonFactory.createParser(body);
+    }
+
+    /**
+     * @return - the numbers as longs, fractions are truncated
+     */
+    public PrimitiveIterator.OfLong longs() {
+        return new PrimitiveIterator.OfLong() {
+            @Override
+            public boolean hasNext() {
+                return advance();
+            }
+
+            @Override
+            public long nextLong() {
+                return read(parser -> {
+                    switch (parser.getCurrentToken()) {
+                        case VALUE_NUMBER_INT:
+                            return parser.getLongValue();
+                        case VALUE_NUMBER_FLOAT:
+                            return (long) parser.getDoubleValue();
+                        default:
+                            return new BigDecimal(parser.getText().trim()).longValue();
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * @return - the numbers as doubles
+     */
+    public PrimitiveIterator.OfDouble doubles() {
+        return new PrimitiveIterator.OfDouble() {
+            @Override
+            public boolean hasNext() {
+                return advance();
+            }
+
+            @Override
+            public double nextDouble() {
+                return read(parser -> parser.getCurrentToken() == JsonToken.VALUE_STRING
+                        ? Double.parseDouble(parser.getText().trim()) : parser.getDoubleValue());
+            }
+        };
+    }
+
+    /**
+     * @return - the numbers as BigIntegers, without the range limit of a long, fractions are truncated
+     */
+    public Iterator<BigInteger> bigIntegers() {
+        return new Iterator<BigInteger>() {
+            @Override
+            public boolean hasNext() {
+                return advance();
+            }
+
+            @Override
+            public BigInteger next() {
+                return read(parser -> {
+                    switch (parser.getCurrentToken()) {
+                        case VALUE_NUMBER_INT:
+                            return parser.getBigIntegerValue();
+                        case VALUE_NUMBER_FLOAT:
+                            return parser.getDecimalValue().toBigInteger();
+                        default:
+                            return new BigDecimal(parser.getText().trim()).toBigInteger();
+                    }
+                });
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    /**
+     * Moves the parser onto the next number of the array unless it already is
+     *
+     * @return - false when the array is exhausted
+     */
+    private boolean advance() {
+        try {
+            if (!started) {
+                started = true;
+                if (!moveToNumbers()) {
+                    return false;
+                }
+            }
+            if (next == null) {
+                next = parser.nextToken();
+            }
+            if (next == null || next == JsonToken.END_ARRAY) {
+                return false;
+            }
+            if (!next.isNumeric() && next != JsonToken.VALUE_STRING) {
+                throw new IllegalArgumentException("Not a number : " + text());
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return - false when the body is empty, else the parser is positioned on the start of the numbers array
+     */
+    private boolean moveToNumbers() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            return false;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Expected a JSON object with a \"numbers\" array");
+        }
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            token = parser.nextToken();
+            if (NUMBERS_FIELD.equals(field)) {
+                if (token != JsonToken.START_ARRAY) {
+                    throw new IllegalArgumentException("\"numbers\" is not an array");
+                }
+                return true;
+            }
+            parser.skipChildren();
+        }
+        throw new IllegalArgumentException("Missing \"numbers\" array");
+    }
+
+    /**
+     * Reads the number the parser is positioned on, and moves past it
+     */
+    private <T> T read(NumberReader<T> numberReader) {
+        if (!advance()) {
+            throw new NoSuchElementException();
+        }
+        next = null;
+        try {
+            return numberReader.read(parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number : " + text(), e);
+        }
+    }
+
+    private String text() {
+        try {
+            return parser.getText();
+        } catch (IOException e) {
+            return "?";
+        }
+    }
+
+    @FunctionalInterface
+    private interface NumberReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+}
@@ -0,0 +1,27 @@
+package org.workspace7.msa.calculator;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Metrics beyond the request timers and JVM gauges Micrometer configures on its own, all exposed for Prometheus on
+ * <code>/prometheus</code>
+ *
+ * @author kameshs
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    /**
+     * the common fork join pool runs the parallel batches and product trees
+     */
+    @Bean
+    MeterBinder commonPoolMetrics() {
+        return new ExecutorServiceMetrics(ForkJoinPool.commonPool(), "commonPool", Tags.empty());
+    }
+}
@@ -0,0 +1,134 @@
+package org.workspace7.msa.calculator;
+
+import org.springframework.stereotype.Component;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes the <code>Service Host :host \n a + b = c</code> responses of the add and sub endpoints straight into the
+ * servlet output buffer. The host name is resolved once and the constant parts of the response are kept as bytes, the
+ * numbers are written as ASCII digits into a per-thread scratch buffer, so a response allocates no Strings, boxed
+ * numbers or formatter state. The reactive mode takes the response as a {@link ByteBuffer} of its own instead, as it is
+ * sent asynchronously.
+ *
+ * @author kameshs
+ */
+@Component
+public class OperationResponseWriter {
+
+    static final String CONTENT_TYPE = "text/plain;charset=ISO-8859-1";
+
+    /**
+     * the longest operation suffix, " -2147483648 + -2147483648 = -2147483648"
+     */
+    private static final int MAX_OPERATION_LENGTH = 3 * 12 + 6;
+
+    private static final byte[] PLUS = " + ".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] MINUS = " - ".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] EQUALS = " = ".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final String hostname;
+    private final byte[] prefix;
+    private final ThreadLocal<byte[]> scratch;
+
+    public OperationResponseWriter() {
+        this(System.getenv().getOrDefault("HOSTNAME", "Unknown"));
+    }
+
+    public OperationResponseWriter(String hostname) {
+        this.hostname = hostname;
+        this.prefix = String.format("Service Host :%s \n", hostname).getBytes(StandardCharsets.ISO_8859_1);
+        this.scratch = ThreadLocal.withInitial(() -> new byte[prefix.length + MAX_OPERATION_LENGTH]);
+    }
+
+    /**
+     * @return - the host name of the pod, resolved at startup
+     */
+    public String getHostname() {
+        return hostname;
+    }
+
+    public void writeAdd(HttpServletResponse response, int num1, int num2, int result) throws IOException {
+        write(response, num1, PLUS, num2, result);
+    }
+
+    public void writeSub(HttpServletResponse response, int num1, int num2, int result) throws IOException {
+        write(response, num1, MINUS, num2, result);
+    }
+
+    /**
+     * @return - the add response, in a buffer of its own
+     */
+    public ByteBuffer add(int num1, int num2, int result) {
+        byte[] buffer = scratch.get();
+        return ByteBuffer.wrap(Arrays.copyOf(buffer, encode(buffer, num1, PLUS, num2, result)));
+    }
+
+    /**
+     * @return - the sub response, in a buffer of its own
+     */
+    public ByteBuffer sub(int num1, int num2, int result) {
+        byte[] buffer = scratch.get();
+        return ByteBuffer.wrap(Arrays.copyOf(buffer, encode(buffer, num1, MINUS, num2, result)));
+    }
+
+    private void write(HttpServletResponse response, int num1, byte[] operator, int num2, int result)
+            throws IOException {
+        byte[] buffer = scratch.get();
+        int length = encode(buffer, num1, operator, num2, result);
+
+        response.setContentType(CONTENT_TYPE);
+        response.setContentLength(length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(buffer, 0, length);
+    }
+
+    /**
+     * Encodes the response into the buffer
+     *
+     * @return - the length of the response
+     */
+    private int encode(byte[] buffer, int num1, byte[] operator, int num2, int result) {
+        System.arraycopy(prefix, 0, buffer, 0, prefix.length);
+        int length = prefix.length;
+        buffer[length++] = ' ';
+        length = writeInt(buffer, length, num1);
+        length = writeBytes(buffer, length, operator);
+        length = writeInt(buffer, length, num2);
+        length = writeBytes(buffer, length, EQUALS);
+        return writeInt(buffer, length, result);
+    }
+
+    private static int writeBytes(byte[] buffer, int offset, byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+        return offset + bytes.length;
+    }
+
+    /**
+     * Writes the decimal digits of the value at the offset
+     *
+     * @return - the offset after the last digit
+     */
+    private static int writeInt(byte[] buffer, int offset, int value) {
+        long remaining = value;
+        if (remaining < 0) {
+            buffer[offset++] = '-';
+            remaining = -remaining;
+        }
+        int digits = 1;
+        for (long bound = 10; remaining >= bound && digits < 10; bound *= 10) {
+            digits++;
+        }
+        int end = offset + digits;
+        for (int i = end - 1; i >= offset; i--) {
+            buffer[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,73 @@
+package org.workspace7.msa.calculator;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The JSON and CBOR response of the whoami, add, sub, mul and div endpoints, either the result of the operation or
+ * the error that prevented it. Products are sent as integers of any size, quotients as doubles
+ *
+ * @author kameshs
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OperationResult {
+
+    private final String host;
+    private final String op;
+    private final int[] operands;
+    private final String precision;
+    private final Number result;
+    private final String error;
+
+    private OperationResult(String host, String op, int[] operands, String precision, Number result, String error) {
+        this.host = host;
+        this.op = op;
+        this.operands = operands;
+        this.precision = precision;
+        this.result = result;
+        this.error = error;
+    }
+
+    public static OperationResult whoami(String host) {
+        return new OperationResult(host, "whoami", null, null, null, null);
+    }
+
+    public static OperationResult binary(String host, String op, int num1, int num2, int result) {
+        return new OperationResult(host, op, new int[]{num1, num2}, null, result, null);
+    }
+
+    public static OperationResult product(String host, Calculator.Precision precision, Number result) {
+        return new OperationResult(host, "mul", null, precision.name().toLowerCase(), result, null);
+    }
+
+    public static OperationResult quotient(String host, double result) {
+        return new OperationResult(host, "div", null, null, result, null);
+    }
+
+    public static OperationResult failure(String host, String op, String error) {
+        return new OperationResult(host, op, null, null, null, error);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public int[] getOperands() {
+        return operands;
+    }
+
+    public String getPrecision() {
+        return precision;
+    }
+
+    public Number getResult() {
+        return result;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
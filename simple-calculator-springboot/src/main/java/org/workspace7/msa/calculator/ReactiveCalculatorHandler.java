@@ -0,0 +1,352 @@
+package org.workspace7.msa.calculator;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.HttpString;
+import io.undertow.util.Methods;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.workspace7.msa.calculator.commons.RequestLogSampler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the <code>/api/*</code> endpoints of {@link SimpleCalculatorController} on the Undertow IO threads, ahead of
+ * the servlet deployment, with the same responses. The small bodies of <code>wrap</code> and <code>long</code>
+ * products and of divisions, those with a Content-Length of at most "maxInlineBody" bytes, are read asynchronously
+ * and computed on the IO thread that read them, as on an event loop, so a request holds no thread while its body or
+ * its response are in flight. Every other body is streamed on the worker threads, in constant memory as in the
+ * servlet mode: the large or unsized bodies, that would otherwise be buffered whole, the <code>bigint</code> and
+ * <code>parallel</code> products, that would stall every connection of the IO thread, and the batches.
+ * <p>
+ * Requests that are not calculator operations, e.g. <code>/prometheus</code>, swagger, CORS preflights or bodies that
+ * are not JSON, are passed on to the servlet deployment, which answers them as it does in the servlet mode. The
+ * answered requests are timed as <code>http.server.requests</code>, as Micrometer times the controller. The response
+ * format is negotiated from the Accept header as the controller does, see {@link ResponseFormat}.
+ *
+ * @author kameshs
+ */
+public class ReactiveCalculatorHandler implements HttpHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveCalculatorHandler.class);
+
+    private static final String API = "/api/";
+    private static final HttpString PRECISION_HEADER = new HttpString("X-Calculator-Precision");
+    private static final HttpString ALLOW_ORIGIN = new HttpString("Access-Control-Allow-Origin");
+    private static final HttpString ALLOW_CREDENTIALS = new HttpString("Access-Control-Allow-Credentials");
+    private static final TypeReference<List<BatchOperation>> BATCH = new TypeReference<List<BatchOperation>>() {
+    };
+
+    private final Calculator calculator;
+    private final BatchCalculator batchCalculator;
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+    private final Calculator.Precision defaultPrecision;
+    private final OperationResponseWriter responseWriter;
+    private final String hostname;
+    private final CalculatorMetrics metrics;
+    private final MeterRegistry registry;
+    private final StructuredResponseWriter structuredWriter;
+    private final long maxInlineBody;
+    private final HttpHandler next;
+
+    public ReactiveCalculatorHandler(Calculator calculator, BatchCalculator batchCalculator, ObjectMapper objectMapper,
+                                     Calculator.Precision defaultPrecision, OperationResponseWriter responseWriter,
+                                     CalculatorMetrics metrics, MeterRegistry registry, long maxInlineBody,
+                                     HttpHandler next) {
+        this.calculator = calculator;
+        this.batchCalculator = batchCalculator;
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+        this.defaultPrecision = defaultPrecision;
+        this.responseWriter = responseWriter;
+        this.hostname = responseWriter.getHostname();
+        this.metrics = metrics;
+        this.registry = registry;
+        this.structuredWriter = new StructuredResponseWriter(objectMapper);
+        this.maxInlineBody = maxInlineBody;
+        this.next = next;
+    }
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        String path = exchange.getRelativePath();
+        if (!path.startsWith(API)) {
+            next.handleRequest(exchange);
+            return;
+        }
+        ResponseFormat format = ResponseFormat.negotiate(exchange.getRequestHeaders().getFirst(Headers.ACCEPT));
+        if (format == null) {
+            // answered 406 by the servlets
+            next.handleRequest(exchange);
+            return;
+        }
+        String operation = path.substring(API.length());
+        if (Methods.GET.equals(exchange.getRequestMethod())) {
+            if ("whoami".equals(operation)) {
+                timed(exchange, "/api/whoami");
+                respond(exchange, 200, format, String.format("I am served from Host: %s", hostname),
+                        OperationResult.whoami(hostname));
+            } else if (operation.startsWith("add/") || operation.startsWith("sub/")) {
+                binaryOperation(exchange, operation, format);
+            } else {
+                next.handleRequest(exchange);
+            }
+        } else if (Methods.POST.equals(exchange.getRequestMethod()) && isJson(exchange)
+                && ("mul".equals(operation) || "div".equals(operation) || "batch".equals(operation))) {
+            timed(exchange, path);
+            Calculator.Precision precision = null;
+            if ("mul".equals(operation)) {
+                try {
+                    precision = precision(exchange);
+                } catch (IllegalArgumentException e) {
+                    respond(exchange, 400, format, e.getMessage(),
+                            OperationResult.failure(hostname, "mul", e.getMessage()));
+                    return;
+                }
+            }
+            Calculator.Precision mulPrecision = precision;
+            if (isInline(exchange, operation, precision)) {
+                exchange.getRequestReceiver().receiveFullBytes(
+                        (ex, body) -> numbersOperation(ex, operation, mulPrecision, format,
+                                new ByteArrayInputStream(body)),
+                        (ex, e) -> {
+                            LOGGER.warn("Error reading the body of {}", path, e);
+                            send(ex, 400, OperationResponseWriter.CONTENT_TYPE, String.valueOf(e.getMessage()));
+                        });
+            } else {
+                exchange.dispatch(() -> {
+                    exchange.startBlocking();
+                    numbersOperation(exchange, operation, mulPrecision, format, exchange.getInputStream());
+                });
+            }
+        } else {
+            next.handleRequest(exchange);
+        }
+    }
+
+    private void binaryOperation(HttpServerExchange exchange, String operation, ResponseFormat format)
+            throws Exception {
+        String[] operands = operation.split("/", -1);
+        if (operands.length != 3) {
+            next.handleRequest(exchange);
+            return;
+        }
+        String name = operands[0];
+        timed(exchange, "/api/" + name + "/{num1}/{num2}");
+        int n1, n2;
+        try {
+            n1 = Integer.parseInt(operands[1]);
+            n2 = Integer.parseInt(operands[2]);
+        } catch (NumberFormatException e) {
+            metrics.parseFailure(name);
+            send(exchange, 400, OperationResponseWriter.CONTENT_TYPE, "Path parameters must be ints");
+            return;
+        }
+        int result;
+        if ("add".equals(name)) {
+            result = calculator.add(n1, n2);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(RequestLogSampler.REQUEST, "Add Result:{} executed on Pod {}", result, hostname);
+            }
+        } else {
+            result = calculator.sub(n1, n2);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(RequestLogSampler.REQUEST, "Sub Result:{} executed on Pod {}", result, hostname);
+            }
+        }
+        exchange.getResponseHeaders().add(Headers.VARY, Headers.ACCEPT_STRING);
+        if (format == ResponseFormat.TEXT) {
+            send(exchange, 200, OperationResponseWriter.CONTENT_TYPE, "add".equals(name)
+                    ? responseWriter.add(n1, n2, result) : responseWriter.sub(n1, n2, result));
+        } else {
+            send(exchange, 200, format.getContentType(), structuredWriter.encode(format,
+                    OperationResult.binary(hostname, name, n1, n2, result)));
+        }
+    }
+
+    /**
+     * @return - true when the body is small and cheap enough to be buffered and computed on the IO thread
+     */
+    private boolean isInline(HttpServerExchange exchange, String operation, Calculator.Precision precision) {
+        long contentLength = exchange.getRequestContentLength();
+        if (contentLength < 0 || contentLength > maxInlineBody) {
+            return false;
+        }
+        return "div".equals(operation)
+                || precision == Calculator.Precision.WRAP || precision == Calculator.Precision.LONG;
+    }
+
+    private void numbersOperation(HttpServerExchange exchange, String operation, Calculator.Precision precision,
+                                  ResponseFormat format, InputStream body) {
+        switch (operation) {
+            case "mul":
+                mul(exchange, precision, format, body);
+                break;
+            case "div":
+                div(exchange, format, body);
+                break;
+            default:
+                batch(exchange, format, body);
+        }
+    }
+
+    private void mul(HttpServerExchange exchange, Calculator.Precision precision, ResponseFormat format,
+                     InputStream body) {
+        Number product;
+        try (JsonNumbersReader numbers = new JsonNumbersReader(jsonFactory, body)) {
+            product = calculator.mul(precision, numbers);
+        } catch (IllegalArgumentException | IOException | UncheckedIOException e) {
+            metrics.parseFailure("mul");
+            send(exchange, 500, OperationResponseWriter.CONTENT_TYPE, String.valueOf(e.getMessage()));
+            return;
+        } catch (ArithmeticException e) {
+            LOGGER.warn("Product overflows a long with {} precision", precision);
+            respond(exchange, 422, format,
+                    String.format("Service Host :%s \n Product overflows a long, use precision bigint", hostname),
+                    OperationResult.failure(hostname, "mul", "Product overflows a long, use precision bigint"));
+            return;
+        }
+        LOGGER.info(RequestLogSampler.REQUEST, "Product Result:{} executed on Pod {}", product, hostname);
+        respond(exchange, 200, format, String.format("Service Host :%s \n Product  = %d", hostname, product),
+                OperationResult.product(hostname, precision, product));
+    }
+
+    private void div(HttpServerExchange exchange, ResponseFormat format, InputStream body) {
+        double answer;
+        try (JsonNumbersReader numbers = new JsonNumbersReader(jsonFactory, body)) {
+            answer = calculator.div(numbers.doubles());
+        } catch (IllegalArgumentException | IOException | UncheckedIOException e) {
+            metrics.parseFailure("div");
+            send(exchange, 500, OperationResponseWriter.CONTENT_TYPE, String.valueOf(e.getMessage()));
+            return;
+        } catch (ArithmeticException e) {
+            answer = 0;
+            metrics.divideByZero("div");
+            LOGGER.error(RequestLogSampler.REQUEST, "Exception Divide by 0");
+        }
+        LOGGER.info(RequestLogSampler.REQUEST, "Divide Result:{} executed on Pod {}", answer, hostname);
+        respond(exchange, 200, format, String.format("Service Host :%s \n Answer = %f", hostname, answer),
+                OperationResult.quotient(hostname, answer));
+    }
+
+    private void batch(HttpServerExchange exchange, ResponseFormat format, InputStream body) {
+        List<BatchOperation> operations;
+        try {
+            operations = objectMapper.readValue(body, BATCH);
+        } catch (JsonProcessingException e) {
+            metrics.parseFailure("batch");
+            send(exchange, 400, OperationResponseWriter.CONTENT_TYPE, e.getOriginalMessage());
+            return;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // there is no text form of a batch
+        ResponseFormat batchFormat = format == ResponseFormat.CBOR ? ResponseFormat.CBOR : ResponseFormat.JSON;
+        exchange.getResponseHeaders().add(Headers.VARY, Headers.ACCEPT_STRING);
+        List<BatchResult> results;
+        try {
+            results = batchCalculator.evaluate(operations);
+        } catch (BatchTooLargeException e) {
+            LOGGER.warn("Rejected batch : {}", e.getMessage());
+            send(exchange, 413, batchFormat.getContentType(), structuredWriter.encode(batchFormat,
+                    OperationResult.failure(hostname, "batch", e.getMessage())));
+            return;
+        }
+        BatchResponse response = new BatchResponse(hostname, results);
+        LOGGER.info(RequestLogSampler.REQUEST, "Batch of {} operations with {} failures executed on Pod {}",
+                results.size(), response.getFailures(), hostname);
+        send(exchange, 200, batchFormat.getContentType(), structuredWriter.encode(batchFormat, response));
+    }
+
+    /**
+     * @throws IllegalArgumentException - when the precision header or query parameter names no precision
+     */
+    private Calculator.Precision precision(HttpServerExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst(PRECISION_HEADER);
+        if (header != null) {
+            return Calculator.Precision.fromName(header);
+        }
+        Deque<String> param = exchange.getQueryParameters().get("precision");
+        return param != null && !param.isEmpty() ? Calculator.Precision.fromName(param.getFirst()) : defaultPrecision;
+    }
+
+    /**
+     * Times the exchange once it completes, tagged as the controller's request timer is
+     */
+    private void timed(HttpServerExchange exchange, String uri) {
+        long start = System.nanoTime();
+        String method = exchange.getRequestMethod().toString();
+        exchange.addExchangeCompleteListener((ex, nextListener) -> {
+            Timer.builder("http.server.requests")
+                    .tag("exception", "None")
+                    .tag("method", method)
+                    .tag("status", String.valueOf(ex.getStatusCode()))
+                    .tag("uri", uri)
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            nextListener.proceed();
+        });
+    }
+
+    /**
+     * Answers with the legacy text or with the result as JSON or CBOR, as negotiated
+     */
+    private void respond(HttpServerExchange exchange, int status, ResponseFormat format, String text,
+                         OperationResult result) {
+        exchange.getResponseHeaders().add(Headers.VARY, Headers.ACCEPT_STRING);
+        if (format == ResponseFormat.TEXT) {
+            send(exchange, status, OperationResponseWriter.CONTENT_TYPE, text);
+        } else {
+            send(exchange, status, format.getContentType(), structuredWriter.encode(format, result));
+        }
+    }
+
+    private void send(HttpServerExchange exchange, int status, String contentType, ByteBuffer body) {
+        cors(exchange);
+        exchange.setStatusCode(status);
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, contentType);
+        exchange.getResponseSender().send(body);
+    }
+
+    private void send(HttpServerExchange exchange, int status, String contentType, String body) {
+        cors(exchange);
+        exchange.setStatusCode(status);
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, contentType);
+        exchange.getResponseSender().send(body, contentType.endsWith("ISO-8859-1")
+                ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Allows any origin, as <code>@CrossOrigin</code> does on the controller
+     */
+    private static void cors(HttpServerExchange exchange) {
+        String origin = exchange.getRequestHeaders().getFirst(Headers.ORIGIN);
+        if (origin != null) {
+            exchange.getResponseHeaders()
+                    .put(ALLOW_ORIGIN, origin)
+                    .put(ALLOW_CREDENTIALS, "true")
+                    .add(Headers.VARY, "Origin");
+        }
+    }
+
+    private static boolean isJson(HttpServerExchange exchange) {
+        String contentType = exchange.getRequestHeaders().getFirst(Headers.CONTENT_TYPE);
+        return contentType != null && contentType.toLowerCase().startsWith("application/json");
+    }
+}
@@ -0,0 +1,42 @@
+package org.workspace7.msa.calculator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.undertow.UndertowEmbeddedServletContainerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * The non-blocking server mode, selected with the <code>reactive</code> profile. The <code>/api/*</code> endpoints
+ * are served by a {@link ReactiveCalculatorHandler} on the Undertow IO threads, in front of the servlet deployment
+ * that keeps serving the actuator, Prometheus and swagger endpoints. See <code>application-reactive.properties</code>
+ * for the thread pools of this mode. <code>calculator.reactive.max-inline-body</code> is the largest body, in bytes,
+ * computed on the IO threads, larger ones are streamed on the workers.
+ *
+ * @author kameshs
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfiguration {
+
+    @Bean
+    EmbeddedServletContainerCustomizer reactiveCustomizer(
+            Calculator calculator, BatchCalculator batchCalculator, ObjectMapper objectMapper,
+            @Value("${calculator.mul.precision:wrap}") String defaultPrecision,
+            @Value("${calculator.reactive.max-inline-body:65536}") long maxInlineBody,
+            OperationResponseWriter responseWriter, CalculatorMetrics metrics, MeterRegistry registry) {
+        Calculator.Precision precision = Calculator.Precision.fromName(defaultPrecision);
+        return container -> {
+            if (container instanceof UndertowEmbeddedServletContainerFactory) {
+                // the initial handler chain runs on the IO thread, before the servlets are dispatched to the workers
+                ((UndertowEmbeddedServletContainerFactory) container).addDeploymentInfoCustomizers(deploymentInfo ->
+                        deploymentInfo.addInitialHandlerChainWrapper(next -> new ReactiveCalculatorHandler(
+                                calculator, batchCalculator, objectMapper, precision, responseWriter, metrics,
+                                registry, maxInlineBody, next)));
+            }
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package org.workspace7.msa.calculator;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * The representations of the calculator responses, negotiated from the <code>Accept</code> header of the request. The
+ * legacy <code>Service Host :host \n ...</code> text stays the default, for clients that send no Accept header or
+ * accept anything, the JSON and CBOR forms carry the same {@link OperationResult} as a typed object.
+ *
+ * @author kameshs
+ */
+public enum ResponseFormat {
+
+    TEXT(MediaType.TEXT_PLAIN, OperationResponseWriter.CONTENT_TYPE),
+    JSON(MediaType.APPLICATION_JSON, "application/json;charset=UTF-8"),
+    CBOR(MediaType.valueOf("application/cbor"), "application/cbor");
+
+    private final MediaType mediaType;
+    private final String contentType;
+
+    ResponseFormat(MediaType mediaType, String contentType) {
+        this.mediaType = mediaType;
+        this.contentType = contentType;
+    }
+
+    /**
+     * @return - the Content-Type of the responses in this format
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @param accept - the Accept header of the request, may be null
+     * @return - the most preferred format the request accepts, {@link #TEXT} when it accepts any, null when it accepts
+     * none of them
+     */
+    public static ResponseFormat negotiate(String accept) {
+        if (!StringUtils.hasText(accept)) {
+            return TEXT;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return TEXT;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            // text first, so that */* and text/* keep the legacy responses
+            for (ResponseFormat format : values()) {
+                if (mediaType.includes(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        return null;
+    }
+}
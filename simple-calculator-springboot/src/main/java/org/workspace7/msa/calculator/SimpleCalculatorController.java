@@ -1,14 +1,30 @@
 package org.workspace7.msa.calculator;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.ApiOperation;
-import org.apache.commons.lang3.StringUtils;
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.*;
+import org.workspace7.msa.calculator.commons.RequestLogSampler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
+ * The calculator endpoints. whoami, add, sub, mul and div answer in the format negotiated from the Accept header, see
+ * {@link ResponseFormat}, the legacy text by default, batch answers in JSON or CBOR.
+ *
  * @author kameshs
  */
 @RestController
@@ -17,84 +33,222 @@ public class SimpleCalculatorController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SimpleCalculatorController.class);
 
+    private static final String PRECISION_HEADER = "X-Calculator-Precision";
+
+    private final Calculator calculator;
+    private final BatchCalculator batchCalculator;
+    private final JsonFactory jsonFactory;
+    private final Calculator.Precision defaultPrecision;
+    private final OperationResponseWriter responseWriter;
+    private final String hostname;
+    private final CalculatorMetrics metrics;
+    private final StructuredResponseWriter structuredWriter;
+
+    public SimpleCalculatorController(Calculator calculator, BatchCalculator batchCalculator,
+                                      ObjectMapper objectMapper,
+                                      @Value("${calculator.mul.precision:wrap}") String defaultPrecision,
+                                      OperationResponseWriter responseWriter, CalculatorMetrics metrics) {
+        this.responseWriter = responseWriter;
+        this.metrics = metrics;
+        this.hostname = responseWriter.getHostname();
+        this.calculator = calculator;
+        this.batchCalculator = batchCalculator;
+        this.jsonFactory = objectMapper.getFactory();
+        this.structuredWriter = new StructuredResponseWriter(objectMapper);
+        this.defaultPrecision = Calculator.Precision.fromName(defaultPrecision);
+    }
+
     @CrossOrigin
-    @RequestMapping(method = RequestMethod.GET, value = "/whoami", produces = "text/plain")
+    @RequestMapping(method = RequestMethod.GET, value = "/whoami", produces = {"text/plain", "application/json",
+            "application/cbor"})
     @ApiOperation("Says whoami ")
-    public String whoami() {
-        String hostname = System.getenv().getOrDefault("HOSTNAME", "Unknown");
-        return String.format("I am served from Host: %s", hostname);
+    public void whoami(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                       HttpServletResponse response) throws IOException {
+        respond(response, format(accept), HttpStatus.OK, String.format("I am served from Host: %s", hostname),
+                OperationResult.whoami(hostname));
     }
 
     @CrossOrigin
-    @RequestMapping(method = RequestMethod.GET, value = "/add/{num1}/{num2}", produces = "text/plain")
+    @RequestMapping(method = RequestMethod.GET, value = "/add/{num1}/{num2}", produces = {"text/plain",
+            "application/json", "application/cbor"})
     @ApiOperation("Adds two numbers passed as path parameters")
-    public String add(@PathVariable("num1") Integer num1, @PathVariable("num2") Integer num2) {
-        String hostname = System.getenv().getOrDefault("HOSTNAME", "Unknown");
-        int result = (num1 + num2);
-        LOGGER.info("Product Result:{} executed on Pod {}",result,hostname);
-        return String.format("Service Host :%s \n %d + %d = %d", hostname, num1, num2, result);
+    public void add(@PathVariable("num1") String num1, @PathVariable("num2") String num2,
+                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                    HttpServletResponse response) throws IOException {
+        int n1, n2;
+        try {
+            n1 = Integer.parseInt(num1);
+            n2 = Integer.parseInt(num2);
+        } catch (NumberFormatException e) {
+            metrics.parseFailure("add");
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Path parameters must be ints");
+            return;
+        }
+        int result = calculator.add(n1, n2);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(RequestLogSampler.REQUEST, "Add Result:{} executed on Pod {}", result, hostname);
+        }
+        ResponseFormat format = format(accept);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (format == ResponseFormat.TEXT) {
+            responseWriter.writeAdd(response, n1, n2, result);
+        } else {
+            structuredWriter.write(response, format, HttpStatus.OK.value(),
+                    OperationResult.binary(hostname, "add", n1, n2, result));
+        }
     }
 
     @CrossOrigin
-    @RequestMapping(method = RequestMethod.GET, value = "/sub/{num1}/{num2}", produces = "text/plain")
+    @RequestMapping(method = RequestMethod.GET, value = "/sub/{num1}/{num2}", produces = {"text/plain",
+            "application/json", "application/cbor"})
     @ApiOperation("Subtracts two numbers passed as path parameters")
-    public String sub(@PathVariable("num1") Integer num1, @PathVariable("num2") Integer num2) {
-        String hostname = System.getenv().getOrDefault("HOSTNAME", "Unknown");
-        int result = (num1 - num2);
-        LOGGER.info("Product Result:{} executed on Pod {}",result,hostname);
-        return String.format("Service Host :%s \n %d - %d = %d", hostname, num1, num2, result);
+    public void sub(@PathVariable("num1") String num1, @PathVariable("num2") String num2,
+                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                    HttpServletResponse response) throws IOException {
+        int n1, n2;
+        try {
+            n1 = Integer.parseInt(num1);
+            n2 = Integer.parseInt(num2);
+        } catch (NumberFormatException e) {
+            metrics.parseFailure("sub");
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Path parameters must be ints");
+            return;
+        }
+        int result = calculator.sub(n1, n2);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(RequestLogSampler.REQUEST, "Sub Result:{} executed on Pod {}", result, hostname);
+        }
+        ResponseFormat format = format(accept);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (format == ResponseFormat.TEXT) {
+            responseWriter.writeSub(response, n1, n2, result);
+        } else {
+            structuredWriter.write(response, format, HttpStatus.OK.value(),
+                    OperationResult.binary(hostname, "sub", n1, n2, result));
+        }
     }
 
     @CrossOrigin
-    @RequestMapping(method = RequestMethod.POST, value = "/mul", produces = "text/plain",
-            consumes = "application/json")
-    @ApiOperation("Multiplies two numbers passed as body json, only int/long supported")
-    public String mul(@RequestBody String numbersJson) {
-        LOGGER.debug("Request : {}", numbersJson);
-        long product = 1;
-        if (numbersJson != null && !StringUtils.isEmpty(numbersJson)) {
-            JSONObject jsonObject = new JSONObject(numbersJson);
-            JSONArray jsonArray = jsonObject.getJSONArray("numbers");
-            if (jsonArray != null && jsonArray.length() > 0) {
-                for (int i = 0; i < jsonArray.length(); i++) {
-                    product = product * jsonArray.getLong(i);
-                }
-            }
+    @RequestMapping(method = RequestMethod.POST, value = "/mul", produces = {"text/plain", "application/json",
+            "application/cbor"}, consumes = "application/json")
+    @ApiOperation("Multiplies numbers passed as body json, the precision header or query parameter selects wrap, "
+            + "long, bigint or parallel arithmetic")
+    public void mul(InputStream numbersJson,
+                    @RequestHeader(value = PRECISION_HEADER, required = false) String precisionHeader,
+                    @RequestParam(value = "precision", required = false) String precisionParam,
+                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                    HttpServletResponse response) throws IOException {
+        ResponseFormat format = format(accept);
+        Calculator.Precision precision;
+        try {
+            precision = precisionHeader != null ? Calculator.Precision.fromName(precisionHeader)
+                    : precisionParam != null ? Calculator.Precision.fromName(precisionParam) : defaultPrecision;
+        } catch (IllegalArgumentException e) {
+            respond(response, format, HttpStatus.BAD_REQUEST, e.getMessage(),
+                    OperationResult.failure(hostname, "mul", e.getMessage()));
+            return;
+        }
+        Number product;
+        try (JsonNumbersReader numbers = new JsonNumbersReader(jsonFactory, numbersJson)) {
+            product = calculator.mul(precision, numbers);
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            metrics.parseFailure("mul");
+            throw e;
+        } catch (ArithmeticException e) {
+            LOGGER.warn("Product overflows a long with {} precision", precision);
+            respond(response, format, HttpStatus.UNPROCESSABLE_ENTITY,
+                    String.format("Service Host :%s \n Product overflows a long, use precision bigint", hostname),
+                    OperationResult.failure(hostname, "mul", "Product overflows a long, use precision bigint"));
+            return;
         }
-        String hostname = System.getenv().getOrDefault("HOSTNAME", "Unknown");
-        LOGGER.info("Product Result:{} executed on Pod {}",product,hostname);
-        return String.format("Service Host :%s \n Product  = %d", hostname, product);
+        LOGGER.info(RequestLogSampler.REQUEST, "Product Result:{} executed on Pod {}", product, hostname);
+        respond(response, format, HttpStatus.OK, String.format("Service Host :%s \n Product  = %d", hostname, product),
+                OperationResult.product(hostname, precision, product));
     }
 
     @CrossOrigin
-    @RequestMapping(method = RequestMethod.POST, value = "/div", produces = "text/plain",
-            consumes = "application/json")
+    @RequestMapping(method = RequestMethod.POST, value = "/div", produces = {"text/plain", "application/json",
+            "application/cbor"}, consumes = "application/json")
     @ApiOperation("Divides two numbers passed as json, all answer is returned as double")
-    public String div(@RequestBody String numbersJson) {
-        LOGGER.debug("Request : {}", numbersJson);
-        String hostname = System.getenv().getOrDefault("HOSTNAME", "Unknown");
-        double answer = 0;
-        if (numbersJson != null && !StringUtils.isEmpty(numbersJson)) {
-            JSONObject jsonObject = new JSONObject(numbersJson);
-            JSONArray jsonArray = jsonObject.getJSONArray("numbers");
-            if (jsonArray != null && jsonArray.length() > 0) {
-                for (int i = 0; i < jsonArray.length(); i++) {
-                    double n = jsonArray.getDouble(i);
-                    if (n != 0) {
-                        if (answer == 0) {
-                            answer = n;
-                        } else {
-                            answer = answer / n;
-                        }
-                    } else {
-                        answer = 0;
-                        LOGGER.error("Exception Divide by 0");
-                        break;
-                    }
-                }
-            }
+    public void div(InputStream numbersJson,
+                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                    HttpServletResponse response) throws IOException {
+        double answer;
+        try (JsonNumbersReader numbers = new JsonNumbersReader(jsonFactory, numbersJson)) {
+            answer = calculator.div(numbers.doubles());
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            metrics.parseFailure("div");
+            throw e;
+        } catch (ArithmeticException e) {
+            answer = 0;
+            metrics.divideByZero("div");
+            LOGGER.error(RequestLogSampler.REQUEST, "Exception Divide by 0");
+        }
+        LOGGER.info(RequestLogSampler.REQUEST, "Divide Result:{} executed on Pod {}", answer, hostname);
+        respond(response, format(accept), HttpStatus.OK,
+                String.format("Service Host :%s \n Answer = %f", hostname, answer),
+                OperationResult.quotient(hostname, answer));
+    }
+
+    @CrossOrigin
+    @RequestMapping(method = RequestMethod.POST, value = "/batch", produces = {"application/json",
+            "application/cbor"}, consumes = "application/json")
+    @ApiOperation("Evaluates an array of add, sub, mul or div operations, each given as {\"op\": .., \"operands\": [..]}")
+    public void batch(@RequestBody List<BatchOperation> operations,
+                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                      HttpServletResponse response) throws IOException {
+        // there is no text form of a batch
+        ResponseFormat format = format(accept) == ResponseFormat.CBOR ? ResponseFormat.CBOR : ResponseFormat.JSON;
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        List<BatchResult> results;
+        try {
+            results = batchCalculator.evaluate(operations);
+        } catch (BatchTooLargeException e) {
+            LOGGER.warn("Rejected batch : {}", e.getMessage());
+            structuredWriter.write(response, format, HttpStatus.PAYLOAD_TOO_LARGE.value(),
+                    OperationResult.failure(hostname, "batch", e.getMessage()));
+            return;
+        }
+        BatchResponse batchResponse = new BatchResponse(hostname, results);
+        LOGGER.info(RequestLogSampler.REQUEST, "Batch of {} operations with {} failures executed on Pod {}",
+                results.size(), batchResponse.getFailures(), hostname);
+        structuredWriter.write(response, format, HttpStatus.OK.value(), batchResponse);
+    }
+
+    /**
+     * A batch body that can't be read never reaches {@link #batch(List, String, HttpServletResponse)}, count it before
+     * answering 400 as Spring would
+     */
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<String> unreadableBody(HttpMessageNotReadableException e, HttpServletRequest request) {
+        if (request.getRequestURI().endsWith("/batch")) {
+            metrics.parseFailure("batch");
+        }
+        return ResponseEntity.badRequest().body(e.getMostSpecificCause().getMessage());
+    }
+
+    /**
+     * @return - the format the request accepts, the mappings already answered 406 to the requests that accept none
+     */
+    private static ResponseFormat format(String accept) {
+        ResponseFormat format = ResponseFormat.negotiate(accept);
+        return format != null ? format : ResponseFormat.TEXT;
+    }
+
+    /**
+     * Answers with the legacy text or with the result as JSON or CBOR, as negotiated
+     */
+    private void respond(HttpServletResponse response, ResponseFormat format, HttpStatus status, String text,
+                         OperationResult result) throws IOException {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (format != ResponseFormat.TEXT) {
+            structuredWriter.write(response, format, status.value(), result);
+            return;
         }
-        LOGGER.info("Divide Result:{} executed on Pod {}",answer,hostname);
-        return String.format("Service Host :%s \n Answer = %f",hostname, answer);
+        byte[] body = text.getBytes(StandardCharsets.ISO_8859_1);
+        response.setStatus(status.value());
+        response.setContentType(OperationResponseWriter.CONTENT_TYPE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
     }
 }
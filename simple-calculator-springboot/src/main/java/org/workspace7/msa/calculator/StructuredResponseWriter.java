@@ -0,0 +1,69 @@
+package org.workspace7.msa.calculator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Serializes the {@link OperationResult} and {@link BatchResponse} responses as JSON or CBOR, straight into the
+ * servlet output stream so that no intermediate String or byte array is built. The reactive mode takes the response
+ * as a {@link ByteBuffer} of its own instead, as it is sent asynchronously.
+ *
+ * @author kameshs
+ */
+public class StructuredResponseWriter {
+
+    private final ObjectWriter jsonWriter;
+    private final ObjectWriter cborWriter;
+
+    /**
+     * @param objectMapper - the mapper of the JSON responses, its configuration is not applied to CBOR
+     */
+    public StructuredResponseWriter(ObjectMapper objectMapper) {
+        // the servlet container closes the stream once the response is complete
+        this.jsonWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.cborWriter = new ObjectMapper(new CBORFactory()).writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * @param format - {@link ResponseFormat#JSON} or {@link ResponseFormat#CBOR}
+     */
+    public void write(HttpServletResponse response, ResponseFormat format, int status, Object body)
+            throws IOException {
+        ObjectWriter writer = writer(format);
+        response.setStatus(status);
+        response.setContentType(format.getContentType());
+        writer.writeValue(response.getOutputStream(), body);
+    }
+
+    /**
+     * @param format - {@link ResponseFormat#JSON} or {@link ResponseFormat#CBOR}
+     * @return - the response, in a buffer of its own
+     */
+    public ByteBuffer encode(ResponseFormat format, Object body) {
+        try {
+            return ByteBuffer.wrap(writer(format).writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ObjectWriter writer(ResponseFormat format) {
+        switch (format) {
+            case JSON:
+                return jsonWriter;
+            case CBOR:
+                return cborWriter;
+            default:
+                throw new IllegalArgumentException("No structured form for " + format);
+        }
+    }
+}
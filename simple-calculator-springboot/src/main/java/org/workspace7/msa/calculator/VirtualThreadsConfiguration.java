@@ -0,0 +1,57 @@
+package org.workspace7.msa.calculator;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.undertow.UndertowEmbeddedServletContainerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.workspace7.msa.calculator.commons.PinnedThreadMonitor;
+import org.workspace7.msa.calculator.commons.VirtualThreads;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the servlet requests on virtual threads instead of the Undertow worker threads, enabled with
+ * <code>calculator.virtual-threads.enabled=true</code>. Each request gets a virtual thread of its own, so the number
+ * of requests in flight is no longer bounded by <code>server.undertow.worker-threads</code>. Virtual threads need
+ * Java 21 and are created by {@link VirtualThreads}, on older runtimes the requests stay on the workers with a
+ * warning. The requests pinned to their carrier are reported by a {@link PinnedThreadMonitor}, from
+ * <code>calculator.virtual-threads.pinned-threshold</code> milliseconds.
+ *
+ * @author kameshs
+ */
+@Configuration
+@ConditionalOnProperty(name = "calculator.virtual-threads.enabled")
+public class VirtualThreadsConfiguration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadsConfiguration.class);
+
+    @Bean
+    EmbeddedServletContainerCustomizer virtualThreadsCustomizer() {
+        if (!VirtualThreads.isSupported()) {
+            LOGGER.warn("Virtual threads need Java 21, the requests run on the worker threads on Java {}",
+                    System.getProperty("java.version"));
+            return container -> {
+            };
+        }
+        ThreadFactory threadFactory = VirtualThreads.threadFactory("undertow-virtual", true);
+        return container -> {
+            if (container instanceof UndertowEmbeddedServletContainerFactory) {
+                Executor executor = runnable -> threadFactory.newThread(runnable).start();
+                ((UndertowEmbeddedServletContainerFactory) container).addDeploymentInfoCustomizers(deploymentInfo ->
+                        deploymentInfo.setExecutor(executor).setAsyncExecutor(executor));
+            }
+        };
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    PinnedThreadMonitor pinnedThreadMonitor(MeterRegistry registry,
+            @Value("${calculator.virtual-threads.pinned-threshold:20}") long thresholdMillis) {
+        return new PinnedThreadMonitor(registry, thresholdMillis);
+    }
+}
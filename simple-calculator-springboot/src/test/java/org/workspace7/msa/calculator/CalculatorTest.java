@@ -0,0 +1,91 @@
+package org.workspace7.msa.calculator;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the multiplication precisions of {@link Calculator}, and that its parallel product tree gives the exact
+ * product whatever the number and the signs of the factors
+ *
+ * @author kameshs
+ */
+public class CalculatorTest {
+
+    private final Calculator calculator = new Calculator();
+
+    @Test
+    public void multipliesAProductTreeAsTheSequentialProduct() {
+        for (int size : new int[]{1, 2, 255, 256, 257, 1000, 5000}) {
+            List<BigInteger> factors = new ArrayList<>();
+            for (int i = 1; i <= size; i++) {
+                // negative and larger than long factors, the sign and size of every subtree product vary
+                BigInteger factor = BigInteger.valueOf(i % 3 == 0 ? -i : i);
+                factors.add(i % 7 == 0 ? factor.multiply(BigInteger.valueOf(Long.MAX_VALUE)) : factor);
+            }
+
+            assertEquals("product of " + size + " factors", calculator.mul(factors.iterator()),
+                    calculator.parallelMul(factors.iterator()));
+        }
+    }
+
+    @Test
+    public void multipliesNoFactorsAsOne() {
+        assertEquals(BigInteger.ONE, calculator.parallelMul(Collections.<BigInteger>emptyIterator()));
+        assertEquals(BigInteger.ONE, calculator.mul(Collections.<BigInteger>emptyIterator()));
+        assertEquals(1L, calculator.mul());
+    }
+
+    @Test
+    public void multipliesZeroAsZero() {
+        List<BigInteger> factors = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            factors.add(BigInteger.valueOf(i == 600 ? 0 : i + 1));
+        }
+
+        assertEquals(BigInteger.ZERO, calculator.parallelMul(factors.iterator()));
+    }
+
+    @Test
+    public void multipliesEachPrecisionItsWay() throws IOException {
+        String overflowing = "{\"numbers\": [9223372036854775807, 2]}";
+
+        assertEquals(-2L, calculator.mul(Calculator.Precision.WRAP, reader(overflowing)));
+        assertEquals(new BigInteger("18446744073709551614"),
+                calculator.mul(Calculator.Precision.BIGINT, reader(overflowing)));
+        assertEquals(new BigInteger("18446744073709551614"),
+                calculator.mul(Calculator.Precision.PARALLEL, reader(overflowing)));
+        assertEquals(24L, calculator.mul(Calculator.Precision.LONG, reader("{\"numbers\": [2, 3, 4]}")));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void failsOnOverflowWithLongPrecision() throws IOException {
+        calculator.mul(Calculator.Precision.LONG, reader("{\"numbers\": [9223372036854775807, 2]}"));
+    }
+
+    @Test
+    public void findsPrecisionsByNameIgnoringCase() {
+        assertEquals(Arrays.asList(Calculator.Precision.WRAP, Calculator.Precision.PARALLEL),
+                Arrays.asList(Calculator.Precision.fromName("wrap"), Calculator.Precision.fromName(" Parallel ")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownPrecisions() {
+        Calculator.Precision.fromName("double");
+    }
+
+    private JsonNumbersReader reader(String json) throws IOException {
+        return new JsonNumbersReader(new JsonFactory(),
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
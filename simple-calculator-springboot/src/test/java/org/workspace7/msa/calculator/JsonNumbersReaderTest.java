@@ -0,0 +1,132 @@
+package org.workspace7.msa.calculator;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the streaming reads of the numbers array by {@link JsonNumbersReader}
+ *
+ * @author kameshs
+ */
+public class JsonNumbersReaderTest {
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Test
+    public void readsNumbersAndNumericStringsAsLongs() throws IOException {
+        assertEquals(Arrays.asList(1L, 2L, 3L, -4L), longs("{\"numbers\": [1, 2.9, \" 3 \", \"-4.5\"]}"));
+    }
+
+    @Test
+    public void readsNumbersAsDoubles() throws IOException {
+        List<Double> doubles = new ArrayList<>();
+        try (JsonNumbersReader reader = reader("{\"numbers\": [8, \"2\", 0.5]}")) {
+            reader.doubles().forEachRemaining((Double number) -> doubles.add(number));
+        }
+
+        assertEquals(Arrays.asList(8d, 2d, 0.5d), doubles);
+    }
+
+    @Test
+    public void readsNumbersBeyondTheLongRangeAsBigIntegers() throws IOException {
+        List<BigInteger> bigIntegers = new ArrayList<>();
+        try (JsonNumbersReader reader = reader(
+                "{\"numbers\": [123456789012345678901234567890, \"98765432109876543210\", 7.9]}")) {
+            reader.bigIntegers().forEachRemaining(bigIntegers::add);
+        }
+
+        assertEquals(Arrays.asList(new BigInteger("123456789012345678901234567890"),
+                new BigInteger("98765432109876543210"), BigInteger.valueOf(7)), bigIntegers);
+    }
+
+    @Test
+    public void skipsTheOtherFields() throws IOException {
+        assertEquals(Arrays.asList(6L, 7L),
+                longs("{\"precision\": \"long\", \"nested\": {\"numbers\": [1]}, \"numbers\": [6, 7], \"tail\": 1}"));
+    }
+
+    @Test
+    public void hasNoNumbersInAnEmptyBodyOrArray() throws IOException {
+        assertEquals(Collections.emptyList(), longs(""));
+        assertEquals(Collections.emptyList(), longs("{\"numbers\": []}"));
+    }
+
+    @Test
+    public void answersHasNextWithoutConsumingTheNumber() throws IOException {
+        try (JsonNumbersReader reader = reader("{\"numbers\": [5]}")) {
+            PrimitiveIterator.OfLong longs = reader.longs();
+            assertTrue(longs.hasNext());
+            assertTrue(longs.hasNext());
+            assertEquals(5L, longs.nextLong());
+            assertFalse(longs.hasNext());
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void failsToReadPastTheLastNumber() throws IOException {
+        try (JsonNumbersReader reader = reader("{\"numbers\": [5]}")) {
+            Iterator<BigInteger> bigIntegers = reader.bigIntegers();
+            bigIntegers.next();
+            bigIntegers.next();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsABodyThatIsNotAnObject() throws IOException {
+        longs("[1, 2]");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsABodyWithoutNumbers() throws IOException {
+        longs("{\"values\": [1, 2]}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNumbersThatAreNotAnArray() throws IOException {
+        longs("{\"numbers\": 1}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsValuesThatAreNotNumbers() throws IOException {
+        longs("{\"numbers\": [1, true]}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsStringsThatAreNotNumbers() throws IOException {
+        longs("{\"numbers\": [1, \"two\"]}");
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void failsOnATruncatedBody() throws IOException {
+        longs("{\"numbers\": [1, 2");
+    }
+
+    private List<Long> longs(String json) throws IOException {
+        List<Long> longs = new ArrayList<>();
+        try (JsonNumbersReader reader = reader(json)) {
+            reader.longs().forEachRemaining((Long number) -> longs.add(number));
+        }
+        return longs;
+    }
+
+    private JsonNumbersReader reader(String json) throws IOException {
+        return new JsonNumbersReader(jsonFactory, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}